@@ -7,6 +7,7 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import optimizing.memory.StringPool;
 import org.apache.commons.lang3.math.NumberUtils;
 
 /**
@@ -17,9 +18,13 @@ import org.apache.commons.lang3.math.NumberUtils;
  *   <li>NumberUtils.isParsable() guards quantity and price fields before conversion.
  *   <li>Strip the $ before handing the cleaned value to Double.parseDouble().
  *   <li>Files.newBufferedReader(..., UTF_8) avoids default-encoding surprises.
+ *   <li>Low-cardinality columns go through a StringPool so a million rows share a few strings.
  * </ul>
  */
 public class ParseTextDemo2 {
+  // Coffee names and payment methods repeat on every row; split() hands us a fresh copy each time.
+  private static final StringPool COLUMN_POOL = StringPool.bounded(4_096);
+
   private record CoffeeSales(
       LocalDate date, String coffeeName, String paymentMethod, Integer quantity, Double amount) {}
 
@@ -52,8 +57,8 @@ public class ParseTextDemo2 {
   /** Convert the raw CSV fields into a strongly typed record. */
   public static CoffeeSales parseSalesData(final String[] fields) {
     LocalDate publishDate = parseDate(fields[0]);
-    String coffeeName = fields[1];
-    String paymentMethod = fields[2];
+    String coffeeName = COLUMN_POOL.intern(fields[1]);
+    String paymentMethod = COLUMN_POOL.intern(fields[2]);
     // Integer.parseInt() converts the cleaned quantity string
     Integer quantity = Integer.parseInt(validateNumeric(fields[3]));
     Double amount = parsePrice(fields[4]);
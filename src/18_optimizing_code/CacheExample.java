@@ -1,5 +1,10 @@
 import java.util.HashMap;
 import java.util.Map;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
 
 /**
  * Tiny LRU (last recently used) cache sketch; shows the usual time-vs-memory trade-off: cached hits
@@ -45,12 +50,18 @@ public class CacheExample {
    * @return cached value or {@code null} when it is a miss
    */
   public String get(final String key) {
+    // Costs next to nothing unless a Flight Recorder session is running.
+    CacheGetEvent event = new CacheGetEvent();
+    event.begin();
     String value = null;
     CacheEntry entry = cache.get(key);
     if (entry != null) {
       entry.updateAccessTime();
       value = entry.value;
     }
+    event.key = key;
+    event.hit = entry != null;
+    event.commit();
     return value;
   }
 
@@ -81,6 +92,19 @@ public class CacheExample {
     }
   }
 
+  /** Flight Recorder event for one {@link #get} call. */
+  @Name("optimizing.CacheGet")
+  @Label("Cache Get")
+  @Category("Application")
+  @StackTrace(false)
+  static final class CacheGetEvent extends Event {
+    @Label("Key")
+    String key;
+
+    @Label("Hit")
+    boolean hit;
+  }
+
   private static final class CacheEntry {
     private final String value;
     private long lastAccessed;
@@ -1,3 +1,7 @@
+import java.time.Duration;
+import optimizing.profiling.BenchmarkRunner;
+import optimizing.profiling.ProfileReport;
+
 /**
  * Contrasts GC-heavy string concatenation with a StringBuilder approach so you can see how object
  * churn slows things down.
@@ -43,24 +47,26 @@ public class GarbageCollectorExample {
 
     // Key takeaway: both methods do the exact same job, but the GC-friendly version spends far less
     // time allocating temporary strings.
-    long startWithoutOptimization = System.nanoTime();
     String reportWithoutOptimization = generateReportWithoutOptimization(testData);
-    long endWithoutOptimization = System.nanoTime();
-
-    long startWithOptimization = System.nanoTime();
     String reportWithOptimization = generateReportWithOptimization(testData);
-    long endWithOptimization = System.nanoTime();
-
-    System.out.println(
-        "Time taken without optimization: "
-            + (endWithoutOptimization - startWithoutOptimization) / 1_000_000
-            + " ms");
-    System.out.println(
-        "Time taken with optimization: "
-            + (endWithOptimization - startWithOptimization) / 1_000_000
-            + " ms");
     System.out.println(
         "Reports have same length? "
             + (reportWithoutOptimization.length() == reportWithOptimization.length()));
+
+    BenchmarkRunner runner = new BenchmarkRunner(2, 5, Duration.ZERO);
+    runner.run("without optimization", 1, () -> generateReportWithoutOptimization(testData));
+    runner.run("with optimization", 1, () -> generateReportWithOptimization(testData));
+    runner.print(System.out);
+
+    // The timings above hide the cause; the allocation counter shows it directly.
+    ProfileReport report = new ProfileReport("Allocation per data point");
+    report.measure(
+        "without optimization",
+        1,
+        testData.length,
+        () -> generateReportWithoutOptimization(testData));
+    report.measure(
+        "with optimization", 1, testData.length, () -> generateReportWithOptimization(testData));
+    report.print(System.out);
   }
 }
@@ -1,3 +1,10 @@
+import java.lang.ref.Reference;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -5,7 +12,22 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import optimizing.collections.LongOpenHashSet;
+import optimizing.collections.RotatingBloomFilter;
+import optimizing.collections.SpaceSavingSketch;
+import optimizing.collections.StreamingDuplicateDetector;
+import optimizing.collections.StringOpenHashSet;
+import optimizing.collections.TokenCountMap;
+import optimizing.collections.TransactionIdCodec;
+import optimizing.profiling.BenchmarkResult;
+import optimizing.profiling.BenchmarkRunner;
+import optimizing.text.ParallelWordCounter;
 
 /**
  * HashSet: store unique elements with O(1) membership checks—great when you only care if something
@@ -16,7 +38,11 @@ import java.util.Set;
 public class HashSetVsMapExample {
   public static void main(String[] args) {
     hashSetDemo();
+    compactSetDemo();
+    streamingDedupDemo();
     mapDemo();
+    parallelWordCountDemo();
+    heavyHittersDemo();
   }
 
   /** Shows how HashSet keeps duplicate detection O(n) by giving average O(1) membership checks. */
@@ -60,6 +86,199 @@ public class HashSetVsMapExample {
       // Returning false means we never hit an O(1) repeat; worst-case hashing still O(n^2).
       return duplicateFound;
     }
+
+    /**
+     * Same answer as {@link #hasDuplicateTransactions}, but without a {@code HashMap.Node} per ID.
+     * Well-formed IDs (e.g. TXN000123) are packed into a long and land in a primitive set; anything
+     * else falls back to a String set with cached hashes. Packing is one-to-one, so an ID can only
+     * ever repeat inside the set it was routed to.
+     */
+    public boolean hasDuplicateTransactionsCompact(final String[] transactionIds) {
+      LongOpenHashSet packedSeen = new LongOpenHashSet(transactionIds.length);
+      StringOpenHashSet otherSeen = new StringOpenHashSet();
+
+      for (String transactionId : transactionIds) {
+        long packed = TransactionIdCodec.tryEncode(transactionId);
+        boolean firstSighting =
+            packed == TransactionIdCodec.NOT_ENCODABLE
+                ? otherSeen.add(transactionId)
+                : packedSeen.add(packed);
+        if (!firstSighting) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Compares the boxed HashSet against the primitive set on a few million unique IDs (the worst
+   * case: every ID must be remembered). Heap numbers come from Runtime deltas, so treat them as
+   * ballpark figures.
+   */
+  private static void compactSetDemo() {
+    int count = 2_000_000;
+    String[] ids = new String[count];
+    for (int i = 0; i < count; i++) {
+      ids[i] = String.format(Locale.ROOT, "TXN%09d", i);
+    }
+    TransactionProcessor processor = new TransactionProcessor();
+
+    boolean boxedResult = processor.hasDuplicateTransactions(ids);
+    boolean compactResult = processor.hasDuplicateTransactionsCompact(ids);
+    // Warm-up rounds first, so JIT compilation does not dominate the comparison.
+    BenchmarkRunner runner = new BenchmarkRunner(1, 5, Duration.ZERO);
+    BenchmarkResult boxed =
+        runner.run("HashSet", 1, () -> processor.hasDuplicateTransactions(ids));
+    BenchmarkResult compact =
+        runner.run("packed long set", 1, () -> processor.hasDuplicateTransactionsCompact(ids));
+
+    System.out.printf(
+        Locale.ROOT,
+        "%,d unique IDs -> HashSet %.1f ms, packed long set %.1f ms (median; same answer: %b)%n",
+        count,
+        boxed.p50() / 1_000_000.0,
+        compact.p50() / 1_000_000.0,
+        boxedResult == compactResult);
+
+    long boxedBytes = retainedBytes(() -> fillHashSet(ids));
+    long packedBytes = retainedBytes(() -> fillPackedSet(ids));
+    long stringBytes = retainedBytes(() -> fillStringSet(ids));
+    System.out.printf(
+        Locale.ROOT,
+        "Bytes per entry (excluding the ID strings): HashSet %.1f, StringOpenHashSet %.1f,"
+            + " LongOpenHashSet %.1f%n",
+        boxedBytes / (double) count,
+        stringBytes / (double) count,
+        packedBytes / (double) count);
+  }
+
+  private static Object fillHashSet(final String[] ids) {
+    Set<String> set = new HashSet<>();
+    set.addAll(Arrays.asList(ids));
+    return set;
+  }
+
+  private static Object fillPackedSet(final String[] ids) {
+    LongOpenHashSet set = new LongOpenHashSet();
+    for (String id : ids) {
+      set.add(TransactionIdCodec.encode(id));
+    }
+    return set;
+  }
+
+  private static Object fillStringSet(final String[] ids) {
+    StringOpenHashSet set = new StringOpenHashSet();
+    for (String id : ids) {
+      set.add(id);
+    }
+    return set;
+  }
+
+  // Before/after heap snapshot around a builder; the fence keeps the result alive until the
+  // second reading so the GC cannot reclaim it early.
+  @SuppressWarnings("PMD.DoNotCallGarbageCollectionExplicitly")
+  private static long retainedBytes(final Supplier<Object> builder) {
+    Runtime runtime = Runtime.getRuntime();
+    System.gc();
+    long before = runtime.totalMemory() - runtime.freeMemory();
+    Object built = builder.get();
+    System.gc();
+    long after = runtime.totalMemory() - runtime.freeMemory();
+    Reference.reachabilityFence(built);
+    return after - before;
+  }
+
+  /**
+   * Unbounded stream version: one simulated day of traffic through a 24-slice rotating Bloom
+   * filter. The filter's memory is fixed up front; only "maybe seen" IDs reach the exact store,
+   * which here is a map of first-sighting timestamps standing in for a database with a TTL.
+   */
+  private static void streamingDedupDemo() {
+    Duration window = Duration.ofHours(24);
+    int perDay = 1_000_000;
+    ManualClock clock = new ManualClock();
+    RotatingBloomFilter filter =
+        new RotatingBloomFilter(window, 24, perDay / 24, 0.001, clock);
+    WindowedStore store = new WindowedStore(clock, window);
+    StreamingDuplicateDetector detector = new StreamingDuplicateDetector(filter, store);
+
+    long tickMillis = window.toMillis() / perDay;
+    int duplicates = 0;
+    for (int i = 0; i < perDay; i++) {
+      clock.advance(tickMillis);
+      // Every 100th transaction replays one from a few minutes earlier.
+      int id = i % 100 == 99 && i > 5_000 ? i - 4_999 : i;
+      if (detector.isDuplicate(String.format(Locale.ROOT, "TXN%09d", id))) {
+        duplicates++;
+      }
+    }
+
+    clock.advance(Duration.ofHours(25).toMillis());
+    boolean staleReplayFlagged = detector.isDuplicate(String.format(Locale.ROOT, "TXN%09d", 0));
+
+    System.out.printf(
+        Locale.ROOT,
+        "Streamed %,d IDs: %,d duplicates, %,d exact lookups (%,d false positives),"
+            + " filter %.1f MB%n",
+        detector.checkedCount() - 1,
+        duplicates,
+        detector.exactLookupCount(),
+        detector.falsePositiveCount(),
+        detector.filterFootprintBytes() / (1024.0 * 1024.0));
+    System.out.println("Replay older than the 24h window flagged: " + staleReplayFlagged);
+  }
+
+  /** Clock the demo can fast-forward, so a "day" of traffic runs in a second. */
+  private static final class ManualClock extends Clock {
+    private long millis;
+
+    private void advance(final long deltaMillis) {
+      millis += deltaMillis;
+    }
+
+    @Override
+    public long millis() {
+      return millis;
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(final ZoneId zone) {
+      return this;
+    }
+  }
+
+  /** Exact store with a TTL; a real deployment would use a database or Redis with expiry. */
+  private static final class WindowedStore implements StreamingDuplicateDetector.SeenStore {
+    private final Map<String, Long> firstSeenMillis = new HashMap<>();
+    private final Clock clock;
+    private final long windowMillis;
+
+    private WindowedStore(final Clock clock, final Duration window) {
+      this.clock = clock;
+      this.windowMillis = window.toMillis();
+    }
+
+    @Override
+    public boolean contains(final String id) {
+      Long seenAt = firstSeenMillis.get(id);
+      return seenAt != null && clock.millis() - seenAt < windowMillis;
+    }
+
+    @Override
+    public void record(final String id) {
+      firstSeenMillis.put(id, clock.millis());
+    }
   }
 
   private static void mapDemo() {
@@ -125,5 +344,148 @@ public class HashSetVsMapExample {
 
       return frequencyMap;
     }
+
+    /**
+     * Corpus-scale variant: counts straight from UTF-8 bytes across fork/join workers, with no
+     * String per token and no boxed counters. Same words and lower-casing as the map above when the
+     * list holds the whitespace-separated tokens of the corpus.
+     */
+    public TokenCountMap buildWordFrequencyCounts(final byte[] corpus) {
+      return new ParallelWordCounter().count(corpus);
+    }
+
+    /**
+     * Streaming top-K: each parallel slice of the input feeds its own fixed-size Space-Saving
+     * sketch (O(1) per word), and the sketches are merged. Memory depends on {@code k}, not on the
+     * vocabulary, so this also works when the full histogram would not fit.
+     */
+    public List<SpaceSavingSketch.Estimate<String>> topWords(
+        final List<String> words, final int k) {
+      int slices = Runtime.getRuntime().availableProcessors();
+      int sliceSize = (words.size() + slices - 1) / slices;
+      return IntStream.range(0, slices)
+          .parallel()
+          .mapToObj(
+              slice -> {
+                SpaceSavingSketch<String> sketch = new SpaceSavingSketch<>(k * 10);
+                int end = Math.min(words.size(), (slice + 1) * sliceSize);
+                for (int i = slice * sliceSize; i < end; i++) {
+                  String word = words.get(i);
+                  if (!word.isEmpty()) {
+                    sketch.offer(word.toLowerCase(Locale.ROOT));
+                  }
+                }
+                return sketch;
+              })
+          .reduce(
+              (left, right) -> {
+                left.mergeFrom(right);
+                return left;
+              })
+          .map(sketch -> sketch.top(k))
+          .orElse(List.of());
+    }
+  }
+
+  /** Counts a synthetic ~64 MB corpus both ways and checks the two histograms agree. */
+  private static void parallelWordCountDemo() {
+    String[] vocabulary = new String[50_000];
+    for (int i = 0; i < vocabulary.length; i++) {
+      vocabulary[i] = (i % 7 == 0 ? "Word" : "word") + i;
+    }
+    Random random = new Random(42);
+    StringBuilder text = new StringBuilder(64 << 20);
+    while (text.length() < 64 << 20) {
+      // Squaring a uniform draw skews towards low ranks, roughly like natural language.
+      double skew = random.nextDouble();
+      text.append(vocabulary[(int) (skew * skew * vocabulary.length)]).append(' ');
+    }
+    byte[] corpus = text.toString().getBytes(StandardCharsets.UTF_8);
+    List<String> words = Arrays.asList(text.toString().split("\\s+"));
+    TextAnalyzer analyzer = new TextAnalyzer();
+
+    Map<String, Integer> boxed = analyzer.buildWordFrequencyMap(words);
+    TokenCountMap counts = analyzer.buildWordFrequencyCounts(corpus);
+    // The first calls above double as warm-up; each is big enough to time on its own.
+    BenchmarkRunner runner = new BenchmarkRunner(0, 3, Duration.ZERO);
+    double boxedNanos = runner.run("HashMap", 1, () -> analyzer.buildWordFrequencyMap(words)).p50();
+    double parallelNanos =
+        runner.run("byte counter", 1, () -> analyzer.buildWordFrequencyCounts(corpus)).p50();
+
+    System.out.printf(
+        Locale.ROOT,
+        "%,d words: HashMap %.0f ms, parallel byte counter %.0f ms on %d cores (same counts: %b)%n",
+        counts.totalCount(),
+        boxedNanos / 1_000_000.0,
+        parallelNanos / 1_000_000.0,
+        Runtime.getRuntime().availableProcessors(),
+        boxed.equals(counts.toMap()));
+
+    // A range without whitespace after its midpoint must not be split at its end.
+    String shortToken = "hello " + "a".repeat(36);
+    String longToken = "a".repeat(3 << 20);
+    TokenCountMap fineGrained =
+        new ParallelWordCounter(ForkJoinPool.commonPool(), 16)
+            .count(shortToken.getBytes(StandardCharsets.UTF_8));
+    TokenCountMap oneToken =
+        new ParallelWordCounter().count(longToken.getBytes(StandardCharsets.UTF_8));
+    if (fineGrained.totalCount() != 2
+        || fineGrained.get("hello") != 1
+        || oneToken.totalCount() != 1
+        || oneToken.get(longToken) != 1) {
+      throw new IllegalStateException("Long tokens were not counted once each.");
+    }
+  }
+
+  /**
+   * Accuracy check for {@link TextAnalyzer#topWords}: a Zipf(1.0) stream over 100k words, sketch
+   * top-100 against the exact histogram.
+   */
+  private static void heavyHittersDemo() {
+    int vocabularySize = 100_000;
+    int streamLength = 5_000_000;
+    int k = 100;
+    double[] cumulative = new double[vocabularySize];
+    double norm = 0;
+    for (int rank = 0; rank < vocabularySize; rank++) {
+      norm += 1.0 / (rank + 1);
+      cumulative[rank] = norm;
+    }
+    Random random = new Random(7);
+    String[] stream = new String[streamLength];
+    for (int i = 0; i < streamLength; i++) {
+      int rank = Arrays.binarySearch(cumulative, random.nextDouble() * norm);
+      stream[i] = "term" + (rank < 0 ? -rank - 1 : rank);
+    }
+    List<String> words = Arrays.asList(stream);
+    TextAnalyzer analyzer = new TextAnalyzer();
+
+    Map<String, Integer> exact = analyzer.buildWordFrequencyMap(words);
+    Set<String> exactTop =
+        exact.entrySet().stream()
+            .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+            .limit(k)
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toSet());
+    List<SpaceSavingSketch.Estimate<String>> sketchTop = analyzer.topWords(words, k);
+
+    int hits = 0;
+    double worstError = 0;
+    for (SpaceSavingSketch.Estimate<String> estimate : sketchTop) {
+      if (exactTop.contains(estimate.item())) {
+        hits++;
+      }
+      int trueCount = exact.get(estimate.item());
+      worstError = Math.max(worstError, (estimate.count() - trueCount) / (double) trueCount);
+    }
+    System.out.printf(
+        Locale.ROOT,
+        "Top-%d sketch (%d counters) vs exact on %,d Zipf words: recall %d%%,"
+            + " worst count over-estimate %.2f%%%n",
+        k,
+        k * 10,
+        streamLength,
+        hits * 100 / k,
+        worstError * 100);
   }
 }
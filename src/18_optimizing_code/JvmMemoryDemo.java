@@ -1,3 +1,13 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import optimizing.memory.StringPool;
+
 // JVM manages memory through (mainly) stack & heap areas
 // Stack memory - fast, stores primitives and references
 // Heap memory -> Stores objects
@@ -8,11 +18,13 @@
 public class JvmMemoryDemo {
 
   /**
-   * Initializes two arrays with identical values using both inefficient and efficient strategies.
+   * Initializes two arrays with identical values using both inefficient and efficient strategies,
+   * then repeats the lesson at CSV scale with a string pool.
    *
-   * @param args ignored command-line arguments
+   * @param args optional row count for the CSV demo (default 1,000,000; try 10000000 with -Xmx4g)
+   * @throws IOException if the temporary CSV cannot be written or read
    */
-  public static void main(String[] args) {
+  public static void main(String[] args) throws IOException {
     int size = 10_000;
 
     String[] inefficientArray = populateArrayInefficient(size, "DataCamp");
@@ -20,6 +32,79 @@ public class JvmMemoryDemo {
 
     System.out.println(
         "Arrays have same length: " + (inefficientArray.length == efficientArray.length));
+
+    int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    pooledCsvLoadDemo(rows);
+  }
+
+  /**
+   * The same duplicate-string problem for real: {@code split(",")} returns fresh strings for every
+   * cell, so a coffee-sales CSV pins millions of copies of "Latte" and "Credit Card". Loading the
+   * two low-cardinality columns through a {@link StringPool} keeps one instance per value.
+   */
+  private static void pooledCsvLoadDemo(final int rows) throws IOException {
+    Path csv = Files.createTempFile("coffee-synthetic", ".csv");
+    try {
+      writeSyntheticCoffeeCsv(csv, rows);
+      long rawBytes = retainedColumnBytes(csv, rows, null);
+      StringPool pool = StringPool.bounded(1_024);
+      long pooledBytes = retainedColumnBytes(csv, rows, pool);
+      System.out.printf(
+          Locale.ROOT,
+          "%,d CSV rows, coffee_name + payment_method columns: %.1f MB raw vs %.1f MB pooled"
+              + " (%,d pool hits, %,d distinct)%n",
+          rows,
+          rawBytes / (1024.0 * 1024.0),
+          pooledBytes / (1024.0 * 1024.0),
+          pool.hits(),
+          pool.misses());
+    } finally {
+      Files.deleteIfExists(csv);
+    }
+  }
+
+  private static void writeSyntheticCoffeeCsv(final Path csv, final int rows) throws IOException {
+    String[] coffees = {"Latte", "Espresso", "Cappuccino", "Americano", "Mocha", "Hot Chocolate"};
+    String[] payments = {"Credit Card", "Cash", "Mobile Pay", "Gift Card"};
+    try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+      writer.write("date,coffee_name,payment_method,quantity,amount");
+      writer.newLine();
+      for (int i = 0; i < rows; i++) {
+        writer.write("1/10/23,");
+        writer.write(coffees[i % coffees.length]);
+        writer.write(',');
+        writer.write(payments[i % payments.length]);
+        writer.write(",2,$8.50");
+        writer.newLine();
+      }
+    }
+  }
+
+  // Heap held by the two loaded columns (arrays + strings), measured with before/after snapshots.
+  @SuppressWarnings("PMD.DoNotCallGarbageCollectionExplicitly")
+  private static long retainedColumnBytes(final Path csv, final int rows, final StringPool pool)
+      throws IOException {
+    Runtime runtime = Runtime.getRuntime();
+    System.gc();
+    long before = runtime.totalMemory() - runtime.freeMemory();
+    String[] coffeeNames = new String[rows];
+    String[] paymentMethods = new String[rows];
+    try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+      reader.readLine(); // skip header
+      String line;
+      int row = 0;
+      while ((line = reader.readLine()) != null) {
+        String[] fields = line.split(",");
+        coffeeNames[row] = pool == null ? fields[1] : pool.intern(fields[1]);
+        paymentMethods[row] = pool == null ? fields[2] : pool.intern(fields[2]);
+        row++;
+      }
+    }
+    System.gc();
+    long after = runtime.totalMemory() - runtime.freeMemory();
+    Reference.reachabilityFence(coffeeNames);
+    Reference.reachabilityFence(paymentMethods);
+    return after - before;
   }
 
   /**
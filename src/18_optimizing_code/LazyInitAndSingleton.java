@@ -1,5 +1,18 @@
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import optimizing.concurrent.ConfigStore;
+import optimizing.concurrent.ConnectionPool;
+import optimizing.concurrent.Lazy;
 
 /**
  * Lazy initialization and singletons.
@@ -7,6 +20,10 @@ import java.util.Map;
  * <ul>
  *   <li>Delay expensive creation until something actually needs it (lazy database client below).
  *   <li>Centralize shared resources behind thread-safe singleton accessors (logging config).
+ *   <li>Once initialized, reads should cost nothing: {@link Lazy} and the holder idiom avoid the
+ *       monitor that a {@code synchronized} getter takes on every single call.
+ *   <li>A single lazy client caps throughput when the client is not thread-safe; a bounded {@link
+ *       ConnectionPool} keeps the laziness but lends out one connection per concurrent caller.
  * </ul>
  */
 public final class LazyInitAndSingleton {
@@ -21,25 +38,51 @@ public final class LazyInitAndSingleton {
   private LazyInitAndSingleton() {}
 
   /**
-   * Simple demo: touch the database (triggering lazy init) and grab the singleton log manager.
+   * Simple demo: touch the database (triggering lazy init) and grab the singleton log manager,
+   * then compare accessor throughput under contention.
    *
    * @param args ignored command-line arguments
+   * @throws InterruptedException if a benchmark worker is interrupted
+   * @throws TimeoutException if the pooled database runs out of connections
    */
-  public static void main(String[] args) {
+  public static void main(String[] args) throws InterruptedException, TimeoutException {
     Database database = new Database();
     database.getClient();
 
     LogManager logManager = LogManager.getInstance();
     logManager.setConfig("level", "INFO");
     System.out.println("LogManager config snapshot: " + logManager.describeConfig());
+
+    contentionBenchmark();
+    configReadBenchmark();
+    connectionPoolDemo();
   }
 
   /**
    * Represents the "lazy Redis cache" portion of the lesson. Connecting is assumed to cost ~500 ms,
-   * so we defer it until someone calls {@link #getClient}. The synchronized getter keeps multiple
-   * services (User, Payment, Order) from creating redundant clients.
+   * so we defer it until someone calls {@link #getClient}. {@link Lazy} keeps multiple services
+   * (User, Payment, Order) from creating redundant clients, and after the first call a read is a
+   * plain memory load instead of a lock acquisition.
    */
   private static final class Database {
+    private final Lazy<DatabaseClient> client =
+        Lazy.of(
+            () -> {
+              DatabaseClient connected = new DatabaseClient();
+              connected.connect("https://our-database.com");
+              return connected;
+            });
+
+    public DatabaseClient getClient() {
+      return client.get();
+    }
+  }
+
+  /**
+   * The original version, kept for comparison: correct, but every caller takes the monitor on
+   * every access, long after initialization is done.
+   */
+  private static final class SynchronizedDatabase {
     private DatabaseClient client;
 
     public synchronized DatabaseClient getClient() {
@@ -51,15 +94,77 @@ public final class LazyInitAndSingleton {
     }
   }
 
+  /**
+   * Pooled variant: connections are still opened lazily, but up to {@code maxConnections} callers
+   * can query at once, each on a client nobody else is touching. Threads tend to get back the
+   * connection they used last, and connections idle for too long are closed again.
+   */
+  private static final class PooledDatabase implements AutoCloseable {
+    private final ConnectionPool<DatabaseClient> pool;
+
+    PooledDatabase(final ConnectionPool.Settings settings, final long queryLatencyMicros) {
+      pool =
+          new ConnectionPool<>(
+              () -> new DatabaseClient(queryLatencyMicros),
+              DatabaseClient::close,
+              settings,
+              report -> System.out.println(report.lines().findFirst().orElse(report)));
+    }
+
+    public String query(final String sql) throws TimeoutException, InterruptedException {
+      try (ConnectionPool.Lease<DatabaseClient> lease = pool.acquire()) {
+        return lease.get().query(sql);
+      }
+    }
+
+    // Connections opened so far; stays below the limit when fewer callers are concurrent.
+    public int openConnections() {
+      return pool.size();
+    }
+
+    @Override
+    public void close() {
+      pool.close();
+    }
+  }
+
   /**
    * Stubbed-out remote client; imagine the real Redis/Jedis client. `connect` stands in for the
-   * expensive network handshake described in the transcript.
+   * expensive network handshake described in the transcript, `query` for a round trip of a
+   * configurable latency. Like most real clients it is not thread-safe, and says so loudly when
+   * two threads use it at once.
    */
   private static final class DatabaseClient {
+    private final long queryLatencyMicros;
+    private final AtomicBoolean busy = new AtomicBoolean();
+
+    DatabaseClient() {
+      this(0);
+    }
+
+    DatabaseClient(final long queryLatencyMicros) {
+      this.queryLatencyMicros = queryLatencyMicros;
+    }
 
     public void connect(final String connectionUrl) {
       System.out.println("Connecting to " + connectionUrl);
     }
+
+    public String query(final String sql) throws InterruptedException {
+      if (!busy.compareAndSet(false, true)) {
+        throw new IllegalStateException("DatabaseClient used by two threads at once");
+      }
+      try {
+        TimeUnit.MICROSECONDS.sleep(queryLatencyMicros);
+        return "result of " + sql;
+      } finally {
+        busy.set(false);
+      }
+    }
+
+    public void close() {
+      // Real clients would send a goodbye and release the socket here.
+    }
   }
 
   //////////////////////////////////
@@ -68,35 +173,264 @@ public final class LazyInitAndSingleton {
    *
    * <ul>
    *   <li>Private constructor prevents direct instantiation (everyone must call getInstance()).
-   *   <li>Synchronized accessor getInstance() guarantees only one instance even under concurrency.
+   *   <li>Holder idiom: the JVM initializes {@code Holder} lazily and exactly once on first access,
+   *       so getInstance() needs no lock and no volatile read.
    *   <li>Shared config lives centrally so services reuse it instead of reloading.
    * </ul>
    */
   private static final class LogManager {
-    private static LogManager instance; // only one per JVM
-    private final Map<String, String> logConfig; // shared state
+    // Shared state: readers get an immutable snapshot through one volatile read, never a lock.
+    private final ConfigStore logConfig;
 
     // private constructor to prevent direct instantiation
     private LogManager() {
-      logConfig = new HashMap<>();
+      logConfig = new ConfigStore();
+      logConfig.addListener(
+          change ->
+              System.out.println(
+                  "Log config changed: " + change.key() + " -> " + change.value()));
+    }
+
+    // Class initialization is lazy and thread-safe by spec: only one per JVM, built on first use.
+    private static final class Holder {
+      private static final LogManager INSTANCE = new LogManager();
     }
 
     // Equivalent of forcing everyone to call RedisCache.getInstance().
-    public static synchronized LogManager getInstance() {
-      if (instance == null) {
-        instance = new LogManager();
-      }
-      return instance;
+    public static LogManager getInstance() {
+      return Holder.INSTANCE;
     }
 
     // Services call setConfig instead of each loading log settings on their own.
-    public synchronized void setConfig(final String key, final String value) {
+    public void setConfig(final String key, final String value) {
       logConfig.put(key, value);
     }
 
+    // Hot-path read (e.g. "is DEBUG on?" on every log call): wait-free.
+    public String getConfig(final String key) {
+      return logConfig.get(key);
+    }
+
     // Just returns the config map so you can see what the singleton holds.
-    public synchronized String describeConfig() {
-      return logConfig.toString();
+    public String describeConfig() {
+      return logConfig.snapshot().toString();
+    }
+  }
+
+  //////////////////////////////////
+  /**
+   * Hammers each accessor from 1 to 64 threads after initialization and prints calls per
+   * microsecond. The synchronized getter serializes every call on one monitor, so its throughput
+   * flattens or drops as threads are added; the lock-free accessors scale with the cores.
+   */
+  private static void contentionBenchmark() throws InterruptedException {
+    SynchronizedDatabase synchronizedDatabase = new SynchronizedDatabase();
+    Database lazyDatabase = new Database();
+    synchronizedDatabase.getClient();
+    lazyDatabase.getClient();
+    // One untimed pass per accessor so the first row is not measuring the JIT.
+    callsPerMicro(1, synchronizedDatabase::getClient);
+    callsPerMicro(1, lazyDatabase::getClient);
+    callsPerMicro(1, LogManager::getInstance);
+
+    System.out.println("threads  synchronized   Lazy<T>   holder   (calls/us)");
+    for (int threads = 1; threads <= 64; threads *= 2) {
+      System.out.printf(
+          Locale.ROOT,
+          "%7d  %12.1f  %8.1f  %7.1f%n",
+          threads,
+          callsPerMicro(threads, synchronizedDatabase::getClient),
+          callsPerMicro(threads, lazyDatabase::getClient),
+          callsPerMicro(threads, LogManager::getInstance));
+    }
+  }
+
+  /**
+   * Same sweep for config reads: the previous design (a HashMap behind synchronized methods)
+   * against the copy-on-write store, with a writer flipping the level in the background.
+   */
+  private static void configReadBenchmark() throws InterruptedException {
+    Map<String, String> lockedConfig = Collections.synchronizedMap(new HashMap<>());
+    lockedConfig.put("level", "INFO");
+    ConfigStore store = new ConfigStore(Runnable::run);
+    store.put("level", "INFO");
+
+    Thread writer =
+        new Thread(
+            () -> {
+              while (!Thread.currentThread().isInterrupted()) {
+                lockedConfig.put("level", "INFO");
+                store.put("level", "INFO");
+                try {
+                  Thread.sleep(1);
+                } catch (InterruptedException interruptedException) {
+                  Thread.currentThread().interrupt();
+                }
+              }
+            });
+    writer.setDaemon(true);
+    writer.start();
+    callsPerMicro(1, () -> lockedConfig.get("level"));
+    callsPerMicro(1, () -> store.get("level"));
+
+    System.out.println("threads  synchronized map   ConfigStore   (reads/us)");
+    for (int threads = 1; threads <= 64; threads *= 2) {
+      System.out.printf(
+          Locale.ROOT,
+          "%7d  %16.1f  %12.1f%n",
+          threads,
+          callsPerMicro(threads, () -> lockedConfig.get("level")),
+          callsPerMicro(threads, () -> store.get("level")));
+    }
+    writer.interrupt();
+    writer.join();
+  }
+
+  /**
+   * Queries a fake database with 2 ms round trips from 16 threads: one shared client (which has to
+   * be serialized, since it is not thread-safe) against pools of 4 and 16 connections. Then shows
+   * the pool's safety nets on a one-connection pool: acquire timeout, leak report, idle eviction.
+   */
+  private static void connectionPoolDemo() throws InterruptedException, TimeoutException {
+    long latencyMicros = 2_000;
+    int threads = 16;
+    int queriesPerThread = 50;
+    DatabaseClient shared = new DatabaseClient(latencyMicros);
+    double sharedRate =
+        queriesPerSecond(
+            threads,
+            queriesPerThread,
+            () -> {
+              synchronized (shared) {
+                return shared.query("SELECT 1");
+              }
+            });
+    System.out.printf(Locale.ROOT, "single shared client: %8.0f queries/s%n", sharedRate);
+    for (int maxConnections : new int[] {4, 16}) {
+      try (PooledDatabase database =
+          new PooledDatabase(ConnectionPool.Settings.of(maxConnections), latencyMicros)) {
+        double pooledRate =
+            queriesPerSecond(threads, queriesPerThread, () -> database.query("SELECT 1"));
+        System.out.printf(
+            Locale.ROOT,
+            "pool of %2d:           %8.0f queries/s (%d connections opened)%n",
+            maxConnections,
+            pooledRate,
+            database.openConnections());
+      }
+    }
+
+    ConnectionPool.Settings strict =
+        new ConnectionPool.Settings(
+            1, Duration.ofMillis(50), Duration.ofMillis(200), Duration.ofMillis(100));
+    ConnectionPool<DatabaseClient> pool =
+        new ConnectionPool<>(
+            DatabaseClient::new,
+            DatabaseClient::close,
+            strict,
+            report -> System.out.println(report.lines().findFirst().orElse(report)));
+    try (ConnectionPool.Lease<DatabaseClient> held = pool.acquire()) {
+      Thread other =
+          new Thread(
+              () -> {
+                try (ConnectionPool.Lease<DatabaseClient> lease = pool.acquire()) {
+                  System.out.println("Unexpectedly got a second connection: " + lease.get());
+                } catch (TimeoutException e) {
+                  System.out.println("Second caller timed out: " + e.getMessage());
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                }
+              });
+      other.start();
+      other.join();
+      // Holding the lease past the 100 ms leak threshold triggers a report.
+      Thread.sleep(250);
+      System.out.println("Still holding " + held.get().getClass().getSimpleName());
+    }
+    System.out.println("Open connections after release: " + pool.size());
+    Thread.sleep(500);
+    System.out.println("Open connections after idle timeout: " + pool.size());
+    pool.close();
+  }
+
+  /** Callable-like query that may block on the pool. */
+  @FunctionalInterface
+  private interface Query {
+    String run() throws TimeoutException, InterruptedException;
+  }
+
+  @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+  private static double queriesPerSecond(
+      final int threads, final int queriesPerThread, final Query query)
+      throws InterruptedException {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      Thread worker =
+          new Thread(
+              () -> {
+                try {
+                  start.await();
+                  for (int i = 0; i < queriesPerThread; i++) {
+                    query.run();
+                  }
+                } catch (InterruptedException interruptedException) {
+                  Thread.currentThread().interrupt();
+                } catch (TimeoutException timeoutException) {
+                  throw new IllegalStateException(timeoutException);
+                }
+              });
+      workers.add(worker);
+      worker.start();
+    }
+    long begin = System.nanoTime();
+    start.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    long elapsed = System.nanoTime() - begin;
+    return threads * (double) queriesPerThread / (elapsed / 1e9);
+  }
+
+  @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+  private static double callsPerMicro(final int threads, final Supplier<?> accessor)
+      throws InterruptedException {
+    int callsPerThread = 4_000_000 / threads;
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> workers = new ArrayList<>();
+    long[] sinks = new long[threads];
+    for (int t = 0; t < threads; t++) {
+      int slot = t;
+      Thread worker =
+          new Thread(
+              () -> {
+                try {
+                  start.await();
+                } catch (InterruptedException interruptedException) {
+                  Thread.currentThread().interrupt();
+                  return;
+                }
+                long found = 0;
+                for (int i = 0; i < callsPerThread; i++) {
+                  if (accessor.get() != null) {
+                    found++;
+                  }
+                }
+                sinks[slot] = found;
+              });
+      workers.add(worker);
+      worker.start();
+    }
+    long begin = System.nanoTime();
+    start.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    long elapsed = System.nanoTime() - begin;
+    long totalCalls = 0;
+    for (long found : sinks) {
+      totalCalls += found;
     }
+    return totalCalls / (elapsed / 1_000.0);
   }
 }
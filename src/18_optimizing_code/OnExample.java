@@ -1,12 +1,35 @@
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import optimizing.collections.ShardedDirectory;
+import optimizing.profiling.BenchmarkRunner;
+import optimizing.text.ContactIndex;
 
 /** Benchmark-friendly demo contrasting O(n) list scans vs. O(1) hash lookups. */
 public class OnExample {
-  /** Populate a list of contacts and perform a simple linear search. */
-  public static void main(String[] args) {
+  // Syllable parts for generated contact names.
+  private static final String[] ONSETS = {
+    "", "b", "br", "c", "ch", "d", "dr", "f", "g", "gr", "h", "j", "k", "kl", "l", "m", "n", "p",
+    "pr", "qu", "r", "s", "sh", "st", "t", "th", "tr", "v", "w", "y", "z"
+  };
+  private static final String[] VOWELS = {"a", "e", "i", "o", "u", "y", "ai", "ea", "ie", "ou"};
+  private static final String[] CODAS = {"", "", "", "n", "r", "l", "s", "m", "th", "ck", "nd"};
+
+  /**
+   * Populate a list of contacts and perform a simple linear search, then compare scans with a
+   * search index.
+   *
+   * @param args optional number of contacts for the index demo (default 1,000,000)
+   */
+  public static void main(String[] args) throws InterruptedException {
     ContactManager manager = new ContactManager();
 
     // Edit numberOfContacts to see how it affects execution time.
@@ -23,6 +46,208 @@ public class OnExample {
         "Linear search result: " + (linear != null ? linear.getName() : "not found"));
     System.out.println(
         "HashMap search result: " + (viaMap != null ? viaMap.getName() : "not found"));
+
+    searchIndexDemo(args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000);
+    ingestionScalingDemo(2_000_000);
+  }
+
+  // Takeaway: one lock around ContactManager turns every extra feed into another thread waiting
+  // for it. A sharded directory locks only the stripe a name hashes to, and bulk loads take each
+  // stripe's lock once per batch, so throughput can grow with writers (given cores to run them).
+  private static void ingestionScalingDemo(final int contactCount) throws InterruptedException {
+    Random random = new Random(7);
+    List<Contact> incoming = new ArrayList<>(contactCount);
+    for (int i = 0; i < contactCount; i++) {
+      incoming.add(new Contact(randomName(random) + " #" + i));
+    }
+    System.out.printf(
+        "%nLoading %,d contacts (million contacts/s; %d CPU cores)%n",
+        contactCount, Runtime.getRuntime().availableProcessors());
+    System.out.printf("%8s %14s %14s %14s%n", "writers", "locked", "sharded put", "sharded bulk");
+    for (int writers = 1; writers <= 32; writers *= 2) {
+      ContactManager locked = new ContactManager();
+      double lockedRate =
+          ingest(
+              incoming,
+              writers,
+              slice -> {
+                for (Contact contact : slice) {
+                  synchronized (locked) {
+                    locked.addContact(contact.getName());
+                  }
+                }
+              });
+      ShardedDirectory<Contact> perItem = new ShardedDirectory<>(64, contactCount);
+      double putRate =
+          ingest(
+              incoming,
+              writers,
+              slice -> {
+                for (Contact contact : slice) {
+                  perItem.put(contact.getName(), contact);
+                }
+              });
+      ShardedDirectory<Contact> bulk = new ShardedDirectory<>(64, contactCount);
+      double bulkRate =
+          ingest(
+              incoming,
+              writers,
+              slice -> {
+                for (int from = 0; from < slice.size(); from += 10_000) {
+                  int to = Math.min(slice.size(), from + 10_000);
+                  bulk.putAll(slice.subList(from, to), Contact::getName);
+                }
+              });
+      if (bulk.size() != contactCount || perItem.get(incoming.get(0).getName()) == null) {
+        throw new IllegalStateException("Sharded directory lost contacts");
+      }
+      System.out.printf("%8d %14.2f %14.2f %14.2f%n", writers, lockedRate, putRate, bulkRate);
+    }
+  }
+
+  // Splits the contacts across `writers` threads, starts them together and returns million/s.
+  @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+  private static double ingest(
+      final List<Contact> incoming, final int writers, final Consumer<List<Contact>> writer)
+      throws InterruptedException {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>(writers);
+    int chunk = (incoming.size() + writers - 1) / writers;
+    for (int w = 0; w < writers; w++) {
+      int from = Math.min(incoming.size(), w * chunk);
+      List<Contact> slice = incoming.subList(from, Math.min(incoming.size(), from + chunk));
+      threads.add(
+          Thread.ofPlatform()
+              .name("feed-" + w)
+              .start(
+                  () -> {
+                    try {
+                      start.await();
+                    } catch (InterruptedException e) {
+                      Thread.currentThread().interrupt();
+                      return;
+                    }
+                    writer.accept(slice);
+                  }));
+    }
+    long begin = System.nanoTime();
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    return incoming.size() / ((System.nanoTime() - begin) / 1e3);
+  }
+
+  // Takeaway: a HashMap only answers exact names. Users type the start of a name, or misspell it;
+  // scanning every contact for that costs O(n) per keystroke. A sorted array answers prefixes with
+  // two binary searches, and a trigram index narrows a typo search to a handful of candidates.
+  @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+  private static void searchIndexDemo(final int contactCount) {
+    Random random = new Random(42);
+    ContactManager manager = new ContactManager();
+    for (int i = 0; i < contactCount; i++) {
+      manager.addContact(randomName(random));
+    }
+    // Slow paths are timed once; the query loops get a warm-up round and five recorded ones.
+    BenchmarkRunner once = new BenchmarkRunner(0, 1, Duration.ZERO);
+    BenchmarkRunner runner = new BenchmarkRunner(1, 5, Duration.ZERO);
+    ContactIndex[] built = new ContactIndex[1];
+    double buildSeconds =
+        once.run("build index", 1, () -> built[0] = manager.buildSearchIndex()).mean() / 1e9;
+    ContactIndex index = built[0];
+    System.out.printf(
+        "%nIndexed %,d contacts in %.1f s: %.1f bytes per contact%n",
+        index.size(), buildSeconds, index.bytesPerContact());
+
+    List<String> names = manager.names();
+    int queryCount = 1_000;
+    String[] prefixes = new String[queryCount];
+    String[] typos = new String[queryCount];
+    for (int q = 0; q < queryCount; q++) {
+      String name = names.get(random.nextInt(names.size()));
+      prefixes[q] = name.substring(0, Math.min(name.length(), 4));
+      typos[q] = withTypo(name, random);
+    }
+
+    double prefixMicros =
+        runner.run("prefix", queryCount, () -> totalHits(prefixes, p -> index.withPrefix(p, 10)))
+                .p50()
+            / 1e3;
+    double fuzzyMicros =
+        runner.run("typo 1", queryCount, () -> totalHits(typos, t -> index.similarTo(t, 1, 10)))
+                .p50()
+            / 1e3;
+    double twoEditMicros =
+        runner.run("typo 2", queryCount, () -> totalHits(typos, t -> index.similarTo(t, 2, 10)))
+                .p50()
+            / 1e3;
+    long prefixHits = totalHits(prefixes, p -> index.withPrefix(p, 10));
+    long fuzzyHits = totalHits(typos, t -> index.similarTo(t, 1, 10));
+    long twoEditHits = totalHits(typos, t -> index.similarTo(t, 2, 10));
+
+    // The scan baseline is slow enough that a few queries make the point.
+    int scanQueries = 5;
+    String[] scanTypos = Arrays.copyOf(typos, scanQueries);
+    long[] scanHits = new long[1];
+    double scanMicros =
+        once.run(
+                    "linear scan",
+                    scanQueries,
+                    () -> scanHits[0] = totalHits(scanTypos, t -> manager.findSimilarLinear(t, 1)))
+                .mean()
+            / 1e3;
+
+    System.out.printf(
+        "Prefix search:    %8.1f us/query (%,d results)%n", prefixMicros, prefixHits);
+    System.out.printf(
+        "Typo search (1):  %8.1f us/query (%,d results)%n", fuzzyMicros, fuzzyHits);
+    System.out.printf(
+        "Typo search (2):  %8.1f us/query (%,d results)%n", twoEditMicros, twoEditHits);
+    System.out.printf(
+        "Linear typo scan: %8.1f us/query (%,d results over %d queries)%n",
+        scanMicros, scanHits[0], scanQueries);
+    System.out.println("Did you mean, for '" + typos[0] + "': " + index.similarTo(typos[0], 2, 3));
+  }
+
+  private static long totalHits(
+      final String[] queries, final Function<String, List<?>> search) {
+    long hits = 0;
+    for (String query : queries) {
+      hits += search.apply(query).size();
+    }
+    return hits;
+  }
+
+  // Pronounceable "First Last" names with enough spelling variety to behave like real ones.
+  private static String randomName(final Random random) {
+    StringBuilder name = new StringBuilder(24);
+    appendWord(name, random, 2 + random.nextInt(2));
+    name.append(' ');
+    appendWord(name, random, 2 + random.nextInt(2));
+    return name.toString();
+  }
+
+  private static void appendWord(final StringBuilder out, final Random random, final int parts) {
+    int start = out.length();
+    for (int i = 0; i < parts; i++) {
+      out.append(ONSETS[random.nextInt(ONSETS.length)])
+          .append(VOWELS[random.nextInt(VOWELS.length)])
+          .append(CODAS[random.nextInt(CODAS.length)]);
+    }
+    out.setCharAt(start, Character.toUpperCase(out.charAt(start)));
+  }
+
+  // One random substitution, deletion or insertion.
+  private static String withTypo(final String name, final Random random) {
+    StringBuilder typo = new StringBuilder(name);
+    int at = random.nextInt(name.length());
+    char letter = (char) ('a' + random.nextInt(26));
+    switch (random.nextInt(3)) {
+      case 0 -> typo.setCharAt(at, letter);
+      case 1 -> typo.deleteCharAt(at);
+      default -> typo.insert(at, letter);
+    }
+    return typo.toString();
   }
 
   /**
@@ -59,6 +284,31 @@ public class OnExample {
       return match;
     }
 
+    // O(n) typo search: an edit distance against every contact.
+    private List<String> findSimilarLinear(final String query, final int maxDistance) {
+      String folded = query.toLowerCase(Locale.ROOT);
+      List<String> matches = new ArrayList<>();
+      for (Contact contact : contacts) {
+        if (editDistance(contact.getName().toLowerCase(Locale.ROOT), folded) <= maxDistance) {
+          matches.add(contact.getName());
+        }
+      }
+      return matches;
+    }
+
+    private List<String> names() {
+      List<String> names = new ArrayList<>(contacts.size());
+      for (Contact contact : contacts) {
+        names.add(contact.getName());
+      }
+      return names;
+    }
+
+    // Sorted-array prefix search plus trigram typo search, built from the current contacts.
+    private ContactIndex buildSearchIndex() {
+      return ContactIndex.build(names());
+    }
+
     // HashMap lookup avoids the linear walk for subsequent queries.
     private Contact findContactMap(final String name) {
       // Average-case O(1): direct hash bucket lookup by key.
@@ -66,6 +316,26 @@ public class OnExample {
     }
   }
 
+  // Classic two-row Levenshtein distance.
+  private static int editDistance(final String left, final String right) {
+    int[] previous = new int[right.length() + 1];
+    int[] current = new int[right.length() + 1];
+    for (int j = 0; j <= right.length(); j++) {
+      previous[j] = j;
+    }
+    for (int i = 1; i <= left.length(); i++) {
+      current[0] = i;
+      for (int j = 1; j <= right.length(); j++) {
+        int substitution = previous[j - 1] + (left.charAt(i - 1) == right.charAt(j - 1) ? 0 : 1);
+        current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+      }
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return previous[right.length()];
+  }
+
   /** Simple immutable contact record used by the demo. */
   private static final class Contact {
     private final String name;
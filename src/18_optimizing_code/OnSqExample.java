@@ -1,6 +1,13 @@
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import optimizing.profiling.BenchmarkResult;
+import optimizing.profiling.BenchmarkRunner;
+import optimizing.sort.RunAwareSort;
+import optimizing.sort.Sortedness;
 
 /**
  * Quadratic-time sort check demo.
@@ -9,12 +16,19 @@ import java.util.List;
  *   <li>Nested loops mean O(n^2) comparisons; list size doubles → work quadruples.
  *   <li>Great for visualizing why you replace double loops with smarter algorithms.
  *   <li>Switch to a single-pass scan when you only need to verify non-decreasing order.
+ *   <li>On large primitive arrays, {@link Sortedness} splits that scan across cores and {@link
+ *       RunAwareSort} exploits runs that are already in order.
  * </ul>
  */
 public final class OnSqExample {
   private OnSqExample() {}
 
-  /** Populate a list and run the quadratic vs linear sortedness checks. */
+  /**
+   * Populate a list and run the quadratic vs linear sortedness checks, then compare sorts on large
+   * inputs.
+   *
+   * @param args optional element count for the sort comparison (default 2,000,000)
+   */
   public static void main(String[] args) {
     int arraySize = 1000;
 
@@ -36,24 +50,129 @@ public final class OnSqExample {
     List<Integer> sortedNumbers = new ArrayList<>(unsortedNumbers);
     Collections.sort(sortedNumbers);
     System.out.println("Sorted array, linear check: " + SortChecker.isSortedLinear(sortedNumbers));
+
+    sortEngineDemo(args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000);
+  }
+
+  /**
+   * Times {@code Collections.sort} on boxed lists against {@link RunAwareSort} on {@code int[]},
+   * for inputs of different shapes, then the boxed linear check against {@link Sortedness}.
+   */
+  private static void sortEngineDemo(final int size) {
+    System.out.printf(
+        "%nSorting %,d elements (median of 5, ms; %d CPU cores)%n",
+        size, Runtime.getRuntime().availableProcessors());
+    System.out.printf(
+        "%-14s %16s %12s %12s  %s%n",
+        "input", "Collections.sort", "Arrays.sort", "run-aware", "strategy");
+    // Sorting is in place, so every call gets a fresh copy, made outside the timed region.
+    BenchmarkRunner runner = new BenchmarkRunner(2, 5, Duration.ZERO);
+    for (String shape : new String[] {"swapped tail", "sorted", "descending", "8 runs", "random"}) {
+      int[] input = shaped(shape, size);
+      List<Integer> boxed = new ArrayList<>(size);
+      for (int value : input) {
+        boxed.add(value);
+      }
+      int[] expected = input.clone();
+      Arrays.sort(expected);
+      int[] check = input.clone();
+      RunAwareSort.Strategy strategy = RunAwareSort.sort(check);
+      if (!Arrays.equals(check, expected)) {
+        throw new IllegalStateException("run-aware sort disagrees on " + shape);
+      }
+
+      BenchmarkResult boxedSort =
+          runner.run(
+              "Collections.sort",
+              1,
+              () -> new ArrayList<>(boxed),
+              list -> {
+                Collections.sort(list);
+                return list;
+              });
+      BenchmarkResult arraysSort =
+          runner.run(
+              "Arrays.sort",
+              1,
+              input::clone,
+              copy -> {
+                Arrays.sort(copy);
+                return copy;
+              });
+      BenchmarkResult adaptiveSort = runner.run("run-aware", 1, input::clone, RunAwareSort::sort);
+      System.out.printf(
+          "%-14s %16.2f %12.2f %12.2f  %s%n",
+          shape, boxedSort.p50() / 1e6, arraysSort.p50() / 1e6, adaptiveSort.p50() / 1e6, strategy);
+    }
+
+    // A sorted input is the worst case for both checks: neither can stop early.
+    int[] sorted = shaped("sorted", size);
+    List<Integer> boxed = new ArrayList<>(size);
+    for (int value : sorted) {
+      boxed.add(value);
+    }
+    if (!SortChecker.isSortedLinear(boxed) || !Sortedness.isSorted(sorted)) {
+      throw new IllegalStateException("sorted input reported as unsorted");
+    }
+    BenchmarkResult boxedCheck =
+        runner.run("List<Integer> check", size, () -> SortChecker.isSortedLinear(boxed));
+    BenchmarkResult chunkedCheck =
+        runner.run("int[] chunked check", size, () -> Sortedness.isSorted(sorted));
+    System.out.printf(
+        "Sortedness check on sorted input: List<Integer> %.2f ms, int[] chunked %.2f ms%n",
+        boxedCheck.p50() * size / 1e6, chunkedCheck.p50() * size / 1e6);
+  }
+
+  /** Builds {@code size} values in the named shape, from a fixed seed. */
+  private static int[] shaped(final String shape, final int size) {
+    Random random = new Random(42);
+    int[] values = new int[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = i;
+    }
+    switch (shape) {
+      case "swapped tail" -> {
+        values[size - 1] = size - 2;
+        values[size - 2] = size - 1;
+      }
+      case "descending" -> {
+        for (int i = 0; i < size; i++) {
+          values[i] = size - i;
+        }
+      }
+      case "8 runs" -> {
+        // Eight sorted stretches of interleaved values, like appending separately sorted batches.
+        for (int i = 0; i < size; i++) {
+          values[i] = (i % (size / 8 + 1)) * 8 + i / (size / 8 + 1);
+        }
+      }
+      case "random" -> {
+        for (int i = 0; i < size; i++) {
+          values[i] = random.nextInt();
+        }
+      }
+      default -> {
+        // "sorted": leave 0..size-1 as is.
+      }
+    }
+    return values;
   }
 
   /** Utility for quadratic vs linear sorted-ness checks. */
   private static final class SortChecker {
 
-    // O(n^2) double loop: compares every pair.
+    // O(n^2) double loop: compares every element with every later one. (Comparing with earlier
+    // ones too would report any list with two distinct values as unsorted.)
     private static boolean isSortedQuadratic(final List<Integer> numbers) {
       boolean sorted = true;
-      for (Integer left : numbers) {
-        for (Integer right : numbers) {
-          if (left > right) {
+      for (int i = 0; i < numbers.size() && sorted; i++) {
+        int left = numbers.get(i);
+        for (int j = i + 1; j < numbers.size(); j++) {
+          if (left > numbers.get(j)) {
             sorted = false;
             break;
           }
         }
-        if (!sorted) {
-          break;
-        }
       }
       return sorted;
     }
@@ -1,77 +1,86 @@
+import optimizing.profiling.BenchmarkRunner;
+import optimizing.profiling.Blackhole;
+import optimizing.profiling.MicroBenchmark;
+
 /**
  * Simple benchmarking helper showing why StringBuilder beats string concatenation in loops and how
  * identical O(n) searches can feel wildly different once constant factors creep in.
+ *
+ * <p>Each {@link MicroBenchmark} method below is found and timed by {@link BenchmarkRunner}, which
+ * warms it up, repeats it over several rounds and reports percentiles with a confidence interval,
+ * instead of trusting a single pair of {@code nanoTime} reads.
  */
 public class PerfDemo {
+  private static final int[] ARRAY = new int[10_000];
+  // Target value to search for, three quarters of the way in.
+  private static final int TARGET = 7_500;
+
+  static {
+    for (int i = 0; i < ARRAY.length; i++) {
+      // Populate predictable values so we know the target exists.
+      ARRAY[i] = i;
+    }
+  }
+
   /**
-   * Runs the concatenation benchmark and prints the elapsed time.
+   * Runs the concatenation and search benchmarks and prints the results.
    *
    * @param args ignored command-line arguments
    */
   public static void main(String[] args) {
-    runConcatenationBenchmark();
-    runLinearSearchBenchmark();
+    if (!linearSearch(ARRAY, TARGET) || !linearSearchWithDelay(ARRAY, TARGET)) {
+      throw new IllegalStateException("Target value was not located by one of the searches.");
+    }
+
+    BenchmarkRunner runner = new BenchmarkRunner();
+    runner.runAll(PerfDemo.class);
+    runner.print(System.out);
+
+    double concatRatio = runner.result("String +=").mean() / runner.result("StringBuilder").mean();
+    double searchRatio =
+        runner.result("linear search, delayed").mean() / runner.result("linear search").mean();
+    System.out.printf(
+        "String += is %.0fx slower than StringBuilder for 10k appends.%n", concatRatio);
+    System.out.printf(
+        "Delay-injected linear search is %.0fx slower despite both being O(n).%n", searchRatio);
   }
 
   // Layman takeaway: StringBuilder is like pushing onto an array;
-  // concatenating strings is like/ cloning the array every push.
+  // concatenating strings is like cloning the array every push.
   // Both read simple, but only one scales.
-  private static void runConcatenationBenchmark() {
-    // nanoTime is 1/1,000,000,000 of a second
-    long startTime = System.nanoTime();
-
+  @MicroBenchmark("StringBuilder")
+  private static String appendWithBuilder() {
     StringBuilder result = new StringBuilder();
     for (int i = 0; i < 10_000; i++) {
       // Single builder avoids creating intermediate strings, keeping the O(n) build efficient.
       result.append(i);
     }
-
-    // Get the end time
-    long endTime = System.nanoTime();
-
-    // Calculate the duration
-    long durationInNanos = endTime - startTime;
-    double durationInMillis = durationInNanos / 1_000_000.0;
-
-    System.out.println("String concatenation took: " + durationInMillis + " ms");
-    System.out.println("Final string length: " + result.length());
+    return result.toString();
   }
 
-  // Layman takeaway: both loops scan every number, but slipping in a 1 µs sleep per element blows
-  // up the total time. Same O(n), wildly different constants.
-  private static void runLinearSearchBenchmark() {
-    int[] array = new int[10_000];
-    for (int i = 0; i < array.length; i++) {
-      // Populate predictable values so we know the target exists.
-      array[i] = i;
+  // Every += copies everything built so far: O(n^2) characters copied in total.
+  @MicroBenchmark(value = "String +=", warmups = 2, rounds = 5)
+  @SuppressWarnings("PMD.UseStringBufferForStringAppends")
+  private static String appendWithPlus() {
+    String result = "";
+    for (int i = 0; i < 10_000; i++) {
+      result += i;
     }
+    return result;
+  }
 
-    int target = array[7_500]; // Target value to search for
-
-    long startRegular = System.nanoTime();
+  // Layman takeaway: both loops scan the same numbers, but slipping in a little fixed work per
+  // element blows up the total time. Same O(n), wildly different constants.
+  @MicroBenchmark("linear search")
+  private static void searchPlain(final Blackhole blackhole) {
     // New method: plain linear search, O(n) comparisons with minimal constant factor.
-    boolean foundRegular = linearSearch(array, target);
-    long endRegular = System.nanoTime();
-
-    long startDelay = System.nanoTime();
-    // Old method: injects a tiny delay per comparison to mimic blocking I/O.
-    boolean foundDelay = linearSearchWithDelay(array, target);
-    long endDelay = System.nanoTime();
-
-    if (!foundRegular || !foundDelay) {
-      throw new IllegalStateException("Target value was not located by one of the searches.");
-    }
-
-    long regularDuration = endRegular - startRegular;
-    long delayDuration = endDelay - startDelay;
-
-    double ratio =
-        regularDuration == 0 ? Double.POSITIVE_INFINITY : (double) delayDuration / regularDuration;
+    blackhole.consume(linearSearch(ARRAY, TARGET));
+  }
 
-    System.out.printf("Regular linear search: %.3f ms%n", regularDuration / 1_000_000.0);
-    System.out.printf("Delayed linear search: %.3f ms%n", delayDuration / 1_000_000.0);
-    System.out.printf(
-        "Delay-injected linear search is %.2fx slower despite both being O(n).%n", ratio);
+  @MicroBenchmark(value = "linear search, delayed", warmups = 2, rounds = 5)
+  private static void searchWithDelay(final Blackhole blackhole) {
+    // Old method: injects fixed extra work per comparison, e.g. a parse or a lookup.
+    blackhole.consume(linearSearchWithDelay(ARRAY, TARGET));
   }
 
   private static boolean linearSearch(final int[] data, final int target) {
@@ -88,12 +97,9 @@ public class PerfDemo {
   private static boolean linearSearchWithDelay(final int[] data, final int target) {
     boolean found = false;
     for (int value : data) {
-      try {
-        Thread.sleep(0, 1000); // Fixed 1 μs delay per comparison = larger constant factor.
-      } catch (InterruptedException interruptedException) {
-        Thread.currentThread().interrupt();
-        throw new IllegalStateException("Search interrupted", interruptedException);
-      }
+      // About 1 µs of CPU per comparison = larger constant factor. Thread.sleep(0, 1000) used to
+      // play this part, but it sleeps for the OS timer slack instead, often 50 µs or more.
+      Blackhole.consumeCpu(500);
       if (value == target) {
         found = true;
         break;
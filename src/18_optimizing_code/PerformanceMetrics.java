@@ -1,45 +1,54 @@
+import integration.forex.EuropeanCentralBankServer;
+import integration.forex.ExchangeApp;
+import integration.store.MessageProcessor;
+import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import optimizing.profiling.FlightRecording;
+import optimizing.profiling.ProfileReport;
 
 /**
  * Plain-English demos for “how much heap is this using?” and “how much CPU did that loop burn?”.
  */
 public class PerformanceMetrics {
 
-  public static void main(String[] args) {
+  public static void main(String[] args) throws IOException, InterruptedException {
     memoryUsageDemo();
     cpuTimeDemo();
+    flightRecorderDemo();
   }
 
-  // Takeaway: before/after snapshots show how much heap a new structure really costs.
+  // Takeaway: count the bytes the code allocates instead of diffing heap usage. `total - free`
+  // drops whenever the GC runs, so before/after snapshots can even come out negative; the thread's
+  // allocation counter cannot. The same report shows CPU time and any collections the work caused.
   private static void memoryUsageDemo() {
-    double memoryBefore = getUsedMemoryMegabytes();
-    System.out.println("Memory before array creation: " + memoryBefore + " MB");
-
     int size = 10_000_000;
-    double[] largeArray = new double[size];
-    for (int i = 0; i < size; i++) {
-      largeArray[i] = Math.sqrt(i);
-    }
+    ProfileReport report = new ProfileReport("Memory usage per element");
+    report.measure("double[] of square roots", size, () -> squareRoots(size));
+    // Boxing costs a 16-byte Double plus a reference per element, and the list regrows as it fills.
+    report.measure("ArrayList<Double> of square roots", size, () -> boxedSquareRoots(size));
+    report.print(System.out);
+  }
 
-    // Get the currently used memory in megabytes
-    double memoryAfter = getUsedMemoryMegabytes();
-    System.out.println("Memory after array creation: " + memoryAfter + " MB");
-    System.out.println("Memory used by array creation: " + (memoryAfter - memoryBefore) + " MB");
-    // Prevent SpotBugs from treating the populated array as unused.
-    if (largeArray[size - 1] == -1) {
-      System.out.println("Unreachable branch just to use largeArray: " + largeArray[0]);
+  private static double[] squareRoots(final int size) {
+    double[] roots = new double[size];
+    for (int i = 0; i < size; i++) {
+      roots[i] = Math.sqrt(i);
     }
+    return roots;
   }
 
-  // Layman tip: `total - free` tells you how much heap is in use; divide by MB to keep numbers
-  // sane.
-  private static double getUsedMemoryMegabytes() {
-    // Runtime.getRuntime() to retrieve the JVM runtime instance
-    Runtime runtime = Runtime.getRuntime();
-    // runtime.totalMemory() - runtime.freeMemory() to calculate the current used memory
-    long usedMemoryBytes = runtime.totalMemory() - runtime.freeMemory();
-    return usedMemoryBytes / (1024.0 * 1024.0);
+  private static List<Double> boxedSquareRoots(final int size) {
+    List<Double> roots = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      roots.add(Math.sqrt(i));
+    }
+    return roots;
   }
 
   // Takeaway: wall clock lies when other threads interfere; CPU time focuses on this thread’s work.
@@ -71,6 +80,73 @@ public class PerformanceMetrics {
         "Nested multiplication makes the square sum %.2fx more CPU intensive.%n", ratio);
   }
 
+  // Takeaway: instead of timing one thread by hand, leave a Flight Recorder session running and ask
+  // it what was hot. It samples every thread, sees allocations and lock waits, and records our own
+  // cache, routing and conversion events, for about 2% overhead.
+  private static void flightRecorderDemo() throws IOException, InterruptedException {
+    try (FlightRecording recording = FlightRecording.start(Duration.ofMinutes(10))) {
+      CacheExample cache = new CacheExample(1_000);
+      LongAdder stored = new LongAdder();
+      MessageProcessor processor =
+          new MessageProcessor(message -> stored.increment(), message -> stored.increment());
+      ExchangeApp exchange = new ExchangeApp(new EuropeanCentralBankServer());
+      String[] currencies = {"USD", "GBP", "TRY", "CHF"};
+      String[] messages = {"[INFO] started", "[ERROR] disk full", "[WARN] slow reply"};
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      double converted = 0;
+      for (int i = 0; i < 20_000; i++) {
+        String key = "key-" + random.nextInt(2_000);
+        if (cache.get(key) == null) {
+          // Every miss past capacity triggers the cache's O(n) least-recently-used scan.
+          cache.put(key, key);
+        }
+        processor.process(messages[i % messages.length]);
+        converted += exchange.convertEuroTo(i, currencies[i % currencies.length]);
+      }
+      // Boxing millions of doubles gives the allocation sampler a real hot spot to find.
+      int boxed = boxedSquareRoots(5_000_000).size();
+      long squares = calculateSquareSum(200_000_000L);
+      contendedCounter(4, 50);
+      System.out.printf(
+          "Workload done (%d messages stored, %.0f converted, %d roots boxed, checksum %d)%n",
+          stored.sum(), converted, boxed, squares);
+      System.out.print(recording.report(5));
+    }
+  }
+
+  // Threads take turns holding one monitor for 2 ms, so the others queue up behind it.
+  @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+  private static void contendedCounter(final int threads, final int incrementsPerThread)
+      throws InterruptedException {
+    Object lock = new Object();
+    long[] counter = new long[1];
+    List<Thread> workers = new ArrayList<>(threads);
+    for (int t = 0; t < threads; t++) {
+      workers.add(
+          Thread.ofPlatform()
+              .name("contended-" + t)
+              .start(
+                  () -> {
+                    for (int i = 0; i < incrementsPerThread; i++) {
+                      synchronized (lock) {
+                        counter[0]++;
+                        busyWaitNanos(2_000_000);
+                      }
+                    }
+                  }));
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+  }
+
+  private static void busyWaitNanos(final long nanos) {
+    long end = System.nanoTime() + nanos;
+    while (System.nanoTime() < end) {
+      Thread.onSpinWait();
+    }
+  }
+
   /** Returns the CPU time (in nanoseconds) consumed by the current thread so far. */
   public static long getCpuTimeNano() {
     // ManagementFactory.getThreadMXBean() to Retrieve the ThreadMXBean instance
@@ -1,11 +1,27 @@
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import optimizing.concurrent.BoundedPipeline;
+import optimizing.concurrent.BoundedPipeline.Backpressure;
+import optimizing.concurrent.Deadline;
+import optimizing.concurrent.FanOutScope;
+import optimizing.concurrent.HedgedExecutor;
 
 /**
  * Shows two common thread-handling patterns you actually use in production: a fixed thread pool for
@@ -28,11 +44,17 @@ public class ThreadExecutorExample {
 
   public static void main(String[] args) throws InterruptedException {
     runFixedThreadPoolExample();
+    runDocumentPipelineExample();
     runCompletableFutureExample();
+    runVirtualThreadFanOutExample();
+    fanOutBenchmark();
+    runHedgedRequestsExample();
   }
 
   // Takeaway: use ExecutorService for batches of independent tasks; it reuses a bounded set of
   // threads so you don’t oversubscribe the CPU.
+  // Caveat: newFixedThreadPool's queue is unbounded and every doc is submitted up front, and the
+  // results are read in submission order. Fine for five docs; see the pipeline below for millions.
   private static void runFixedThreadPoolExample() throws InterruptedException {
     List<String> documents = List.of("Doc1", "Doc2", "Doc3", "Doc4", "Doc5");
     List<Future<String>> futures = new ArrayList<>();
@@ -58,6 +80,83 @@ public class ThreadExecutorExample {
     }
   }
 
+  /**
+   * Streaming version for document counts that do not fit in memory: documents are generated
+   * lazily, each stage gets a pool sized for its work, and bounded queues push back on the source
+   * so only a few dozen documents are ever in flight. Results print as they complete, so a slow
+   * document never holds up the rest. Runs once with each backpressure policy.
+   */
+  private static void runDocumentPipelineExample() throws InterruptedException {
+    int documentCount = 2_000;
+    for (Backpressure policy : Backpressure.values()) {
+      BoundedPipeline<String, String> pipeline =
+          BoundedPipeline.<String>withQueueCapacity(16, policy)
+              .thenStage("parse", 2, ThreadExecutorExample::parseDocument)
+              .thenStage("enrich", 8, ThreadExecutorExample::enrichDocument)
+              .thenStage("index", 1, ThreadExecutorExample::indexDocument);
+      AtomicInteger failures = new AtomicInteger();
+      List<String> firstCompleted = new ArrayList<>();
+      long start = System.nanoTime();
+      long processed =
+          pipeline.run(
+              documentIds(documentCount),
+              result -> {
+                if (!result.succeeded()) {
+                  failures.incrementAndGet();
+                } else if (firstCompleted.size() < 5) {
+                  firstCompleted.add(result.input());
+                }
+              });
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.out.printf(
+          Locale.ROOT,
+          "Pipeline (%s): %d docs in %.2f s (%.0f docs/s), %d failed, first done: %s%n",
+          policy,
+          processed,
+          seconds,
+          processed / seconds,
+          failures.get(),
+          firstCompleted);
+    }
+  }
+
+  // Lazily produces "Doc1".."DocN"; nothing is materialized up front.
+  private static Iterator<String> documentIds(final int count) {
+    return new Iterator<>() {
+      private int next = 1;
+
+      @Override
+      public boolean hasNext() {
+        return next <= count;
+      }
+
+      @Override
+      public String next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return "Doc" + next++;
+      }
+    };
+  }
+
+  // CPU-bound stage: tokenize the (synthetic) document body.
+  private static String[] parseDocument(final String docId) {
+    return (docId + " body text about threads pools queues and backpressure").split(" ");
+  }
+
+  // I/O-bound stage: look up metadata in another service, with a latency tail.
+  private static String enrichDocument(final String[] tokens) throws InterruptedException {
+    int latencyMillis = ThreadLocalRandom.current().nextInt(100) == 0 ? 40 : 4;
+    Thread.sleep(latencyMillis);
+    return tokens[0] + " (" + tokens.length + " tokens)";
+  }
+
+  // Single-writer stage, as an index that only one thread may update.
+  private static String indexDocument(final String enriched) {
+    return enriched + " indexed";
+  }
+
   private static String processDocument(final String docId) throws InterruptedException {
     System.out.println("Processing " + docId + " on thread " + Thread.currentThread().getName());
     Thread.sleep((long) (Math.random() * 1000));
@@ -80,13 +179,222 @@ public class ThreadExecutorExample {
     System.out.println(summary.describe());
   }
 
+  /**
+   * Fan-out mode: fetch thousands of summaries at once, one virtual thread per user. A blocked
+   * virtual thread parks and frees its carrier, so thousands of concurrent sleeps cost almost
+   * nothing, where the common pool would run only (cores - 1) at a time. Also shows the scope's
+   * safety nets: one hanging call trips its per-call timeout, one broken call fails the scope, and
+   * in both cases every sibling is cancelled at once instead of running to completion.
+   */
+  private static void runVirtualThreadFanOutExample() throws InterruptedException {
+    List<String> userIds = userIds(5_000);
+    long start = System.nanoTime();
+    try (FanOutScope<UserSummary> scope = new FanOutScope<>()) {
+      for (String userId : userIds) {
+        scope.fork(() -> createSummary(fetchUserData(userId, 300), 200), Duration.ofSeconds(2));
+      }
+      scope.join();
+      List<UserSummary> summaries = scope.results();
+      System.out.printf(
+          Locale.ROOT,
+          "Fan-out: %d summaries in %d ms, e.g. %s%n",
+          summaries.size(),
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+          summaries.get(0).describe());
+    } catch (ExecutionException executionException) {
+      System.out.println("Fan-out failed: " + executionException.getCause());
+    }
+
+    for (String culprit : List.of("user-hangs", "user-broken")) {
+      List<String> withCulprit = new ArrayList<>(userIds.subList(0, 1_000));
+      withCulprit.add(culprit);
+      long failStart = System.nanoTime();
+      List<Future<UserSummary>> calls = new ArrayList<>();
+      try (FanOutScope<UserSummary> scope = new FanOutScope<>()) {
+        for (String userId : withCulprit) {
+          // Normal calls get the usual 2 s budget; only the culprit's is tight, so its timeout,
+          // not an ordinary sibling's, is what fails the scope.
+          Duration timeout =
+              userId.equals(culprit) ? Duration.ofMillis(100) : Duration.ofSeconds(2);
+          calls.add(scope.fork(() -> createSummary(fetchUserData(userId, 300), 200), timeout));
+        }
+        scope.join();
+        scope.throwIfFailed();
+      } catch (ExecutionException executionException) {
+        long cancelled = calls.stream().filter(Future::isCancelled).count();
+        System.out.printf(
+            Locale.ROOT,
+            "Fan-out with %s failed after %d ms (%s), %d siblings cancelled%n",
+            culprit,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - failStart),
+            executionException.getCause().getMessage(),
+            cancelled);
+      }
+    }
+  }
+
+  /**
+   * Throughput against concurrency: the same fetch-then-summarize flow (20 ms + 10 ms of blocking
+   * latency per user) on the common pool versus one virtual thread per user. Common-pool rows that
+   * would take longer than 10 seconds are skipped.
+   */
+  private static void fanOutBenchmark() throws InterruptedException {
+    int parallelism = ForkJoinPool.commonPool().getParallelism();
+    // Wrapped on purpose: on a machine with parallelism 1, CompletableFuture quietly swaps the
+    // common pool for a thread per task, which would hide the starvation this row measures.
+    Executor commonPoolExecutor = task -> ForkJoinPool.commonPool().execute(task);
+    System.out.printf(Locale.ROOT, "Common pool parallelism: %d%n", parallelism);
+    System.out.println("   users  common pool  virtual threads   (summaries/s)");
+    for (int users = 10; users <= 10_000; users *= 10) {
+      List<String> userIds = userIds(users);
+      String commonPool = "skipped";
+      if (users * 30L / parallelism <= 10_000) {
+        long start = System.nanoTime();
+        List<CompletableFuture<UserSummary>> futures = new ArrayList<>();
+        for (String userId : userIds) {
+          futures.add(
+              CompletableFuture.supplyAsync(() -> fetchUserData(userId, 20), commonPoolExecutor)
+                  .thenApply(userData -> createSummary(userData, 10)));
+        }
+        futures.forEach(CompletableFuture::join);
+        double rate = users / ((System.nanoTime() - start) / 1e9);
+        commonPool = String.format(Locale.ROOT, "%.0f", rate);
+      }
+      long start = System.nanoTime();
+      try (FanOutScope<UserSummary> scope = new FanOutScope<>()) {
+        for (String userId : userIds) {
+          scope.fork(() -> createSummary(fetchUserData(userId, 20), 10));
+        }
+        scope.join();
+        scope.throwIfFailed();
+      } catch (ExecutionException executionException) {
+        throw new IllegalStateException(executionException.getCause());
+      }
+      double virtual = users / ((System.nanoTime() - start) / 1e9);
+      System.out.printf(Locale.ROOT, "%8d  %11s  %15.0f%n", users, commonPool, virtual);
+    }
+  }
+
+  /**
+   * Tail latency with and without hedging against a stub whose latency has a long tail (94% about
+   * 10 ms, 4% 30 ms, 2% 200 ms, like a service with the occasional GC pause). Hedging at the
+   * observed p95 duplicates only the slowest calls and pulls p99 down to roughly p95 plus a normal
+   * call. Then shows a deadline flowing through a {@code thenApply} chain.
+   */
+  private static void runHedgedRequestsExample() throws InterruptedException {
+    try (ExecutorService plainCalls = Executors.newVirtualThreadPerTaskExecutor();
+        HedgedExecutor hedged = new HedgedExecutor(Duration.ofMillis(50))) {
+      long[] plain =
+          measureLatencies(
+              userId ->
+                  CompletableFuture.supplyAsync(
+                      () -> fetchUserData(userId, tailLatencyMillis()), plainCalls));
+      long[] hedgedLatencies =
+          measureLatencies(
+              userId ->
+                  hedged.submit(
+                      () -> fetchUserData(userId, tailLatencyMillis()),
+                      Deadline.after(Duration.ofSeconds(1))));
+      System.out.println("            p50     p95     p99     max   (ms)");
+      printPercentiles("plain  ", plain);
+      printPercentiles("hedged ", hedgedLatencies);
+      System.out.printf(
+          Locale.ROOT,
+          "Hedged %d of %d calls (%.1f%%), hedge delay now %d ms%n",
+          hedged.hedgeCount(),
+          hedged.callCount(),
+          100.0 * hedged.hedgeCount() / hedged.callCount(),
+          hedged.currentHedgeDelay().toMillis());
+
+      // One budget for the whole chain: the guard skips steps once it has passed, and bound()
+      // fails the chain at the deadline even while a step is still running.
+      for (int budgetMillis : new int[] {100, 15}) {
+        Deadline deadline = Deadline.after(Duration.ofMillis(budgetMillis));
+        CompletableFuture<UserSummary> summary =
+            deadline.bound(
+                hedged
+                    .submit(() -> fetchUserData("user42", 20), deadline)
+                    .thenApply(deadline.guard(userData -> createSummary(userData, 10))));
+        try {
+          System.out.println(
+              "Budget " + budgetMillis + " ms: " + summary.join().describe());
+        } catch (CompletionException completionException) {
+          System.out.println(
+              "Budget " + budgetMillis + " ms: failed with " + completionException.getCause());
+        }
+      }
+    }
+  }
+
+  // 94% fast, 4% slow, 2% very slow.
+  private static int tailLatencyMillis() {
+    int roll = ThreadLocalRandom.current().nextInt(100);
+    if (roll < 2) {
+      return 200;
+    }
+    return roll < 6 ? 30 : 8 + ThreadLocalRandom.current().nextInt(5);
+  }
+
+  // 2,000 calls in waves of 100; returns each call's latency in nanoseconds, sorted.
+  @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+  private static long[] measureLatencies(
+      final Function<String, CompletableFuture<UserData>> call) {
+    int waves = 20;
+    int perWave = 100;
+    long[] latencies = new long[waves * perWave];
+    for (int wave = 0; wave < waves; wave++) {
+      List<CompletableFuture<UserData>> inFlight = new ArrayList<>(perWave);
+      for (int i = 0; i < perWave; i++) {
+        int slot = wave * perWave + i;
+        long start = System.nanoTime();
+        inFlight.add(
+            call.apply("user" + slot)
+                .whenComplete((data, error) -> latencies[slot] = System.nanoTime() - start));
+      }
+      inFlight.forEach(CompletableFuture::join);
+    }
+    Arrays.sort(latencies);
+    return latencies;
+  }
+
+  private static void printPercentiles(final String label, final long[] sorted) {
+    System.out.printf(
+        Locale.ROOT,
+        "%s %7.1f %7.1f %7.1f %7.1f%n",
+        label,
+        sorted[sorted.length / 2] / 1e6,
+        sorted[(int) (sorted.length * 0.95)] / 1e6,
+        sorted[(int) (sorted.length * 0.99)] / 1e6,
+        sorted[sorted.length - 1] / 1e6);
+  }
+
+  private static List<String> userIds(final int count) {
+    List<String> ids = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      ids.add("user" + i);
+    }
+    return ids;
+  }
+
   private static UserData fetchUserData(final String userId) {
-    simulateNetworkLatency(300);
+    return fetchUserData(userId, 300);
+  }
+
+  // "user-hangs" never answers in time and "user-broken" errors, for the failure demos.
+  private static UserData fetchUserData(final String userId, final int latencyMillis) {
+    if ("user-broken".equals(userId)) {
+      throw new IllegalStateException("User service returned 500 for " + userId);
+    }
+    simulateNetworkLatency("user-hangs".equals(userId) ? 60_000 : latencyMillis);
     return new UserData(userId, "John Doe");
   }
 
   private static UserSummary createSummary(final UserData userData) {
-    simulateNetworkLatency(200);
+    return createSummary(userData, 200);
+  }
+
+  private static UserSummary createSummary(final UserData userData, final int latencyMillis) {
+    simulateNetworkLatency(latencyMillis);
     return new UserSummary(userData);
   }
 
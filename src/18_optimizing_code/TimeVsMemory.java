@@ -1,11 +1,41 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.function.LongPredicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import optimizing.collections.IndexPairs;
+import optimizing.graph.JaccardTopK;
+import optimizing.profiling.BenchmarkResult;
+import optimizing.profiling.BenchmarkRunner;
+import optimizing.profiling.ResourceSnapshot;
+import optimizing.profiling.ResourceUsage;
+import optimizing.stats.IntStats;
+
 /**
  * Two tiny demos: single-pass max (O(n), small memory) vs generating all pairs (O(n^2), big mem).
  */
 public class TimeVsMemory {
 
+  /**
+   * Runs the demos.
+   *
+   * @param args optional element count for the reduction throughput demo (default 32M), then
+   *     user count for the lazy pairs demo (default 30,000), then user count for the similarity
+   *     demo (default 50,000)
+   */
   public static void main(String[] args) {
     dataAnalyzerDemo();
+    reductionThroughputDemo(args.length > 0 ? Integer.parseInt(args[0]) : 32 << 20);
     connectionAnalyzerDemo();
+    lazyPairsDemo(args.length > 1 ? Integer.parseInt(args[1]) : 30_000);
+    pairSimilarityDemo(args.length > 2 ? Integer.parseInt(args[2]) : 50_000);
   }
 
   private static void dataAnalyzerDemo() {
@@ -23,6 +53,53 @@ public class TimeVsMemory {
     System.out.println("Maximum value in large dataset: " + maxLarge);
   }
 
+  /**
+   * Compares the scalar max loop with one-pass summaries, on the heap and in a direct (off-heap)
+   * buffer, in GB/s of input scanned.
+   */
+  private static void reductionThroughputDemo(final int size) {
+    Random random = new Random(42);
+    int[] data = new int[size];
+    for (int i = 0; i < size; i++) {
+      data[i] = random.nextInt();
+    }
+    ByteBuffer bytes = ByteBuffer.allocateDirect(size * Integer.BYTES);
+    IntBuffer offHeap = bytes.order(ByteOrder.nativeOrder()).asIntBuffer();
+    offHeap.put(data).flip();
+
+    IntSummaryStatistics expected = IntStream.of(data).summaryStatistics();
+    IntSummaryStatistics onHeap = DataAnalyzer.summarize(data);
+    IntSummaryStatistics direct = DataAnalyzer.summarize(offHeap);
+    if (!sameSummary(expected, onHeap) || !sameSummary(expected, direct)) {
+      throw new IllegalStateException("summaries disagree with IntStream");
+    }
+
+    System.out.printf(
+        "%nScanning %,d ints (%d MB; median of 5; %d CPU cores)%n",
+        size, size * (long) Integer.BYTES >> 20, Runtime.getRuntime().availableProcessors());
+    BenchmarkRunner runner = new BenchmarkRunner(2, 5, Duration.ZERO);
+    printThroughput(runner, "findMaxValue (max only)", size, () -> DataAnalyzer.findMaxValue(data));
+    printThroughput(
+        runner, "IntStream.summaryStatistics", size, () -> IntStream.of(data).summaryStatistics());
+    printThroughput(runner, "IntStats, int[]", size, () -> DataAnalyzer.summarize(data));
+    printThroughput(runner, "IntStats, direct buffer", size, () -> DataAnalyzer.summarize(offHeap));
+  }
+
+  private static void printThroughput(
+      final BenchmarkRunner runner, final String label, final int size, final Callable<?> work) {
+    // One operation per int scanned, so the per-op time is nanoseconds per 4 bytes.
+    double gigabytesPerSecond = Integer.BYTES / runner.run(label, size, work).p50();
+    System.out.printf("%-28s %7.2f GB/s%n", label, gigabytesPerSecond);
+  }
+
+  private static boolean sameSummary(
+      final IntSummaryStatistics expected, final IntSummaryStatistics actual) {
+    return expected.getCount() == actual.getCount()
+        && expected.getMin() == actual.getMin()
+        && expected.getMax() == actual.getMax()
+        && expected.getSum() == actual.getSum();
+  }
+
   private static final class DataAnalyzer {
     private static int findMaxValue(final int[] data) {
       int max = data[0];
@@ -36,6 +113,16 @@ public class TimeVsMemory {
 
       return max;
     }
+
+    // One pass for count, min, max and sum, in parallel for large arrays.
+    private static IntSummaryStatistics summarize(final int[] data) {
+      return IntStats.summarize(data);
+    }
+
+    // Same for data outside the heap, e.g. a telemetry buffer filled by native code.
+    private static IntSummaryStatistics summarize(final IntBuffer data) {
+      return IntStats.summarize(data);
+    }
   }
 
   private static void connectionAnalyzerDemo() {
@@ -49,6 +136,138 @@ public class TimeVsMemory {
     for (String[] pair : allPairs) {
       System.out.println(pair[0] + " - " + pair[1]);
     }
+
+    System.out.println("Same connections, streamed lazily:");
+    analyzer
+        .streamAllPairs(users)
+        .forEach(pair -> System.out.println(pair.first() + " - " + pair.second()));
+  }
+
+  /**
+   * Filters every pair of {@code userCount} users without storing any: counts pairs living in the
+   * same city, which {@code generateAllPairs} could never hold for 100k users (5 billion pairs).
+   */
+  private static void lazyPairsDemo(final int userCount) {
+    Random random = new Random(7);
+    int[] cityOf = new int[userCount];
+    for (int i = 0; i < userCount; i++) {
+      cityOf[i] = random.nextInt(50);
+    }
+    LongPredicate sameCityPair =
+        pair -> cityOf[IndexPairs.first(pair)] == cityOf[IndexPairs.second(pair)];
+    long[] sameCity = new long[1];
+    // Process-wide counters, because the parallel stream allocates on pool threads too.
+    ResourceSnapshot before = ResourceSnapshot.ofProcess();
+    BenchmarkResult filtered =
+        new BenchmarkRunner(0, 1, Duration.ZERO)
+            .run(
+                "same-city pairs",
+                IndexPairs.count(userCount),
+                () ->
+                    sameCity[0] =
+                        IndexPairs.stream(userCount).parallel().filter(sameCityPair).count());
+    ResourceUsage usage =
+        ResourceUsage.between(
+            "same-city pairs", IndexPairs.count(userCount), before, ResourceSnapshot.ofProcess());
+    System.out.printf(
+        "%nLazy pairs: %,d users -> %,d pairs, %,d in the same city%n",
+        userCount, IndexPairs.count(userCount), sameCity[0]);
+    System.out.printf(
+        "  %.2f s (%.0f M pairs/s); allocated %,d KB in all, storing them would need %,d MB%n",
+        filtered.mean() * IndexPairs.count(userCount) / 1e9,
+        filtered.opsPerSecond() / 1e6,
+        usage.allocatedBytes() >> 10,
+        // Two references per pair plus a 2-element array (16-byte header + 2 refs, padded).
+        IndexPairs.count(userCount) * (4 + 24) >> 20);
+  }
+
+  /**
+   * Finds every user's 10 most similar users by Jaccard overlap of their connections, with the
+   * blocked engine, and compares it with a plain nested loop over all pairs on a sample.
+   */
+  private static void pairSimilarityDemo(final int userCount) {
+    int[][] connections = syntheticConnections(userCount, new Random(11));
+    int k = 10;
+
+    // The nested loop is far too slow for every user, so time and check it on a sample.
+    int sampleSize = Math.min(userCount, 4_000);
+    int[][] sample = Arrays.copyOf(connections, sampleSize);
+    // Both runs are seconds long and their results are needed, so each is timed exactly once.
+    BenchmarkRunner once = new BenchmarkRunner(0, 1, Duration.ZERO);
+    float[][][] naiveScores = new float[1][][];
+    double naivePairsPerSecond =
+        once.run(
+                "nested loop",
+                IndexPairs.count(sampleSize),
+                () -> naiveScores[0] = ConnectionAnalyzer.allPairsJaccard(sample))
+            .opsPerSecond();
+    JaccardTopK sampled = JaccardTopK.compute(sample, k);
+    for (int user = 0; user < sampleSize; user++) {
+      if (!sameTopK(sampled.neighbors(user), naiveScores[0][user], k)) {
+        throw new IllegalStateException("blocked engine disagrees for user " + user);
+      }
+    }
+
+    JaccardTopK[] topK = new JaccardTopK[1];
+    double blockedSeconds =
+        once.run("blocked tiles", 1, () -> topK[0] = JaccardTopK.compute(connections, k)).mean()
+            / 1e9;
+    System.out.printf(
+        "%nTop-%d Jaccard neighbours for %,d users (%,d pairs; %d CPU cores)%n",
+        k, userCount, IndexPairs.count(userCount), Runtime.getRuntime().availableProcessors());
+    System.out.printf(
+        "  nested loop: %.0f M pairs/s on %,d users -> ~%.0f s for all%n",
+        naivePairsPerSecond / 1e6, sampleSize, IndexPairs.count(userCount) / naivePairsPerSecond);
+    System.out.printf(
+        "  blocked tiles: %.2f s for all (matches the loop on the sample)%n", blockedSeconds);
+    List<JaccardTopK.Neighbor> closest = topK[0].neighbors(0);
+    System.out.println(
+        "  user 0's closest: " + closest.subList(0, Math.min(3, closest.size())));
+  }
+
+  /** Users in communities of 100: 15 connections inside their community, 5 anywhere. */
+  private static int[][] syntheticConnections(final int userCount, final Random random) {
+    int[][] connections = new int[userCount][];
+    for (int user = 0; user < userCount; user++) {
+      int community = user / 100 * 100;
+      int communitySize = Math.min(100, userCount - community);
+      IntStream.Builder picks = IntStream.builder();
+      for (int c = 0; c < 15; c++) {
+        picks.add(community + random.nextInt(communitySize));
+      }
+      for (int c = 0; c < 5; c++) {
+        picks.add(random.nextInt(userCount));
+      }
+      int self = user;
+      connections[user] =
+          picks.build().filter(other -> other != self).distinct().sorted().toArray();
+    }
+    return connections;
+  }
+
+  // The engine's top k must be the k best scores, best first, ties to the lower user index.
+  private static boolean sameTopK(
+      final List<JaccardTopK.Neighbor> neighbors, final float[] scores, final int k) {
+    Integer[] order = new Integer[scores.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(
+        order, (a, b) -> scores[a] != scores[b] ? Float.compare(scores[b], scores[a]) : a - b);
+    int expected = 0;
+    while (expected < k && expected < order.length && scores[order[expected]] > 0) {
+      expected++;
+    }
+    if (neighbors.size() != expected) {
+      return false;
+    }
+    for (int i = 0; i < expected; i++) {
+      if (neighbors.get(i).user() != order[i]
+          || neighbors.get(i).similarity() != scores[order[i]]) {
+        return false;
+      }
+    }
+    return true;
   }
 
   private static final class ConnectionAnalyzer {
@@ -73,5 +292,41 @@ public class TimeVsMemory {
       // Return the result
       return pairs;
     }
+
+    // Jaccard score of every pair, from a nested loop over sorted connection lists: O(n^2) pairs,
+    // each a full merge, whether or not the two users share anyone.
+    private static float[][] allPairsJaccard(final int[][] connections) {
+      int n = connections.length;
+      float[][] scores = new float[n][n];
+      for (int i = 0; i < n; i++) {
+        for (int j = i + 1; j < n; j++) {
+          int[] a = connections[i];
+          int[] b = connections[j];
+          int shared = 0;
+          for (int x = 0, y = 0; x < a.length && y < b.length; ) {
+            if (a[x] < b[y]) {
+              x++;
+            } else if (a[x] > b[y]) {
+              y++;
+            } else {
+              shared++;
+              x++;
+              y++;
+            }
+          }
+          if (shared > 0) {
+            float score = (float) shared / (a.length + b.length - shared);
+            scores[i][j] = score;
+            scores[j][i] = score;
+          }
+        }
+      }
+      return scores;
+    }
+
+    // Same pairs, produced on demand: O(n) memory however many are consumed.
+    public Stream<IndexPairs.Pair<String>> streamAllPairs(final String[] elements) {
+      return IndexPairs.of(Arrays.asList(elements));
+    }
   }
 }
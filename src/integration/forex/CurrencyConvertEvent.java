@@ -0,0 +1,22 @@
+package integration.forex;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Flight Recorder event for one {@link ExchangeApp#convertEuroTo} call. */
+@Name("integration.CurrencyConvert")
+@Label("Currency Convert")
+@Category("Application")
+@Description("Conversion of a euro amount, including the rate lookup")
+@StackTrace(false)
+class CurrencyConvertEvent extends Event {
+  @Label("Currency")
+  String currency;
+
+  @Label("Amount in Euro")
+  double amount;
+}
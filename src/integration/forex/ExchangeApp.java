@@ -11,7 +11,12 @@ public class ExchangeApp {
   }
 
   public double convertEuroTo(final double amountInEuro, final String targetCurrency) {
+    CurrencyConvertEvent event = new CurrencyConvertEvent();
+    event.begin();
     double rate = ecbServer.getRateEuroTo(targetCurrency);
+    event.currency = targetCurrency;
+    event.amount = amountInEuro;
+    event.commit();
     return amountInEuro * rate;
   }
 }
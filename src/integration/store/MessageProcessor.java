@@ -22,11 +22,19 @@ public class MessageProcessor {
       throw new IllegalArgumentException("Message cannot be blank");
     }
 
+    MessageRouteEvent event = new MessageRouteEvent();
+    event.begin();
     if (message.startsWith("[INFO]")) {
       infoStore.save(message);
+      event.route = "info";
     } else if (message.startsWith("[ERROR]")) {
       errorStore.save(message);
+      event.route = "error";
+    } else {
+      // WARN/other messages are ignored for this example
+      event.route = "ignored";
     }
-    // WARN/other messages are ignored for this example
+    event.length = message.length();
+    event.commit();
   }
 }
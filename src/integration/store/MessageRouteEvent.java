@@ -0,0 +1,23 @@
+package integration.store;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Flight Recorder event for one {@link MessageProcessor#process} call. */
+@Name("integration.MessageRoute")
+@Label("Message Route")
+@Category("Application")
+@Description("Routing of one log message to a store")
+@StackTrace(false)
+class MessageRouteEvent extends Event {
+  @Label("Route")
+  @Description("info, error or ignored")
+  String route;
+
+  @Label("Message Length")
+  int length;
+}
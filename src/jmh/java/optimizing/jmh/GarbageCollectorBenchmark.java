@@ -0,0 +1,68 @@
+package optimizing.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH version of {@code GarbageCollectorExample}: a report rebuilt into a fresh buffer on every
+ * value versus one presized {@link StringBuilder}.
+ *
+ * <p>Run with {@code -Pjmh.profilers=optimizing.jmh.ResourceProfiler} (or JMH's own {@code gc})
+ * to see the bytes allocated per report and the GC time behind the difference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class GarbageCollectorBenchmark {
+  /** Number of data points in the report. */
+  @Param({"1000", "10000"})
+  public int size;
+
+  private double[] dataPoints;
+
+  /** Fills the data points from a fixed seed so every fork formats the same report. */
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    dataPoints = new double[size];
+    for (int i = 0; i < size; i++) {
+      dataPoints[i] = random.nextDouble() * 100;
+    }
+  }
+
+  /** Copies the whole report into a new builder after every value: O(n^2) bytes of garbage. */
+  @Benchmark
+  @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+  public String reportWithoutOptimization() {
+    StringBuilder report = new StringBuilder();
+    for (double value : dataPoints) {
+      report.append(String.format("%.2f, ", value));
+      report = new StringBuilder(report.toString());
+    }
+    return report.toString();
+  }
+
+  /** One presized builder for the whole report. */
+  @Benchmark
+  public String reportWithOptimization() {
+    StringBuilder report = new StringBuilder(dataPoints.length * 8);
+    for (double value : dataPoints) {
+      report.append(String.format("%.2f, ", value));
+    }
+    return report.toString();
+  }
+}
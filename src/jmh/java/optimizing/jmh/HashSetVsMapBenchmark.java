@@ -0,0 +1,142 @@
+package optimizing.jmh;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import optimizing.collections.LongOpenHashSet;
+import optimizing.collections.StringOpenHashSet;
+import optimizing.collections.TransactionIdCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH version of {@code HashSetVsMapExample}'s transaction dedupe: {@code HashSet<String>} against
+ * {@link StringOpenHashSet} and a {@link LongOpenHashSet} of packed IDs.
+ *
+ * <p>The {@code build*} benchmarks fill a presized set, one ID at a time as the dedupe does. Since
+ * nothing is rehashed and the IDs are created in setup, everything allocated is the finished set:
+ * run with {@code -Pjmh.profilers=optimizing.jmh.ResourceProfiler} (or JMH's own {@code gc}) and
+ * divide the bytes per operation by {@code size} to get bytes per entry. Only the long set lets
+ * the ~56-byte ID strings themselves go, which these figures leave out.
+ *
+ * <p>The {@code contains*} benchmarks look every ID up once in a prebuilt set, in shuffled order
+ * and through fresh copies of the strings, as incoming IDs would arrive.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class HashSetVsMapBenchmark {
+  /** Number of distinct transaction IDs. */
+  @Param({"100000", "2000000"})
+  public int size;
+
+  private String[] ids;
+  private String[] lookups;
+  private Set<String> hashSet;
+  private StringOpenHashSet stringSet;
+  private LongOpenHashSet longSet;
+
+  /** Creates IDs shaped like {@code TXN000000123} and the sets the lookups run against. */
+  @Setup
+  public void setUp() {
+    ids = new String[size];
+    for (int i = 0; i < size; i++) {
+      ids[i] = String.format(Locale.ROOT, "TXN%09d", i);
+    }
+    lookups = new String[size];
+    for (int i = 0; i < size; i++) {
+      // A new instance, so equals cannot short-circuit on identity.
+      lookups[i] = new String(ids[i].toCharArray());
+    }
+    Random random = new Random(42);
+    for (int i = size - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      String swap = lookups[i];
+      lookups[i] = lookups[j];
+      lookups[j] = swap;
+    }
+    hashSet = buildHashSet();
+    stringSet = buildStringOpenHashSet();
+    longSet = buildLongOpenHashSet();
+  }
+
+  /** Baseline: a 32-byte node per entry on top of the bucket slot. */
+  @Benchmark
+  public Set<String> buildHashSet() {
+    Set<String> set = new HashSet<>((int) (size / 0.75f) + 1);
+    for (String id : ids) {
+      set.add(id);
+    }
+    return set;
+  }
+
+  /** A reference and a cached hash per slot; still holds on to every ID string. */
+  @Benchmark
+  public StringOpenHashSet buildStringOpenHashSet() {
+    StringOpenHashSet set = new StringOpenHashSet(size);
+    for (String id : ids) {
+      set.add(id);
+    }
+    return set;
+  }
+
+  /** One {@code long} per slot; the ID strings can be dropped once packed. */
+  @Benchmark
+  public LongOpenHashSet buildLongOpenHashSet() {
+    LongOpenHashSet set = new LongOpenHashSet(size);
+    for (String id : ids) {
+      set.add(TransactionIdCodec.encode(id));
+    }
+    return set;
+  }
+
+  /** Looks every ID up in the {@code HashSet}. */
+  @Benchmark
+  public int containsHashSet() {
+    int found = 0;
+    for (String id : lookups) {
+      if (hashSet.contains(id)) {
+        found++;
+      }
+    }
+    return found;
+  }
+
+  /** Looks every ID up in the {@link StringOpenHashSet}. */
+  @Benchmark
+  public int containsStringOpenHashSet() {
+    int found = 0;
+    for (String id : lookups) {
+      if (stringSet.contains(id)) {
+        found++;
+      }
+    }
+    return found;
+  }
+
+  /** Packs and looks up every ID in the {@link LongOpenHashSet}. */
+  @Benchmark
+  public int containsLongOpenHashSet() {
+    int found = 0;
+    for (String id : lookups) {
+      if (longSet.contains(TransactionIdCodec.encode(id))) {
+        found++;
+      }
+    }
+    return found;
+  }
+}
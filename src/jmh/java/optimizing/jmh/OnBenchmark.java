@@ -0,0 +1,72 @@
+package optimizing.jmh;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH version of {@code OnExample}: finding a contact by a linear scan of a list versus a hash
+ * lookup.
+ *
+ * <p>The target is the last contact, the linear scan's worst case. Its name is a fresh string
+ * equal to the stored one, so {@code equals} and {@code hashCode} do real work as they would for a
+ * name typed by a user.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class OnBenchmark {
+  /** Number of contacts. */
+  @Param({"1000", "100000"})
+  public int contacts;
+
+  private List<String> list;
+  private Map<String, String> index;
+  private String target;
+
+  /** Fills both structures the way {@code ContactManager.addContact} does. */
+  @Setup
+  public void setUp() {
+    list = new ArrayList<>(contacts);
+    index = new HashMap<>();
+    for (int i = 0; i < contacts; i++) {
+      String name = "Contact_" + i;
+      list.add(name);
+      index.put(name, name);
+    }
+    target = new String(("Contact_" + (contacts - 1)).toCharArray());
+  }
+
+  /** O(n) scan comparing every name. */
+  @Benchmark
+  public String findLinear() {
+    for (String name : list) {
+      if (name.equals(target)) {
+        return name;
+      }
+    }
+    return null;
+  }
+
+  /** Average-case O(1) hash lookup. */
+  @Benchmark
+  public String findMap() {
+    return index.get(target);
+  }
+}
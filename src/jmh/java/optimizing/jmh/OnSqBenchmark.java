@@ -0,0 +1,83 @@
+package optimizing.jmh;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH version of {@code OnSqExample}: checking sortedness by comparing every pair versus one pass
+ * over neighbours.
+ *
+ * <p>Like the lesson's {@code SortChecker.isSortedQuadratic}, the pairwise check compares each
+ * element with every later one, so on a sorted list it really does n(n-1)/2 comparisons, and on the
+ * lesson's swapped tail it only meets the inversion after nearly all of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class OnSqBenchmark {
+  /** List length. */
+  @Param({"1000", "10000"})
+  public int size;
+
+  /** {@code sorted} is both checks' worst case; {@code swappedTail} is the lesson's input. */
+  @Param({"sorted", "swappedTail"})
+  public String shape;
+
+  private List<Integer> numbers;
+
+  /** Builds 0..size-1, swapping the last two elements for {@code swappedTail}. */
+  @Setup
+  public void setUp() {
+    numbers = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      numbers.add(i);
+    }
+    if ("swappedTail".equals(shape)) {
+      Collections.swap(numbers, size - 1, size - 2);
+    }
+  }
+
+  /** O(n^2): every element against every later one. */
+  @Benchmark
+  public boolean isSortedQuadratic() {
+    int n = numbers.size();
+    for (int i = 0; i < n; i++) {
+      int left = numbers.get(i);
+      for (int j = i + 1; j < n; j++) {
+        if (left > numbers.get(j)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /** O(n): stop at the first inversion. */
+  @Benchmark
+  public boolean isSortedLinear() {
+    Integer previous = null;
+    for (Integer current : numbers) {
+      if (previous != null && previous > current) {
+        return false;
+      }
+      previous = current;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,94 @@
+package optimizing.jmh;
+
+import java.util.concurrent.TimeUnit;
+import optimizing.profiling.Blackhole;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH version of {@code PerfDemo}: string building and the two linear searches.
+ *
+ * <p>The lesson methods are private to a default-package class, which JMH cannot reference, so
+ * the kernels are mirrored here line for line. Returning each result keeps the JIT from
+ * eliminating the work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PerfDemoBenchmark {
+  /** Number of appended values and searched elements. */
+  @Param({"10000"})
+  public int size;
+
+  private int[] array;
+  private int target;
+
+  /** Builds the sorted search array; the target sits three quarters of the way in. */
+  @Setup
+  public void setUp() {
+    array = new int[size];
+    for (int i = 0; i < size; i++) {
+      array[i] = i;
+    }
+    target = array[size * 3 / 4];
+  }
+
+  /** Baseline the lesson warns about: every {@code +=} copies the whole string so far. */
+  @Benchmark
+  @SuppressWarnings("PMD.UseStringBufferForStringAppends")
+  public String stringConcatenation() {
+    String result = "";
+    for (int i = 0; i < size; i++) {
+      result += i;
+    }
+    return result;
+  }
+
+  /** One builder, amortized O(1) appends. */
+  @Benchmark
+  public String stringBuilder() {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < size; i++) {
+      result.append(i);
+    }
+    return result.toString();
+  }
+
+  /** Plain O(n) scan. */
+  @Benchmark
+  public boolean linearSearch() {
+    for (int value : array) {
+      if (value == target) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Same O(n) scan with about 1 µs of CPU work per comparison. Like the lesson, it burns CPU
+   * rather than calling {@code Thread.sleep(0, 1000)}, which would measure OS timer slack.
+   */
+  @Benchmark
+  public boolean linearSearchWithDelay() {
+    for (int value : array) {
+      Blackhole.consumeCpu(500);
+      if (value == target) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
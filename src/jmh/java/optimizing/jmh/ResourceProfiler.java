@@ -0,0 +1,51 @@
+package optimizing.jmh;
+
+import java.util.List;
+import optimizing.profiling.ResourceSnapshot;
+import optimizing.profiling.ResourceUsage;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.ScalarResult;
+
+/**
+ * JMH profiler that reports the same allocation, CPU and GC figures as {@code ProfileReport}, so
+ * benchmark runs and the standalone demos can be compared directly.
+ *
+ * <p>Enable it with {@code ./gradlew jmh -Pjmh.profilers=optimizing.jmh.ResourceProfiler}. The
+ * figures appear as secondary metrics in the console and in the JSON results. Counters cover the
+ * whole forked JVM, because JMH calls profilers from its control thread rather than from the
+ * benchmark threads.
+ */
+public class ResourceProfiler implements InternalProfiler {
+  private ResourceSnapshot start;
+
+  @Override
+  public String getDescription() {
+    return "Allocated bytes, CPU time and GC per operation, from the JVM's MXBeans";
+  }
+
+  @Override
+  public void beforeIteration(
+      final BenchmarkParams benchmarkParams, final IterationParams iterationParams) {
+    start = ResourceSnapshot.ofProcess();
+  }
+
+  @Override
+  public List<ScalarResult> afterIteration(
+      final BenchmarkParams benchmarkParams,
+      final IterationParams iterationParams,
+      final IterationResult result) {
+    ResourceSnapshot end = ResourceSnapshot.ofProcess();
+    long operations = Math.max(1, result.getMetadata().getAllocatedOps());
+    ResourceUsage usage =
+        ResourceUsage.between(benchmarkParams.getBenchmark(), operations, start, end);
+    return List.of(
+        new ScalarResult("mx.alloc.norm", usage.bytesPerOp(), "B/op", AggregationPolicy.AVG),
+        new ScalarResult("mx.cpu.norm", usage.cpuNanosPerOp(), "ns/op", AggregationPolicy.AVG),
+        new ScalarResult("mx.gc.count", usage.gcCount(), "counts", AggregationPolicy.SUM),
+        new ScalarResult("mx.gc.time", usage.gcMillis(), "ms", AggregationPolicy.SUM));
+  }
+}
@@ -0,0 +1,106 @@
+package optimizing.jmh;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import optimizing.sort.RunAwareSort;
+import optimizing.sort.Sortedness;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code Collections.sort} on a boxed list versus {@link RunAwareSort} on an {@code int[]}, and
+ * the boxed linear sortedness check versus {@link Sortedness}.
+ *
+ * <p>Sorts work on copies taken in a per-invocation setup, which JMH excludes from the timing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SortEngineBenchmark {
+  /** Element count. */
+  @Param({"1000000"})
+  public int size;
+
+  /** {@code swappedTail} is {@code OnSqExample}'s input; {@code random} has no runs at all. */
+  @Param({"swappedTail", "random"})
+  public String shape;
+
+  private int[] input;
+  private List<Integer> boxedInput;
+  private int[] array;
+  private List<Integer> list;
+
+  /** Builds the input once per trial. */
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    input = new int[size];
+    for (int i = 0; i < size; i++) {
+      input[i] = "random".equals(shape) ? random.nextInt() : i;
+    }
+    if ("swappedTail".equals(shape)) {
+      input[size - 1] = size - 2;
+      input[size - 2] = size - 1;
+    }
+    boxedInput = new ArrayList<>(size);
+    for (int value : input) {
+      boxedInput.add(value);
+    }
+  }
+
+  /** Restores unsorted copies before every call. */
+  @Setup(Level.Invocation)
+  public void copyInput() {
+    array = input.clone();
+    list = new ArrayList<>(boxedInput);
+  }
+
+  /** Boxed TimSort, as in the lesson. */
+  @Benchmark
+  public List<Integer> collectionsSort() {
+    Collections.sort(list);
+    return list;
+  }
+
+  /** Run merging or parallel radix sort on primitives. */
+  @Benchmark
+  public int[] runAwareSort() {
+    RunAwareSort.sort(array);
+    return array;
+  }
+
+  /** One boxed pass over the list. */
+  @Benchmark
+  public boolean isSortedBoxed() {
+    Integer previous = null;
+    for (Integer current : boxedInput) {
+      if (previous != null && previous > current) {
+        return false;
+      }
+      previous = current;
+    }
+    return true;
+  }
+
+  /** Chunked parallel pass over the array. */
+  @Benchmark
+  public boolean isSortedChunked() {
+    return Sortedness.isSorted(input);
+  }
+}
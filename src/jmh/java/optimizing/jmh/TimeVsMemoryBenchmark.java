@@ -0,0 +1,97 @@
+package optimizing.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH version of {@code TimeVsMemory}: a single-pass maximum (O(n) time, O(1) space) against
+ * materializing every pair of users (O(n^2) time and space).
+ *
+ * <p>Each comparison has its own state so the two input sizes can be varied independently.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TimeVsMemoryBenchmark {
+  /** Random values for {@link #findMaxValue}. */
+  @State(Scope.Benchmark)
+  public static class Values {
+    /** Array length. */
+    @Param({"1000", "1000000"})
+    public int values;
+
+    private int[] data;
+
+    /** Fills the array from a fixed seed. */
+    @Setup
+    public void setUp() {
+      Random random = new Random(42);
+      data = new int[values];
+      for (int i = 0; i < values; i++) {
+        data[i] = random.nextInt(10_000);
+      }
+    }
+  }
+
+  /** User names for {@link #generateAllPairs}. */
+  @State(Scope.Benchmark)
+  public static class Users {
+    /** Number of users. */
+    @Param({"100", "1000"})
+    public int users;
+
+    private String[] names;
+
+    /** Creates the user names. */
+    @Setup
+    public void setUp() {
+      names = new String[users];
+      for (int i = 0; i < users; i++) {
+        names[i] = "User_" + i;
+      }
+    }
+  }
+
+  /** One pass with a running maximum. */
+  @Benchmark
+  public int findMaxValue(final Values state) {
+    int[] data = state.data;
+    int max = data[0];
+    for (int value : data) {
+      if (value > max) {
+        max = value;
+      }
+    }
+    return max;
+  }
+
+  /** Stores all n(n-1)/2 pairs, as {@code ConnectionAnalyzer.generateAllPairs} does. */
+  @Benchmark
+  public String[][] generateAllPairs(final Users state) {
+    String[] elements = state.names;
+    int n = elements.length;
+    String[][] pairs = new String[n * (n - 1) / 2][2];
+    int pairIndex = 0;
+    for (int i = 0; i < n; i++) {
+      for (int j = i + 1; j < n; j++) {
+        pairs[pairIndex][0] = elements[i];
+        pairs[pairIndex][1] = elements[j];
+        pairIndex++;
+      }
+    }
+    return pairs;
+  }
+}
@@ -0,0 +1,107 @@
+package optimizing.collections;
+
+import java.util.Arrays;
+
+/**
+ * Classic fixed-size Bloom filter over a {@code long[]} bit array.
+ *
+ * <p>Sized from the expected number of insertions and a target false-positive rate using the
+ * textbook formulas {@code m = -n ln p / (ln 2)^2} bits and {@code k = m/n ln 2} probes. Probe
+ * positions come from double hashing ({@code h1 + i * h2}) of one 64-bit key hash, so a check
+ * costs a single hash plus {@code k} bit reads. Not thread-safe.
+ */
+public final class BloomFilter implements MembershipFilter {
+  private static final double LN2 = Math.log(2);
+
+  private final long[] words;
+  private final long bitCount;
+  private final int hashCount;
+  private final long capacity;
+  private long insertions;
+
+  /**
+   * Creates a filter that stays at or below {@code falsePositiveRate} until it has seen {@code
+   * expectedInsertions} distinct keys.
+   *
+   * @param expectedInsertions distinct keys the filter is sized for
+   * @param falsePositiveRate target probability in (0, 1) that an unseen key reports "maybe"
+   */
+  public BloomFilter(final long expectedInsertions, final double falsePositiveRate) {
+    if (expectedInsertions <= 0) {
+      throw new IllegalArgumentException("expectedInsertions must be positive");
+    }
+    if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+      throw new IllegalArgumentException("falsePositiveRate must be in (0, 1)");
+    }
+    long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (LN2 * LN2));
+    long wordCount = (Math.max(bits, Long.SIZE) + Long.SIZE - 1) / Long.SIZE;
+    if (wordCount > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("Filter too large; split it into windows or shards");
+    }
+    this.words = new long[(int) wordCount];
+    this.bitCount = wordCount * Long.SIZE;
+    this.hashCount = Math.max(1, (int) Math.round(bitCount / (double) expectedInsertions * LN2));
+    this.capacity = expectedInsertions;
+  }
+
+  @Override
+  public boolean mightContain(final long keyHash) {
+    long h1 = keyHash;
+    long h2 = (keyHash >>> 32) | 1L; // odd step so probes never collapse onto one bit
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Long.remainderUnsigned(h1, bitCount);
+      if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      }
+      h1 += h2;
+    }
+    return true;
+  }
+
+  @Override
+  public boolean put(final long keyHash) {
+    long h1 = keyHash;
+    long h2 = (keyHash >>> 32) | 1L;
+    boolean changed = false;
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Long.remainderUnsigned(h1, bitCount);
+      int index = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      if ((words[index] & mask) == 0) {
+        words[index] |= mask;
+        changed = true;
+      }
+      h1 += h2;
+    }
+    if (changed) {
+      insertions++;
+    }
+    return changed;
+  }
+
+  /** Returns {@code true} once the filter holds as many keys as it was sized for. */
+  public boolean isSaturated() {
+    return insertions >= capacity;
+  }
+
+  /** Returns the number of keys that changed the filter (an estimate of distinct keys added). */
+  public long insertions() {
+    return insertions;
+  }
+
+  /** Returns the number of probes per key. */
+  public int hashCount() {
+    return hashCount;
+  }
+
+  /** Resets every bit so the filter can be reused for a new window. */
+  public void clear() {
+    Arrays.fill(words, 0L);
+    insertions = 0;
+  }
+
+  @Override
+  public long footprintBytes() {
+    return HashSupport.arrayBytes(words.length, Long.BYTES);
+  }
+}
@@ -0,0 +1,64 @@
+package optimizing.collections;
+
+/** Shared hashing and sizing helpers for the open-addressing tables in this package. */
+final class HashSupport {
+  /** Rough header + field cost for one of our small table objects on a 64-bit JVM. */
+  static final long OBJECT_OVERHEAD_BYTES = 48L;
+
+  private static final long ARRAY_HEADER_BYTES = 16L;
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  private HashSupport() {}
+
+  /**
+   * Folds a 64-bit key into a table index with a golden-ratio multiply, so every key bit reaches
+   * the low index bits. A {@code HashMap}-style xor fold is not enough for linear probing: strided
+   * ids (multiples of 1,000, say) would share a few slots and build long probe runs.
+   */
+  static int mix(final long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    int folded = (int) (h ^ (h >>> 32));
+    return folded ^ (folded >>> 16);
+  }
+
+  /** Spreads a 32-bit hash (e.g. {@link String#hashCode()}) so low bits are usable as an index. */
+  static int mix(final int hash) {
+    int h = hash * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * 64-bit FNV-1a over the UTF-16 code units, finished with the MurmurHash3 avalanche step.
+   * {@link String#hashCode()} only has 32 bits, which would put a floor under the false-positive
+   * rate of any filter sized for hundreds of millions of keys.
+   */
+  static long hash64(final CharSequence text) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < text.length(); i++) {
+      h ^= text.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  /** Smallest power of two that keeps {@code expectedSize} keys under {@code loadFactor}. */
+  static int tableSizeFor(final int expectedSize, final float loadFactor, final int minCapacity) {
+    long needed = (long) Math.ceil(expectedSize / (double) loadFactor) + 1;
+    if (needed > MAX_CAPACITY) {
+      throw new IllegalArgumentException("expectedSize too large: " + expectedSize);
+    }
+    int capacity = Integer.highestOneBit((int) Math.max(needed - 1, 1)) << 1;
+    return Math.max(capacity, minCapacity);
+  }
+
+  /** Approximate heap size of a primitive or reference array with compressed oops. */
+  static long arrayBytes(final int length, final int elementBytes) {
+    long raw = ARRAY_HEADER_BYTES + (long) length * elementBytes;
+    return (raw + 7) & ~7L;
+  }
+}
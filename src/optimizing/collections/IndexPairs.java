@@ -0,0 +1,215 @@
+package optimizing.collections;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Every unordered pair {@code (i, j)} with {@code i < j < n}, generated on demand instead of
+ * stored.
+ *
+ * <p>A pair is packed into one {@code long} as {@code i << 32 | j}, so a {@link LongStream} of
+ * pairs allocates nothing per pair, and a {@code filter} on it stores nothing. The stream is backed
+ * by a spliterator over pair ranks {@code [0, n(n-1)/2)} in row order. It splits by rank at the
+ * midpoint and computes the {@code (i, j)} at that rank in closed form, so both halves hold equally
+ * many pairs, unlike splitting by row, where the first rows are the longest. Memory is a few fields
+ * per spliterator, however many pairs there are.
+ *
+ * <pre>{@code
+ * long sameCity = IndexPairs.stream(cityOf.length).parallel()
+ *     .filter(p -> cityOf[IndexPairs.first(p)] == cityOf[IndexPairs.second(p)])
+ *     .count();
+ * }</pre>
+ */
+public final class IndexPairs {
+  // Below this many pairs a spliterator refuses to split; the per-pair work is tiny.
+  private static final long MIN_SPLIT = 1 << 12;
+
+  private IndexPairs() {}
+
+  /**
+   * Pair of elements, as produced by {@link #of(List)}.
+   *
+   * @param first element at the smaller index
+   * @param second element at the larger index
+   * @param <T> element type
+   */
+  public record Pair<T>(T first, T second) {}
+
+  /**
+   * Returns the number of pairs among {@code n} elements, {@code n(n-1)/2}.
+   *
+   * @param n element count
+   * @return pair count
+   */
+  public static long count(final int n) {
+    if (n < 0) {
+      throw new IllegalArgumentException("n must be >= 0");
+    }
+    return (long) n * (n - 1) / 2;
+  }
+
+  /**
+   * Returns a sequential stream of all packed pairs among {@code n} indices, in row order; call
+   * {@code parallel()} to spread it over the common pool.
+   *
+   * @param n element count
+   * @return packed pairs; decode with {@link #first} and {@link #second}
+   */
+  public static LongStream stream(final int n) {
+    return StreamSupport.longStream(spliterator(n), false);
+  }
+
+  /**
+   * Returns a spliterator over all packed pairs among {@code n} indices.
+   *
+   * @param n element count
+   * @return sized, evenly splitting spliterator
+   */
+  public static Spliterator.OfLong spliterator(final int n) {
+    return new PairSpliterator(n, 0, count(n));
+  }
+
+  /**
+   * Returns a sequential stream of all pairs of {@code elements}, in index order.
+   *
+   * @param elements random-access list; must not change while the stream runs
+   * @param <T> element type
+   * @return pairs, allocated one at a time as the stream consumes them
+   */
+  public static <T> Stream<Pair<T>> of(final List<T> elements) {
+    Objects.requireNonNull(elements, "elements cannot be null");
+    if (!(elements instanceof RandomAccess)) {
+      throw new IllegalArgumentException("elements must support random access");
+    }
+    return stream(elements.size())
+        .mapToObj(pair -> new Pair<>(elements.get(first(pair)), elements.get(second(pair))));
+  }
+
+  /** Returns the smaller index of a packed pair. */
+  public static int first(final long pair) {
+    return (int) (pair >>> 32);
+  }
+
+  /** Returns the larger index of a packed pair. */
+  public static int second(final long pair) {
+    return (int) pair;
+  }
+
+  /** Packs {@code (i, j)} into one {@code long}. */
+  public static long pack(final int i, final int j) {
+    return (long) i << 32 | j;
+  }
+
+  /** Number of pairs in the rows before row {@code i}: each row {@code r} holds n-1-r pairs. */
+  private static long rowStart(final long n, final long i) {
+    return i * (2 * n - i - 1) / 2;
+  }
+
+  /** Pairs of ranks {@code [index, end)}, walked as row {@code i}, column {@code j}. */
+  private static final class PairSpliterator implements Spliterator.OfLong {
+    private final int n;
+    private final long end;
+    private long index;
+    private int i;
+    private int j;
+
+    private PairSpliterator(final int n, final long index, final long end) {
+      this.n = n;
+      this.end = end;
+      seek(index);
+    }
+
+    private PairSpliterator(
+        final int n, final long index, final long end, final int i, final int j) {
+      this.n = n;
+      this.end = end;
+      this.index = index;
+      this.i = i;
+      this.j = j;
+    }
+
+    // Solves rowStart(i) <= rank for the largest i, then fixes any floating-point rounding.
+    private void seek(final long rank) {
+      index = rank;
+      double b = 2.0 * n - 1;
+      long row = (long) ((b - Math.sqrt(Math.max(0, b * b - 8.0 * rank))) / 2);
+      row = Math.max(0, Math.min(row, Math.max(0, n - 2)));
+      while (row > 0 && rowStart(n, row) > rank) {
+        row--;
+      }
+      while (row + 1 < n && rowStart(n, row + 1) <= rank) {
+        row++;
+      }
+      i = (int) row;
+      j = (int) (row + 1 + rank - rowStart(n, row));
+    }
+
+    @Override
+    public boolean tryAdvance(final LongConsumer action) {
+      Objects.requireNonNull(action, "action cannot be null");
+      if (index >= end) {
+        return false;
+      }
+      action.accept(pack(i, j));
+      index++;
+      if (++j == n) {
+        i++;
+        j = i + 1;
+      }
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(final LongConsumer action) {
+      Objects.requireNonNull(action, "action cannot be null");
+      long remaining = end - index;
+      int row = i;
+      int column = j;
+      while (remaining > 0) {
+        int stop = (int) Math.min(n, column + remaining);
+        long high = (long) row << 32;
+        for (int c = column; c < stop; c++) {
+          action.accept(high | c);
+        }
+        remaining -= stop - column;
+        row++;
+        column = row + 1;
+      }
+      index = end;
+    }
+
+    @Override
+    public Spliterator.OfLong trySplit() {
+      long remaining = end - index;
+      if (remaining < MIN_SPLIT) {
+        return null;
+      }
+      long mid = index + remaining / 2;
+      PairSpliterator prefix = new PairSpliterator(n, index, mid, i, j);
+      seek(mid);
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return end - index;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | DISTINCT | SORTED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+
+    @Override
+    public Comparator<? super Long> getComparator() {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package optimizing.collections;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing set of primitive {@code long} values with linear probing.
+ *
+ * <p>Compared with {@code HashSet<Long>} there is no boxed key, no {@code HashMap.Node} per entry
+ * and no pointer chasing: every key lives inline in a single {@code long[]}. A lookup is one hash,
+ * then a short forward scan over adjacent cache lines.
+ *
+ * <p>Zero is used as the "empty slot" marker, so the key {@code 0} is tracked by a separate flag.
+ * Not thread-safe.
+ */
+public final class LongOpenHashSet {
+  private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+  private static final int MIN_CAPACITY = 16;
+
+  private final float loadFactor;
+  private long[] keys;
+  private int mask;
+  private int size;
+  private int resizeThreshold;
+  private boolean containsZero;
+
+  /** Creates a set sized for a handful of entries; it grows on demand. */
+  public LongOpenHashSet() {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   * Creates a set pre-sized so {@code expectedSize} inserts never trigger a rehash.
+   *
+   * @param expectedSize number of keys the caller plans to add
+   */
+  public LongOpenHashSet(final int expectedSize) {
+    this(expectedSize, DEFAULT_LOAD_FACTOR);
+  }
+
+  /**
+   * Creates a set with an explicit load factor; lower values trade memory for shorter probes.
+   *
+   * @param expectedSize number of keys the caller plans to add
+   * @param loadFactor fill ratio in (0, 1) at which the table doubles
+   */
+  public LongOpenHashSet(final int expectedSize, final float loadFactor) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("expectedSize must be >= 0");
+    }
+    if (!(loadFactor > 0f && loadFactor < 1f)) {
+      throw new IllegalArgumentException("loadFactor must be in (0, 1)");
+    }
+    this.loadFactor = loadFactor;
+    allocate(HashSupport.tableSizeFor(expectedSize, loadFactor, MIN_CAPACITY));
+  }
+
+  /**
+   * Adds a key.
+   *
+   * @param key value to remember
+   * @return {@code true} if the key was new, {@code false} if it was already present
+   */
+  public boolean add(final long key) {
+    if (key == 0L) {
+      if (containsZero) {
+        return false;
+      }
+      containsZero = true;
+      size++;
+      return true;
+    }
+    int slot = HashSupport.mix(key) & mask;
+    long current = keys[slot];
+    while (current != 0L) {
+      if (current == key) {
+        return false;
+      }
+      slot = (slot + 1) & mask;
+      current = keys[slot];
+    }
+    keys[slot] = key;
+    if (++size > resizeThreshold) {
+      rehash(keys.length << 1);
+    }
+    return true;
+  }
+
+  /**
+   * Checks membership.
+   *
+   * @param key value to look for
+   * @return {@code true} when the key was previously added
+   */
+  public boolean contains(final long key) {
+    if (key == 0L) {
+      return containsZero;
+    }
+    int slot = HashSupport.mix(key) & mask;
+    long current = keys[slot];
+    while (current != 0L) {
+      if (current == key) {
+        return true;
+      }
+      slot = (slot + 1) & mask;
+      current = keys[slot];
+    }
+    return false;
+  }
+
+  /** Returns the number of distinct keys stored. */
+  public int size() {
+    return size;
+  }
+
+  /** Returns {@code true} when no key has been added since construction or the last clear. */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Forgets every key but keeps the allocated table for reuse. */
+  public void clear() {
+    Arrays.fill(keys, 0L);
+    containsZero = false;
+    size = 0;
+  }
+
+  /**
+   * Approximate retained heap of this set (object header, fields and the key table).
+   *
+   * @return bytes held by the set itself
+   */
+  public long footprintBytes() {
+    return HashSupport.OBJECT_OVERHEAD_BYTES + HashSupport.arrayBytes(keys.length, Long.BYTES);
+  }
+
+  private void allocate(final int capacity) {
+    keys = new long[capacity];
+    mask = capacity - 1;
+    resizeThreshold = (int) (capacity * loadFactor);
+  }
+
+  private void rehash(final int newCapacity) {
+    long[] old = keys;
+    allocate(newCapacity);
+    for (long key : old) {
+      if (key != 0L) {
+        int slot = HashSupport.mix(key) & mask;
+        while (keys[slot] != 0L) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+      }
+    }
+  }
+}
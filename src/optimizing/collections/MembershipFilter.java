@@ -0,0 +1,43 @@
+package optimizing.collections;
+
+/**
+ * Approximate set membership: "definitely not seen" or "maybe seen", in fixed memory.
+ *
+ * <p>Filters work on a 64-bit key hash so a caller that both checks and inserts hashes the key
+ * only once; use {@link #hashOf} to produce it.
+ */
+public interface MembershipFilter {
+
+  /**
+   * Hashes a key for use with this interface.
+   *
+   * @param key transaction ID or any other text key
+   * @return 64-bit hash with well-mixed bits
+   */
+  static long hashOf(final CharSequence key) {
+    return HashSupport.hash64(key);
+  }
+
+  /**
+   * Checks a key hash.
+   *
+   * @param keyHash value from {@link #hashOf}
+   * @return {@code false} if the key was definitely never added; {@code true} if it maybe was
+   */
+  boolean mightContain(long keyHash);
+
+  /**
+   * Records a key hash.
+   *
+   * @param keyHash value from {@link #hashOf}
+   * @return {@code true} if the filter changed, i.e. the key was definitely new
+   */
+  boolean put(long keyHash);
+
+  /**
+   * Approximate heap retained by the filter's bit arrays.
+   *
+   * @return bytes
+   */
+  long footprintBytes();
+}
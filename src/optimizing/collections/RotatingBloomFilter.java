@@ -0,0 +1,92 @@
+package optimizing.collections;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Sliding-window Bloom filter for checks like "was this ID seen in the last 24 hours?".
+ *
+ * <p>The window is split into {@code generations} equal slices, each backed by its own fixed-size
+ * {@link BloomFilter}. Inserts go to the current slice; lookups consult every slice. When the
+ * clock moves into a new slice the oldest one is cleared and reused, so memory is allocated once
+ * and never grows. Keys expire between {@code window - window/generations} and {@code window}
+ * after they were added; more generations make that edge sharper.
+ *
+ * <p>A lookup can hit a false positive in any slice, so each slice is sized for {@code
+ * falsePositiveRate / generations} to keep the union at the requested rate. Not thread-safe.
+ */
+public final class RotatingBloomFilter implements MembershipFilter {
+  private final BloomFilter[] slices;
+  private final long sliceMillis;
+  private final Clock clock;
+  private long currentEpoch;
+
+  /**
+   * Creates a rotating filter.
+   *
+   * @param window how long a key should be remembered
+   * @param generations number of slices the window is divided into
+   * @param expectedPerSlice distinct keys expected within one slice
+   * @param falsePositiveRate target probability in (0, 1) for the whole window
+   * @param clock time source; inject a fixed or offset clock in demos and tests
+   */
+  public RotatingBloomFilter(
+      final Duration window,
+      final int generations,
+      final long expectedPerSlice,
+      final double falsePositiveRate,
+      final Clock clock) {
+    if (generations < 2) {
+      throw new IllegalArgumentException("generations must be at least 2");
+    }
+    if (window.toMillis() < generations) {
+      throw new IllegalArgumentException("window too short for " + generations + " slices");
+    }
+    this.clock = Objects.requireNonNull(clock, "clock cannot be null");
+    this.sliceMillis = window.toMillis() / generations;
+    this.slices = new BloomFilter[generations];
+    for (int i = 0; i < generations; i++) {
+      slices[i] = new BloomFilter(expectedPerSlice, falsePositiveRate / generations);
+    }
+    this.currentEpoch = clock.millis() / sliceMillis;
+  }
+
+  @Override
+  public boolean mightContain(final long keyHash) {
+    advance();
+    for (BloomFilter slice : slices) {
+      if (slice.mightContain(keyHash)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean put(final long keyHash) {
+    advance();
+    return slices[(int) (currentEpoch % slices.length)].put(keyHash);
+  }
+
+  @Override
+  public long footprintBytes() {
+    long total = 0;
+    for (BloomFilter slice : slices) {
+      total += slice.footprintBytes();
+    }
+    return total;
+  }
+
+  // Clear every slice the clock has moved past (at most all of them after a long idle gap).
+  private void advance() {
+    long epoch = clock.millis() / sliceMillis;
+    long steps = Math.min(epoch - currentEpoch, slices.length);
+    for (long step = 1; step <= steps; step++) {
+      slices[(int) ((currentEpoch + step) % slices.length)].clear();
+    }
+    if (epoch > currentEpoch) {
+      currentEpoch = epoch;
+    }
+  }
+}
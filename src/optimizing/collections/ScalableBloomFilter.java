@@ -0,0 +1,85 @@
+package optimizing.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bloom filter that grows by appending stages instead of degrading once it is full.
+ *
+ * <p>Each new stage has twice the capacity of the previous one and half its false-positive budget,
+ * so the compounded rate stays below the configured target however many stages get added
+ * (Almeida et al., "Scalable Bloom Filters"). Use it when the stream size is unknown up front;
+ * use {@link RotatingBloomFilter} when memory must stay flat. Not thread-safe.
+ */
+public final class ScalableBloomFilter implements MembershipFilter {
+  private static final int GROWTH_FACTOR = 2;
+  private static final double TIGHTENING_RATIO = 0.5;
+
+  private final List<BloomFilter> stages = new ArrayList<>();
+  private long nextCapacity;
+  private double nextFalsePositiveRate;
+
+  /**
+   * Creates a filter whose first stage holds {@code initialCapacity} keys.
+   *
+   * @param initialCapacity keys the first stage is sized for
+   * @param falsePositiveRate overall target probability in (0, 1) across all stages
+   */
+  public ScalableBloomFilter(final long initialCapacity, final double falsePositiveRate) {
+    if (initialCapacity <= 0) {
+      throw new IllegalArgumentException("initialCapacity must be positive");
+    }
+    if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+      throw new IllegalArgumentException("falsePositiveRate must be in (0, 1)");
+    }
+    this.nextCapacity = initialCapacity;
+    // Geometric series: p(1 - r) + p(1 - r)r + ... = p.
+    this.nextFalsePositiveRate = falsePositiveRate * (1 - TIGHTENING_RATIO);
+    addStage();
+  }
+
+  @Override
+  public boolean mightContain(final long keyHash) {
+    // Newest stage first: recent keys are the likeliest repeats in a stream.
+    for (int i = stages.size() - 1; i >= 0; i--) {
+      if (stages.get(i).mightContain(keyHash)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean put(final long keyHash) {
+    if (mightContain(keyHash)) {
+      return false;
+    }
+    BloomFilter current = stages.get(stages.size() - 1);
+    if (current.isSaturated()) {
+      current = addStage();
+    }
+    return current.put(keyHash);
+  }
+
+  /** Returns how many stages have been allocated so far. */
+  public int stageCount() {
+    return stages.size();
+  }
+
+  @Override
+  public long footprintBytes() {
+    long total = 0;
+    for (BloomFilter stage : stages) {
+      total += stage.footprintBytes();
+    }
+    return total;
+  }
+
+  private BloomFilter addStage() {
+    BloomFilter stage = new BloomFilter(nextCapacity, nextFalsePositiveRate);
+    stages.add(stage);
+    nextCapacity *= GROWTH_FACTOR;
+    nextFalsePositiveRate *= TIGHTENING_RATIO;
+    return stage;
+  }
+}
@@ -0,0 +1,306 @@
+package optimizing.collections;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Concurrent {@code String}-keyed directory for many writers at once, e.g. contacts streaming in
+ * from several feeds.
+ *
+ * <p>Keys are spread over a power-of-two number of shards, each an open-addressing table with
+ * linear probing and cached hashes, like {@link StringOpenHashSet}. A writer locks only its key's
+ * shard, so writers on different shards never wait for each other. Reads take no lock at all: a
+ * slot's key and value are written before its hash is published with release semantics, so a
+ * reader that sees the hash also sees the entry, and a full table is replaced by a larger copy
+ * through a volatile field rather than rehashed in place.
+ *
+ * <p>{@link #putAll} groups a batch by shard first and then takes each shard's lock once, growing
+ * the table up front, instead of locking and possibly rehashing per entry.
+ *
+ * <p>Null keys and values are rejected. Iteration is weakly consistent. Entries cannot be removed.
+ *
+ * @param <V> value type
+ */
+public final class ShardedDirectory<V> {
+  private static final float LOAD_FACTOR = 0.75f;
+  private static final int MIN_CAPACITY = 16;
+  private static final VarHandle HASHES = MethodHandles.arrayElementVarHandle(int[].class);
+  private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Object[].class);
+
+  private final Shard[] shards;
+  private final int shardShift;
+
+  /** Creates a directory with 64 shards, enough stripes for a few dozen concurrent writers. */
+  public ShardedDirectory() {
+    this(64, 0);
+  }
+
+  /**
+   * Creates a directory pre-sized so {@code expectedSize} evenly spread keys never trigger a
+   * rehash.
+   *
+   * @param shardCount number of shards (lock stripes); rounded up to a power of two, at least 2
+   * @param expectedSize number of keys the caller plans to add
+   */
+  public ShardedDirectory(final int shardCount, final int expectedSize) {
+    if (shardCount <= 0 || shardCount > 1 << 16) {
+      throw new IllegalArgumentException("shardCount must be in [1, 65536]");
+    }
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("expectedSize must be >= 0");
+    }
+    int count = Math.max(2, Integer.highestOneBit(shardCount - 1) << 1);
+    this.shards = new Shard[count];
+    this.shardShift = Integer.SIZE - Integer.numberOfTrailingZeros(count);
+    // A little headroom per shard, since keys never split perfectly evenly.
+    int perShard = (int) Math.min(Integer.MAX_VALUE / 2, expectedSize / (long) count * 9 / 8);
+    for (int i = 0; i < count; i++) {
+      shards[i] = new Shard(HashSupport.tableSizeFor(perShard, LOAD_FACTOR, MIN_CAPACITY));
+    }
+  }
+
+  /**
+   * Looks up a key without locking.
+   *
+   * @param key key to look for; {@code null} is never present
+   * @return the value, or {@code null} if absent
+   */
+  @SuppressWarnings("unchecked")
+  public V get(final String key) {
+    if (key == null) {
+      return null;
+    }
+    int hash = storedHash(key);
+    Table table = shardFor(hash).table;
+    int slot = HashSupport.mix(hash) & table.mask;
+    int current = (int) HASHES.getAcquire(table.hashes, slot);
+    while (current != 0) {
+      if (current == hash && table.keys[slot].equals(key)) {
+        return (V) VALUES.getAcquire(table.values, slot);
+      }
+      slot = (slot + 1) & table.mask;
+      current = (int) HASHES.getAcquire(table.hashes, slot);
+    }
+    return null;
+  }
+
+  /**
+   * Checks membership without locking.
+   *
+   * @param key key to look for
+   * @return {@code true} if the key has been added
+   */
+  public boolean containsKey(final String key) {
+    return get(key) != null;
+  }
+
+  /**
+   * Adds or replaces an entry, locking only the key's shard.
+   *
+   * @param key non-null key
+   * @param value non-null value
+   * @return the previous value, or {@code null} if the key was new
+   */
+  public V put(final String key, final V value) {
+    Objects.requireNonNull(key, "key cannot be null");
+    Objects.requireNonNull(value, "value cannot be null");
+    int hash = storedHash(key);
+    Shard shard = shardFor(hash);
+    shard.lock.lock();
+    try {
+      return shard.put(hash, key, value);
+    } finally {
+      shard.lock.unlock();
+    }
+  }
+
+  /**
+   * Adds a batch of values under keys derived from them. Each shard's lock is taken once for the
+   * whole batch, and its table is grown to fit before inserting.
+   *
+   * @param values values to add; later duplicates of a key replace earlier ones
+   * @param keyOf derives each value's key
+   */
+  @SuppressWarnings("unchecked")
+  public void putAll(final Iterable<? extends V> values, final Function<? super V, String> keyOf) {
+    Objects.requireNonNull(values, "values cannot be null");
+    Objects.requireNonNull(keyOf, "keyOf cannot be null");
+    Batch[] batches = new Batch[shards.length];
+    for (V value : values) {
+      Objects.requireNonNull(value, "values cannot contain null");
+      String key = Objects.requireNonNull(keyOf.apply(value), "keyOf returned null");
+      int hash = storedHash(key);
+      int shard = shardIndex(hash);
+      if (batches[shard] == null) {
+        batches[shard] = new Batch();
+      }
+      batches[shard].add(hash, key, value);
+    }
+    for (int i = 0; i < shards.length; i++) {
+      Batch batch = batches[i];
+      if (batch == null) {
+        continue;
+      }
+      Shard shard = shards[i];
+      shard.lock.lock();
+      try {
+        shard.ensureCapacity(shard.size + batch.size);
+        for (int e = 0; e < batch.size; e++) {
+          shard.put(batch.hashes[e], batch.keys[e], (V) batch.values[e]);
+        }
+      } finally {
+        shard.lock.unlock();
+      }
+    }
+  }
+
+  /** Returns the number of keys; a moving target while writers are active. */
+  public int size() {
+    long total = 0;
+    for (Shard shard : shards) {
+      total += shard.size;
+    }
+    return (int) Math.min(Integer.MAX_VALUE, total);
+  }
+
+  /**
+   * Visits every entry without locking. Entries added meanwhile may or may not be seen.
+   *
+   * @param action receives each key and value
+   */
+  @SuppressWarnings("unchecked")
+  public void forEach(final BiConsumer<? super String, ? super V> action) {
+    Objects.requireNonNull(action, "action cannot be null");
+    for (Shard shard : shards) {
+      Table table = shard.table;
+      for (int slot = 0; slot < table.hashes.length; slot++) {
+        if ((int) HASHES.getAcquire(table.hashes, slot) != 0) {
+          action.accept(table.keys[slot], (V) VALUES.getAcquire(table.values, slot));
+        }
+      }
+    }
+  }
+
+  /** Returns the number of shards (lock stripes). */
+  public int shardCount() {
+    return shards.length;
+  }
+
+  private Shard shardFor(final int hash) {
+    return shards[shardIndex(hash)];
+  }
+
+  // Top bits pick the shard, low bits the slot, so the two stay independent.
+  private int shardIndex(final int hash) {
+    return HashSupport.mix(hash) >>> shardShift;
+  }
+
+  private static int storedHash(final String key) {
+    int hash = key.hashCode();
+    return hash == 0 ? 1 : hash;
+  }
+
+  /** Immutable-shape table; only empty slots are ever filled, and values replaced. */
+  private static final class Table {
+    private final int[] hashes;
+    private final String[] keys;
+    private final Object[] values;
+    private final int mask;
+    private final int resizeThreshold;
+
+    private Table(final int capacity) {
+      hashes = new int[capacity];
+      keys = new String[capacity];
+      values = new Object[capacity];
+      mask = capacity - 1;
+      resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+  }
+
+  /** One lock stripe and its table. Mutated only while holding {@code lock}. */
+  private static final class Shard {
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Table table;
+    private volatile int size;
+
+    private Shard(final int capacity) {
+      table = new Table(capacity);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> V put(final int hash, final String key, final V value) {
+      Table current = table;
+      int slot = HashSupport.mix(hash) & current.mask;
+      int stored = current.hashes[slot];
+      while (stored != 0) {
+        if (stored == hash && current.keys[slot].equals(key)) {
+          V previous = (V) current.values[slot];
+          VALUES.setRelease(current.values, slot, value);
+          return previous;
+        }
+        slot = (slot + 1) & current.mask;
+        stored = current.hashes[slot];
+      }
+      current.keys[slot] = key;
+      current.values[slot] = value;
+      // Publishing the hash last makes the key and value visible to lock-free readers with it.
+      HASHES.setRelease(current.hashes, slot, hash);
+      int newSize = size + 1;
+      size = newSize;
+      if (newSize > current.resizeThreshold) {
+        table = copy(current, current.hashes.length << 1);
+      }
+      return null;
+    }
+
+    private void ensureCapacity(final int expectedSize) {
+      Table current = table;
+      if (expectedSize > current.resizeThreshold) {
+        table = copy(current, HashSupport.tableSizeFor(expectedSize, LOAD_FACTOR, MIN_CAPACITY));
+      }
+    }
+
+    // Builds a larger table off to the side; readers keep using the old one until it is published.
+    private static Table copy(final Table old, final int capacity) {
+      Table grown = new Table(capacity);
+      for (int i = 0; i < old.hashes.length; i++) {
+        int hash = old.hashes[i];
+        if (hash != 0) {
+          int slot = HashSupport.mix(hash) & grown.mask;
+          while (grown.hashes[slot] != 0) {
+            slot = (slot + 1) & grown.mask;
+          }
+          grown.hashes[slot] = hash;
+          grown.keys[slot] = old.keys[i];
+          grown.values[slot] = old.values[i];
+        }
+      }
+      return grown;
+    }
+  }
+
+  /** Entries of one {@link #putAll} batch that belong to the same shard. */
+  private static final class Batch {
+    private int[] hashes = new int[16];
+    private String[] keys = new String[16];
+    private Object[] values = new Object[16];
+    private int size;
+
+    private void add(final int hash, final String key, final Object value) {
+      if (size == hashes.length) {
+        hashes = Arrays.copyOf(hashes, size * 2);
+        keys = Arrays.copyOf(keys, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      hashes[size] = hash;
+      keys[size] = key;
+      values[size] = value;
+      size++;
+    }
+  }
+}
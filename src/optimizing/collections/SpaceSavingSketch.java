@@ -0,0 +1,281 @@
+package optimizing.collections;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy-hitters sketch (Metwally, Agrawal, El Abbadi) for "top K" queries over an
+ * unbounded stream in fixed memory.
+ *
+ * <p>At most {@code capacity} items are monitored. A new item that does not fit replaces the
+ * item with the smallest count and inherits that count as its error, so every reported count is an
+ * upper bound and {@code count - error} is a lower bound. Any item whose true frequency exceeds
+ * {@code total / capacity} is guaranteed to be monitored. A capacity of about 10 × K is a good
+ * default for a top-K query on skewed data.
+ *
+ * <p>Counters sit in a "stream summary": buckets of equal count in a doubly linked list, ascending.
+ * Incrementing moves a counter to the neighbouring bucket and evicting takes the head of the first
+ * bucket, so {@link #offer} is O(1). Sketches built on different threads or nodes can be combined
+ * with {@link #mergeFrom}. Not thread-safe.
+ *
+ * @param <T> item type; needs consistent {@code equals}/{@code hashCode}
+ */
+public final class SpaceSavingSketch<T> {
+  private final int capacity;
+  private final Map<T, Counter<T>> monitored;
+  private Bucket<T> minBucket;
+  private long total;
+
+  /**
+   * One monitored item with its estimated frequency.
+   *
+   * @param item the item
+   * @param count upper bound on the true frequency
+   * @param error maximum over-count; {@code count - error} is a lower bound
+   * @param <T> item type
+   */
+  public record Estimate<T>(T item, long count, long error) {
+    /** Returns the lower bound on the item's true frequency. */
+    public long guaranteedCount() {
+      return count - error;
+    }
+  }
+
+  /**
+   * Creates a sketch that monitors up to {@code capacity} items.
+   *
+   * @param capacity number of counters; memory stays proportional to this
+   */
+  public SpaceSavingSketch(final int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    this.capacity = capacity;
+    this.monitored = new HashMap<>((int) (capacity / 0.75f) + 1);
+  }
+
+  /**
+   * Counts one occurrence of {@code item} in O(1).
+   *
+   * @param item stream element; must not be {@code null}
+   */
+  public void offer(final T item) {
+    total++;
+    Counter<T> counter = monitored.get(item);
+    if (counter == null) {
+      if (monitored.size() < capacity) {
+        counter = new Counter<>(item, 0);
+        attachToBucketWithCount(counter, null, 0);
+        monitored.put(item, counter);
+      } else {
+        // Recycle the smallest counter: the newcomer may have been evicted earlier with that count.
+        counter = minBucket.head;
+        monitored.remove(counter.item);
+        counter.item = item;
+        counter.error = counter.bucket.count;
+        monitored.put(item, counter);
+      }
+    }
+    increment(counter);
+  }
+
+  /**
+   * Adds another sketch's counters into this one. Items missing from a side are charged that
+   * side's minimum count (both to the count and to the error), which keeps the upper/lower bound
+   * guarantees; the largest {@code capacity} results are kept.
+   *
+   * @param other sketch built over a disjoint part of the stream; left unchanged
+   */
+  public void mergeFrom(final SpaceSavingSketch<T> other) {
+    long ownMin = monitored.size() < capacity ? 0 : minCount();
+    long otherMin = other.monitored.size() < other.capacity ? 0 : other.minCount();
+    // Per item: {count, error}.
+    Map<T, long[]> merged = new HashMap<>();
+    for (Counter<T> counter : monitored.values()) {
+      boolean shared = other.monitored.containsKey(counter.item);
+      long charge = shared ? 0 : otherMin;
+      merged.put(
+          counter.item, new long[] {counter.bucket.count + charge, counter.error + charge});
+    }
+    for (Counter<T> counter : other.monitored.values()) {
+      long[] mine = merged.get(counter.item);
+      if (mine == null) {
+        merged.put(
+            counter.item,
+            new long[] {counter.bucket.count + ownMin, counter.error + ownMin});
+      } else {
+        mine[0] += counter.bucket.count;
+        mine[1] += counter.error;
+      }
+    }
+
+    List<Map.Entry<T, long[]>> ranked = new ArrayList<>(merged.entrySet());
+    ranked.sort(Comparator.comparingLong(entry -> entry.getValue()[0]));
+    int keepFrom = Math.max(0, ranked.size() - capacity);
+
+    monitored.clear();
+    minBucket = null;
+    Bucket<T> last = null;
+    for (int i = keepFrom; i < ranked.size(); i++) {
+      Map.Entry<T, long[]> entry = ranked.get(i);
+      Counter<T> counter = new Counter<>(entry.getKey(), entry.getValue()[1]);
+      last = attachToBucketWithCount(counter, last, entry.getValue()[0]);
+      monitored.put(counter.item, counter);
+    }
+    total += other.total;
+  }
+
+  /**
+   * Returns the {@code n} items with the largest estimated counts, highest first.
+   *
+   * @param n how many items to report; at most the sketch capacity is meaningful
+   * @return estimates in descending count order
+   */
+  public List<Estimate<T>> top(final int n) {
+    List<Estimate<T>> result = new ArrayList<>(Math.min(n, monitored.size()));
+    Bucket<T> bucket = minBucket;
+    while (bucket != null && bucket.next != null) {
+      bucket = bucket.next;
+    }
+    for (; bucket != null && result.size() < n; bucket = bucket.previous) {
+      for (Counter<T> c = bucket.head; c != null && result.size() < n; c = c.next) {
+        result.add(new Estimate<>(c.item, bucket.count, c.error));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the estimate for one item.
+   *
+   * @param item item to look up
+   * @return its estimate, or {@code null} when it is not monitored
+   */
+  public Estimate<T> estimate(final T item) {
+    Counter<T> counter = monitored.get(item);
+    return counter == null ? null : new Estimate<>(item, counter.bucket.count, counter.error);
+  }
+
+  /** Returns how many stream elements were offered, including merged sketches. */
+  public long totalCount() {
+    return total;
+  }
+
+  /** Returns the configured number of counters. */
+  public int capacity() {
+    return capacity;
+  }
+
+  private long minCount() {
+    return minBucket == null ? 0 : minBucket.count;
+  }
+
+  private void increment(final Counter<T> counter) {
+    Bucket<T> from = counter.bucket;
+    long target = from.count + 1;
+    Bucket<T> next = from.next;
+    detach(counter);
+    Bucket<T> anchor = from.head == null ? unlink(from) : from;
+    if (next != null && next.count == target) {
+      next.push(counter);
+    } else {
+      attachToBucketWithCount(counter, anchor, target);
+    }
+  }
+
+  // Places the counter in a bucket holding `count`, creating one right after `after` if needed
+  // (null means "at the front of the list"). Returns the bucket used.
+  private Bucket<T> attachToBucketWithCount(
+      final Counter<T> counter, final Bucket<T> after, final long count) {
+    Bucket<T> candidate = after == null ? minBucket : after.next;
+    if (after != null && after.count == count) {
+      after.push(counter);
+      return after;
+    }
+    if (candidate != null && candidate.count == count) {
+      candidate.push(counter);
+      return candidate;
+    }
+    Bucket<T> bucket = new Bucket<>(count);
+    bucket.previous = after;
+    bucket.next = candidate;
+    if (candidate != null) {
+      candidate.previous = bucket;
+    }
+    if (after == null) {
+      minBucket = bucket;
+    } else {
+      after.next = bucket;
+    }
+    bucket.push(counter);
+    return bucket;
+  }
+
+  private void detach(final Counter<T> counter) {
+    Bucket<T> bucket = counter.bucket;
+    if (counter.previous == null) {
+      bucket.head = counter.next;
+    } else {
+      counter.previous.next = counter.next;
+    }
+    if (counter.next != null) {
+      counter.next.previous = counter.previous;
+    }
+    counter.previous = null;
+    counter.next = null;
+    counter.bucket = null;
+  }
+
+  // Removes an empty bucket and returns its predecessor (the new insertion anchor).
+  private Bucket<T> unlink(final Bucket<T> bucket) {
+    Bucket<T> previous = bucket.previous;
+    if (previous == null) {
+      minBucket = bucket.next;
+    } else {
+      previous.next = bucket.next;
+    }
+    if (bucket.next != null) {
+      bucket.next.previous = previous;
+    }
+    return previous;
+  }
+
+  /** All counters sharing one count value. */
+  private static final class Bucket<T> {
+    private final long count;
+    private Bucket<T> previous;
+    private Bucket<T> next;
+    private Counter<T> head;
+
+    private Bucket(final long count) {
+      this.count = count;
+    }
+
+    private void push(final Counter<T> counter) {
+      counter.bucket = this;
+      counter.previous = null;
+      counter.next = head;
+      if (head != null) {
+        head.previous = counter;
+      }
+      head = counter;
+    }
+  }
+
+  /** One monitored item; reused in place when evicted. */
+  private static final class Counter<T> {
+    private T item;
+    private long error;
+    private Bucket<T> bucket;
+    private Counter<T> previous;
+    private Counter<T> next;
+
+    private Counter(final T item, final long error) {
+      this.item = item;
+      this.error = error;
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package optimizing.collections;
+
+import java.util.Objects;
+
+/**
+ * Duplicate detector for unbounded ID streams: a {@link MembershipFilter} in front of an exact
+ * store.
+ *
+ * <p>Most IDs are new, and the filter answers "definitely not seen" for them without touching the
+ * store beyond a write. Only the rare "maybe seen" answers (true repeats plus the configured
+ * false-positive fraction) pay for an exact lookup. Pair it with {@link RotatingBloomFilter} and a
+ * store that expires entries to get "duplicate within the last 24h" semantics in flat memory.
+ * Not thread-safe; give each stream partition its own detector.
+ */
+public final class StreamingDuplicateDetector {
+  private final MembershipFilter filter;
+  private final SeenStore store;
+  private long checked;
+  private long exactLookups;
+  private long falsePositives;
+
+  /**
+   * Authoritative record of IDs already processed, e.g. a database table or a key-value store
+   * with a TTL. It is written for every new ID but read only when the filter says "maybe".
+   */
+  public interface SeenStore {
+    /**
+     * Checks whether the ID was recorded (and, for windowed stores, has not expired yet).
+     *
+     * @param id transaction ID
+     * @return {@code true} for a confirmed duplicate
+     */
+    boolean contains(String id);
+
+    /**
+     * Records a first sighting.
+     *
+     * @param id transaction ID
+     */
+    void record(String id);
+  }
+
+  /**
+   * Creates a detector.
+   *
+   * @param filter approximate pre-filter; its false-positive rate sets how often the store is read
+   * @param store exact backing store
+   */
+  public StreamingDuplicateDetector(final MembershipFilter filter, final SeenStore store) {
+    this.filter = Objects.requireNonNull(filter, "filter cannot be null");
+    this.store = Objects.requireNonNull(store, "store cannot be null");
+  }
+
+  /**
+   * Checks an ID and remembers it.
+   *
+   * @param id transaction ID
+   * @return {@code true} if the ID was seen before (confirmed by the store)
+   */
+  public boolean isDuplicate(final String id) {
+    checked++;
+    long hash = MembershipFilter.hashOf(id);
+    if (!filter.mightContain(hash)) {
+      filter.put(hash);
+      store.record(id);
+      return false;
+    }
+    exactLookups++;
+    // Re-add either way: with a rotating filter the "maybe" may come from an old slice, and the
+    // key should stay visible for a full window from its latest sighting.
+    filter.put(hash);
+    if (store.contains(id)) {
+      return true;
+    }
+    falsePositives++;
+    store.record(id);
+    return false;
+  }
+
+  /** Returns how many IDs went through {@link #isDuplicate}. */
+  public long checkedCount() {
+    return checked;
+  }
+
+  /** Returns how many IDs needed an exact store lookup. */
+  public long exactLookupCount() {
+    return exactLookups;
+  }
+
+  /** Returns how many exact lookups turned out to be filter false positives. */
+  public long falsePositiveCount() {
+    return falsePositives;
+  }
+
+  /** Returns the filter's approximate heap footprint in bytes. */
+  public long filterFootprintBytes() {
+    return filter.footprintBytes();
+  }
+}
@@ -0,0 +1,165 @@
+package optimizing.collections;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Open-addressing set of {@code String} keys with linear probing and a parallel array of stored
+ * hashes.
+ *
+ * <p>{@code HashSet<String>} allocates a 32-byte {@code HashMap.Node} per entry on top of the
+ * bucket slot. Here an entry costs one reference plus one {@code int}. Probes compare the cached
+ * hash first, so {@link String#equals} only runs on a genuine hash match. A stored hash of zero
+ * marks an empty slot; real zero hashes are remapped to {@code 1}.
+ *
+ * <p>Null keys are rejected. Not thread-safe.
+ */
+public final class StringOpenHashSet {
+  private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+  private static final int MIN_CAPACITY = 16;
+
+  private final float loadFactor;
+  private int[] hashes;
+  private String[] keys;
+  private int mask;
+  private int size;
+  private int resizeThreshold;
+
+  /** Creates a set sized for a handful of entries; it grows on demand. */
+  public StringOpenHashSet() {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   * Creates a set pre-sized so {@code expectedSize} inserts never trigger a rehash.
+   *
+   * @param expectedSize number of keys the caller plans to add
+   */
+  public StringOpenHashSet(final int expectedSize) {
+    this(expectedSize, DEFAULT_LOAD_FACTOR);
+  }
+
+  /**
+   * Creates a set with an explicit load factor; lower values trade memory for shorter probes.
+   *
+   * @param expectedSize number of keys the caller plans to add
+   * @param loadFactor fill ratio in (0, 1) at which the table doubles
+   */
+  public StringOpenHashSet(final int expectedSize, final float loadFactor) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("expectedSize must be >= 0");
+    }
+    if (!(loadFactor > 0f && loadFactor < 1f)) {
+      throw new IllegalArgumentException("loadFactor must be in (0, 1)");
+    }
+    this.loadFactor = loadFactor;
+    allocate(HashSupport.tableSizeFor(expectedSize, loadFactor, MIN_CAPACITY));
+  }
+
+  /**
+   * Adds a key.
+   *
+   * @param key non-null string to remember
+   * @return {@code true} if the key was new, {@code false} if it was already present
+   */
+  public boolean add(final String key) {
+    Objects.requireNonNull(key, "key cannot be null");
+    int hash = storedHash(key);
+    int slot = HashSupport.mix(hash) & mask;
+    int current = hashes[slot];
+    while (current != 0) {
+      if (current == hash && keys[slot].equals(key)) {
+        return false;
+      }
+      slot = (slot + 1) & mask;
+      current = hashes[slot];
+    }
+    hashes[slot] = hash;
+    keys[slot] = key;
+    if (++size > resizeThreshold) {
+      rehash(keys.length << 1);
+    }
+    return true;
+  }
+
+  /**
+   * Checks membership.
+   *
+   * @param key string to look for; {@code null} is never contained
+   * @return {@code true} when the key was previously added
+   */
+  public boolean contains(final String key) {
+    if (key == null) {
+      return false;
+    }
+    int hash = storedHash(key);
+    int slot = HashSupport.mix(hash) & mask;
+    int current = hashes[slot];
+    while (current != 0) {
+      if (current == hash && keys[slot].equals(key)) {
+        return true;
+      }
+      slot = (slot + 1) & mask;
+      current = hashes[slot];
+    }
+    return false;
+  }
+
+  /** Returns the number of distinct keys stored. */
+  public int size() {
+    return size;
+  }
+
+  /** Returns {@code true} when no key has been added since construction or the last clear. */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Forgets every key but keeps the allocated tables for reuse. */
+  public void clear() {
+    Arrays.fill(hashes, 0);
+    Arrays.fill(keys, null);
+    size = 0;
+  }
+
+  /**
+   * Approximate retained heap of the table structure, excluding the {@code String} objects which
+   * the caller already owns (the same strings would be referenced by a {@code HashSet} too).
+   *
+   * @return bytes held by the set itself
+   */
+  public long footprintBytes() {
+    return HashSupport.OBJECT_OVERHEAD_BYTES
+        + HashSupport.arrayBytes(hashes.length, Integer.BYTES)
+        + HashSupport.arrayBytes(keys.length, Integer.BYTES);
+  }
+
+  private static int storedHash(final String key) {
+    int hash = key.hashCode();
+    return hash == 0 ? 1 : hash;
+  }
+
+  private void allocate(final int capacity) {
+    hashes = new int[capacity];
+    keys = new String[capacity];
+    mask = capacity - 1;
+    resizeThreshold = (int) (capacity * loadFactor);
+  }
+
+  private void rehash(final int newCapacity) {
+    int[] oldHashes = hashes;
+    String[] oldKeys = keys;
+    allocate(newCapacity);
+    for (int i = 0; i < oldHashes.length; i++) {
+      int hash = oldHashes[i];
+      if (hash != 0) {
+        int slot = HashSupport.mix(hash) & mask;
+        while (hashes[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        hashes[slot] = hash;
+        keys[slot] = oldKeys[i];
+      }
+    }
+  }
+}
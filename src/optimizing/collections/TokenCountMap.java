@@ -0,0 +1,279 @@
+package optimizing.collections;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Word → {@code int} count map keyed directly by UTF-8 byte ranges (an "Object2Int" map without
+ * the objects).
+ *
+ * <p>{@link #increment} hashes and compares the token straight out of the caller's buffer while
+ * folding ASCII {@code A-Z} to lower case on the fly, so counting a token that is already present
+ * allocates nothing. The lower-cased bytes are copied into a shared byte arena only the first time
+ * a word is seen. Tokens containing non-ASCII bytes take a slow path through {@link
+ * String#toLowerCase(Locale)} with {@link Locale#ROOT} so results match the String-based counter
+ * exactly.
+ *
+ * <p>Slots use open addressing with linear probing over parallel {@code int[]} arrays; a stored
+ * hash of zero marks an empty slot. Not thread-safe: give each worker its own map and {@link
+ * #mergeFrom merge} at the end.
+ */
+public final class TokenCountMap {
+  private static final float LOAD_FACTOR = 0.6f;
+  private static final int MIN_CAPACITY = 64;
+
+  private byte[] arena;
+  private int arenaUsed;
+  private int[] hashes;
+  private int[] offsets;
+  private int[] lengths;
+  private int[] counts;
+  private int mask;
+  private int size;
+  private int resizeThreshold;
+  private long total;
+
+  /** Creates an empty map; it grows on demand. */
+  public TokenCountMap() {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   * Creates an empty map pre-sized for a vocabulary of {@code expectedWords}.
+   *
+   * @param expectedWords distinct words the caller expects
+   */
+  public TokenCountMap(final int expectedWords) {
+    if (expectedWords < 0) {
+      throw new IllegalArgumentException("expectedWords must be >= 0");
+    }
+    allocateSlots(HashSupport.tableSizeFor(expectedWords, LOAD_FACTOR, MIN_CAPACITY));
+    arena = new byte[Math.max(1024, expectedWords * 8)];
+  }
+
+  /**
+   * Counts one occurrence of the token {@code buffer[from, to)}, lower-cased.
+   *
+   * @param buffer UTF-8 bytes; never modified
+   * @param from first byte of the token (inclusive)
+   * @param to end of the token (exclusive)
+   */
+  public void increment(final byte[] buffer, final int from, final int to) {
+    if (from >= to) {
+      return;
+    }
+    int h = 0;
+    for (int i = from; i < to; i++) {
+      byte b = buffer[i];
+      if (b < 0) {
+        incrementNonAscii(buffer, from, to);
+        return;
+      }
+      h = 31 * h + lowerAscii(b);
+    }
+    add(buffer, from, to - from, storedHash(h), 1, true);
+  }
+
+  /**
+   * Adds every count from {@code other} into this map.
+   *
+   * @param other map built by another worker; left unchanged
+   */
+  public void mergeFrom(final TokenCountMap other) {
+    for (int slot = 0; slot < other.hashes.length; slot++) {
+      int hash = other.hashes[slot];
+      if (hash != 0) {
+        add(other.arena, other.offsets[slot], other.lengths[slot], hash, other.counts[slot], false);
+      }
+    }
+  }
+
+  /**
+   * Looks up a word's count; the word is lower-cased with {@link Locale#ROOT} first.
+   *
+   * @param word word to look up
+   * @return number of occurrences, or 0 when absent
+   */
+  public int get(final String word) {
+    byte[] key = word.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+    int h = 0;
+    for (byte b : key) {
+      h = 31 * h + b;
+    }
+    int slot = find(key, 0, key.length, storedHash(h), false);
+    return slot < 0 ? 0 : counts[slot];
+  }
+
+  /** Returns the number of distinct words. */
+  public int size() {
+    return size;
+  }
+
+  /** Returns the number of tokens counted, duplicates included. */
+  public long totalCount() {
+    return total;
+  }
+
+  /**
+   * Visits every word with its count. Each visit decodes one String, so call this on the merged
+   * result, not inside the counting loop.
+   *
+   * @param action receives (word, count)
+   */
+  public void forEach(final ObjIntConsumer<String> action) {
+    for (int slot = 0; slot < hashes.length; slot++) {
+      if (hashes[slot] != 0) {
+        action.accept(
+            new String(arena, offsets[slot], lengths[slot], StandardCharsets.UTF_8), counts[slot]);
+      }
+    }
+  }
+
+  /**
+   * Copies the counts into a boxed map, for callers that still expect {@code Map<String,
+   * Integer>}.
+   *
+   * @return new {@link HashMap} with one entry per word
+   */
+  public Map<String, Integer> toMap() {
+    Map<String, Integer> map = new HashMap<>((int) (size / 0.75f) + 1);
+    forEach(map::put);
+    return map;
+  }
+
+  /** Approximate retained heap of the slot arrays and the key arena. */
+  public long footprintBytes() {
+    return HashSupport.OBJECT_OVERHEAD_BYTES
+        + 4 * HashSupport.arrayBytes(hashes.length, Integer.BYTES)
+        + HashSupport.arrayBytes(arena.length, Byte.BYTES);
+  }
+
+  // Rare path: decode, lower-case exactly like String-based code, re-encode.
+  private void incrementNonAscii(final byte[] buffer, final int from, final int to) {
+    String token = new String(buffer, from, to - from, StandardCharsets.UTF_8);
+    byte[] lowered = token.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+    int h = 0;
+    for (byte b : lowered) {
+      h = 31 * h + b;
+    }
+    add(lowered, 0, lowered.length, storedHash(h), 1, false);
+  }
+
+  private void add(
+      final byte[] source,
+      final int offset,
+      final int length,
+      final int hash,
+      final int delta,
+      final boolean foldCase) {
+    total += delta;
+    int slot = find(source, offset, length, hash, foldCase);
+    if (slot >= 0) {
+      counts[slot] += delta;
+      return;
+    }
+    slot = -slot - 1;
+    ensureArena(length);
+    for (int i = 0; i < length; i++) {
+      byte b = source[offset + i];
+      arena[arenaUsed + i] = foldCase ? lowerAscii(b) : b;
+    }
+    hashes[slot] = hash;
+    offsets[slot] = arenaUsed;
+    lengths[slot] = length;
+    counts[slot] = delta;
+    arenaUsed += length;
+    if (++size > resizeThreshold) {
+      rehash(hashes.length << 1);
+    }
+  }
+
+  // Returns the slot holding the key, or (-insertionSlot - 1) when it is absent.
+  private int find(
+      final byte[] source,
+      final int offset,
+      final int length,
+      final int hash,
+      final boolean foldCase) {
+    int slot = HashSupport.mix(hash) & mask;
+    int current = hashes[slot];
+    while (current != 0) {
+      if (current == hash
+          && lengths[slot] == length
+          && sameBytes(source, offset, length, offsets[slot], foldCase)) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+      current = hashes[slot];
+    }
+    return -slot - 1;
+  }
+
+  private boolean sameBytes(
+      final byte[] source,
+      final int offset,
+      final int length,
+      final int arenaOffset,
+      final boolean foldCase) {
+    for (int i = 0; i < length; i++) {
+      byte b = source[offset + i];
+      if ((foldCase ? lowerAscii(b) : b) != arena[arenaOffset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void ensureArena(final int extra) {
+    if (arenaUsed + extra > arena.length) {
+      long grown = Math.max((long) arena.length << 1, (long) arenaUsed + extra);
+      if (grown > Integer.MAX_VALUE - 8) {
+        throw new IllegalStateException("Vocabulary exceeds 2 GB of key bytes");
+      }
+      byte[] bigger = new byte[(int) grown];
+      System.arraycopy(arena, 0, bigger, 0, arenaUsed);
+      arena = bigger;
+    }
+  }
+
+  private void allocateSlots(final int capacity) {
+    hashes = new int[capacity];
+    offsets = new int[capacity];
+    lengths = new int[capacity];
+    counts = new int[capacity];
+    mask = capacity - 1;
+    resizeThreshold = (int) (capacity * LOAD_FACTOR);
+  }
+
+  private void rehash(final int newCapacity) {
+    int[] oldHashes = hashes;
+    int[] oldOffsets = offsets;
+    int[] oldLengths = lengths;
+    int[] oldCounts = counts;
+    allocateSlots(newCapacity);
+    for (int i = 0; i < oldHashes.length; i++) {
+      int hash = oldHashes[i];
+      if (hash != 0) {
+        int slot = HashSupport.mix(hash) & mask;
+        while (hashes[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        hashes[slot] = hash;
+        offsets[slot] = oldOffsets[i];
+        lengths[slot] = oldLengths[i];
+        counts[slot] = oldCounts[i];
+      }
+    }
+  }
+
+  private static int storedHash(final int hash) {
+    return hash == 0 ? 1 : hash;
+  }
+
+  private static byte lowerAscii(final byte b) {
+    return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+  }
+}
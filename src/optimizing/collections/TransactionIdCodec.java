@@ -0,0 +1,124 @@
+package optimizing.collections;
+
+/**
+ * Packs fixed-shape transaction IDs such as {@code TXN000123} into a single {@code long}.
+ *
+ * <p>Layout (most significant bits first):
+ *
+ * <ul>
+ *   <li>15 bits: up to three upper-case prefix letters, 5 bits each (A=1 … Z=26, 0 = absent).
+ *   <li>4 bits: number of digits, so {@code TXN0123} and {@code TXN123} stay distinct.
+ *   <li>45 bits: the numeric suffix (at most {@value #MAX_DIGITS} digits).
+ * </ul>
+ *
+ * <p>The mapping is injective, so two IDs collide as longs only if they are equal as strings. IDs
+ * that do not fit the shape are reported by {@link #isEncodable} and must be handled as strings.
+ */
+public final class TransactionIdCodec {
+  /** Longest numeric suffix we can pack; 10^13 still fits in 45 bits. */
+  public static final int MAX_DIGITS = 13;
+
+  /**
+   * Returned by {@link #tryEncode} for IDs that do not fit; no valid ID packs to this value because
+   * every letter field would have to be 31.
+   */
+  public static final long NOT_ENCODABLE = -1L;
+
+  private static final int MAX_PREFIX = 3;
+  private static final int LETTER_BITS = 5;
+  private static final int DIGIT_COUNT_BITS = 4;
+  private static final int VALUE_BITS = 45;
+
+  private TransactionIdCodec() {}
+
+  /**
+   * Checks whether an ID has the supported shape: 0–3 upper-case ASCII letters followed by 1–13
+   * ASCII digits.
+   *
+   * @param id candidate transaction ID
+   * @return {@code true} when {@link #encode} will accept it
+   */
+  public static boolean isEncodable(final String id) {
+    return tryEncode(id) != NOT_ENCODABLE;
+  }
+
+  /**
+   * Encodes an ID into its packed {@code long} form.
+   *
+   * @param id transaction ID matching {@link #isEncodable}
+   * @return packed representation
+   * @throws IllegalArgumentException if the ID does not have the supported shape
+   */
+  public static long encode(final String id) {
+    long packed = tryEncode(id);
+    if (packed == NOT_ENCODABLE) {
+      throw new IllegalArgumentException("Unsupported transaction ID shape: " + id);
+    }
+    return packed;
+  }
+
+  /**
+   * Single-pass validate-and-pack for hot loops: no exception on the fallback path.
+   *
+   * @param id candidate transaction ID (may be {@code null})
+   * @return packed representation, or {@link #NOT_ENCODABLE}
+   */
+  public static long tryEncode(final String id) {
+    if (id == null) {
+      return NOT_ENCODABLE;
+    }
+    int length = id.length();
+    long prefixBits = 0;
+    int index = 0;
+    while (index < length && index < MAX_PREFIX && isUpperAscii(id.charAt(index))) {
+      prefixBits = (prefixBits << LETTER_BITS) | (id.charAt(index) - 'A' + 1);
+      index++;
+    }
+    int digitCount = length - index;
+    if (digitCount < 1 || digitCount > MAX_DIGITS) {
+      return NOT_ENCODABLE;
+    }
+    long value = 0;
+    for (; index < length; index++) {
+      char c = id.charAt(index);
+      if (!isDigitAscii(c)) {
+        return NOT_ENCODABLE;
+      }
+      value = value * 10 + (c - '0');
+    }
+    return (prefixBits << (DIGIT_COUNT_BITS + VALUE_BITS))
+        | ((long) digitCount << VALUE_BITS)
+        | value;
+  }
+
+  /**
+   * Restores the original string; mainly useful for logging and round-trip checks.
+   *
+   * @param packed value produced by {@link #encode}
+   * @return the original transaction ID
+   */
+  public static String decode(final long packed) {
+    StringBuilder id = new StringBuilder(MAX_PREFIX + MAX_DIGITS);
+    long prefixBits = packed >>> (DIGIT_COUNT_BITS + VALUE_BITS);
+    for (int shift = LETTER_BITS * (MAX_PREFIX - 1); shift >= 0; shift -= LETTER_BITS) {
+      int letter = (int) ((prefixBits >>> shift) & ((1 << LETTER_BITS) - 1));
+      if (letter != 0) {
+        id.append((char) ('A' + letter - 1));
+      }
+    }
+    int digitCount = (int) ((packed >>> VALUE_BITS) & ((1 << DIGIT_COUNT_BITS) - 1));
+    String digits = Long.toString(packed & ((1L << VALUE_BITS) - 1));
+    for (int pad = digits.length(); pad < digitCount; pad++) {
+      id.append('0');
+    }
+    return id.append(digits).toString();
+  }
+
+  private static boolean isUpperAscii(final char c) {
+    return c >= 'A' && c <= 'Z';
+  }
+
+  private static boolean isDigitAscii(final char c) {
+    return c >= '0' && c <= '9';
+  }
+}
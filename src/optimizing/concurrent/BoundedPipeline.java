@@ -0,0 +1,257 @@
+package optimizing.concurrent;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Streaming multi-stage pipeline with bounded queues, for inputs too numerous to submit up front.
+ *
+ * <p>Every stage has its own thread pool, sized for its kind of work (a few threads for CPU-bound
+ * parsing, more for I/O-bound enrichment), in front of a bounded queue. When a queue is full the
+ * {@link Backpressure} policy either blocks the producer or makes it run the task itself, so the
+ * source is only pulled as fast as the slowest stage drains. Memory therefore stays proportional to
+ * the queue capacities, not to the input size. Results reach the sink in completion order, so a
+ * slow item never holds back the ones behind it.
+ *
+ * <p>Pipelines are immutable descriptions; {@link #run} creates the pools, streams the source
+ * through them and shuts them down again.
+ *
+ * @param <I> input type
+ * @param <O> output type of the last stage
+ */
+public final class BoundedPipeline<I, O> {
+  private final int queueCapacity;
+  private final Backpressure backpressure;
+  private final List<StageSpec> stages;
+
+  /** What a producer does when the next stage's queue is full. */
+  public enum Backpressure {
+    /** Wait for space; the producer is throttled to the stage's pace. */
+    BLOCK,
+    /** Run the task on the producer's own thread, which throttles it just as well. */
+    CALLER_RUNS
+  }
+
+  /**
+   * One stage's work on one item.
+   *
+   * @param <A> stage input
+   * @param <B> stage output
+   */
+  @FunctionalInterface
+  public interface Step<A, B> {
+    /**
+     * Processes one item.
+     *
+     * @param input the previous stage's output
+     * @return this stage's output
+     * @throws Exception any failure; the item is reported as failed and skips later stages
+     */
+    B apply(A input) throws Exception;
+  }
+
+  /**
+   * Outcome for one input.
+   *
+   * @param input the source element
+   * @param value output of the last stage, or {@code null} on failure
+   * @param error the first stage failure, including errors such as {@link AssertionError}, or
+   *     {@code null} on success
+   * @param <I> input type
+   * @param <O> output type
+   */
+  public record Result<I, O>(I input, O value, Throwable error) {
+    /** Returns whether every stage succeeded. */
+    public boolean succeeded() {
+      return error == null;
+    }
+  }
+
+  private BoundedPipeline(
+      final int queueCapacity, final Backpressure backpressure, final List<StageSpec> stages) {
+    this.queueCapacity = queueCapacity;
+    this.backpressure = backpressure;
+    this.stages = List.copyOf(stages);
+  }
+
+  /**
+   * Starts an empty pipeline; add stages with {@link #thenStage}.
+   *
+   * @param queueCapacity bounded queue length in front of every stage
+   * @param backpressure what to do when a queue is full
+   * @param <T> input type
+   * @return pipeline with no stages
+   */
+  public static <T> BoundedPipeline<T, T> withQueueCapacity(
+      final int queueCapacity, final Backpressure backpressure) {
+    if (queueCapacity <= 0) {
+      throw new IllegalArgumentException("queueCapacity must be positive");
+    }
+    Objects.requireNonNull(backpressure, "backpressure cannot be null");
+    return new BoundedPipeline<>(queueCapacity, backpressure, List.of());
+  }
+
+  /**
+   * Returns a pipeline with one more stage at the end.
+   *
+   * @param name stage name, used for thread names
+   * @param threads worker threads for this stage
+   * @param step work done per item
+   * @param <R> new output type
+   * @return extended pipeline; this one is unchanged
+   */
+  public <R> BoundedPipeline<I, R> thenStage(
+      final String name, final int threads, final Step<? super O, ? extends R> step) {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("threads must be positive");
+    }
+    List<StageSpec> extended = new ArrayList<>(stages);
+    extended.add(
+        new StageSpec(
+            Objects.requireNonNull(name, "name cannot be null"),
+            threads,
+            Objects.requireNonNull(step, "step cannot be null")));
+    return new BoundedPipeline<>(queueCapacity, backpressure, extended);
+  }
+
+  /**
+   * Streams every source element through the stages and hands each result to {@code sink} on the
+   * calling thread, in completion order. Returns once every element has been delivered.
+   *
+   * @param source elements, pulled lazily as capacity frees up
+   * @param sink receives one result per element
+   * @return number of elements processed
+   * @throws InterruptedException if interrupted while waiting for capacity or results
+   */
+  public long run(final Iterator<? extends I> source, final Consumer<? super Result<I, O>> sink)
+      throws InterruptedException {
+    if (stages.isEmpty()) {
+      throw new IllegalStateException("Pipeline has no stages");
+    }
+    BlockingQueue<Result<I, O>> completed = new LinkedBlockingQueue<>();
+    List<ThreadPoolExecutor> pools = new ArrayList<>(stages.size());
+    for (StageSpec stage : stages) {
+      pools.add(newStagePool(stage));
+    }
+    long submitted = 0;
+    long delivered = 0;
+    try {
+      while (source.hasNext()) {
+        I input = source.next();
+        try {
+          pools.get(0).execute(new StageTask(pools, completed, 0, input, input));
+        } catch (RejectedExecutionException e) {
+          if (Thread.interrupted()) {
+            throw new InterruptedException("Interrupted while waiting for pipeline capacity");
+          }
+          throw e;
+        }
+        submitted++;
+        for (Result<I, O> result = completed.poll();
+            result != null;
+            result = completed.poll()) {
+          sink.accept(result);
+          delivered++;
+        }
+      }
+      while (delivered < submitted) {
+        sink.accept(completed.take());
+        delivered++;
+      }
+      return submitted;
+    } finally {
+      for (ThreadPoolExecutor pool : pools) {
+        pool.shutdownNow();
+      }
+    }
+  }
+
+  private ThreadPoolExecutor newStagePool(final StageSpec stage) {
+    AtomicInteger threadNumber = new AtomicInteger();
+    RejectedExecutionHandler onFull =
+        backpressure == Backpressure.CALLER_RUNS
+            ? new ThreadPoolExecutor.CallerRunsPolicy()
+            : (task, pool) -> {
+              try {
+                pool.getQueue().put(task);
+              } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException(
+                    "Interrupted while queueing", interruptedException);
+              }
+            };
+    return new ThreadPoolExecutor(
+        stage.threads,
+        stage.threads,
+        0L,
+        TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity),
+        runnable -> {
+          String threadName = "pipeline-" + stage.name + "-" + threadNumber.incrementAndGet();
+          Thread thread = new Thread(runnable, threadName);
+          thread.setDaemon(true);
+          return thread;
+        },
+        onFull);
+  }
+
+  private record StageSpec(String name, int threads, Step<?, ?> step) {}
+
+  /** Runs one stage for one item, then hands the item to the next stage or to the sink queue. */
+  private final class StageTask implements Runnable {
+    private final List<ThreadPoolExecutor> pools;
+    private final BlockingQueue<Result<I, O>> completed;
+    private final int stage;
+    private final I input;
+    private final Object value;
+
+    private StageTask(
+        final List<ThreadPoolExecutor> pools,
+        final BlockingQueue<Result<I, O>> completed,
+        final int stage,
+        final I input,
+        final Object value) {
+      this.pools = pools;
+      this.completed = completed;
+      this.stage = stage;
+      this.input = input;
+      this.value = value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void run() {
+      Object output;
+      try {
+        output = ((Step<Object, Object>) stages.get(stage).step).apply(value);
+      } catch (Throwable e) {
+        // Errors are reported too: every input must post exactly one result, or run() never ends.
+        if (e instanceof InterruptedException) {
+          Thread.currentThread().interrupt();
+        }
+        completed.add(new Result<>(input, null, e));
+        return;
+      }
+      if (stage + 1 < pools.size()) {
+        try {
+          pools.get(stage + 1).execute(new StageTask(pools, completed, stage + 1, input, output));
+        } catch (RejectedExecutionException e) {
+          completed.add(new Result<>(input, null, e));
+        }
+      } else {
+        completed.add(new Result<>(input, (O) output, null));
+      }
+    }
+  }
+}
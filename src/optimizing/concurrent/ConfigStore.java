@@ -0,0 +1,181 @@
+package optimizing.concurrent;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Copy-on-write key/value configuration for read-mostly hot paths such as logging.
+ *
+ * <p>The whole configuration is one immutable map behind an {@link AtomicReference}. A read is a
+ * single volatile load followed by a lookup in a map nobody can mutate, so readers never block,
+ * never retry and never write shared memory; their throughput scales with cores. Writers copy the
+ * current map, apply their change and publish with compare-and-set, retrying if another writer got
+ * in first. Config maps are small and change rarely, so a plain copy is cheaper in practice than a
+ * structurally shared persistent map.
+ *
+ * <p>Listeners run on a separate executor, so a slow listener never delays a writer. Each
+ * notification carries the snapshot that the write produced. A listener that throws is reported to
+ * the notifier thread's uncaught-exception handler, and the remaining listeners still run.
+ */
+public final class ConfigStore {
+  private final AtomicReference<Map<String, String>> current = new AtomicReference<>(Map.of());
+  private final List<Consumer<Change>> listeners = new CopyOnWriteArrayList<>();
+  private final Executor notifier;
+
+  /**
+   * One published change.
+   *
+   * @param key the key that was written or removed
+   * @param previous value before the write, or {@code null}
+   * @param value value after the write, or {@code null} when removed
+   * @param snapshot the full configuration as published by this write
+   */
+  public record Change(String key, String previous, String value, Map<String, String> snapshot) {}
+
+  /**
+   * Creates a store whose listeners run, in order, on a daemon thread shared by all such stores,
+   * so stores need not be closed.
+   */
+  public ConfigStore() {
+    this(SharedNotifier.INSTANCE);
+  }
+
+  /**
+   * Creates a store with a caller-supplied listener executor.
+   *
+   * @param notifier runs listener callbacks; use {@code Runnable::run} for synchronous delivery
+   */
+  public ConfigStore(final Executor notifier) {
+    this.notifier = Objects.requireNonNull(notifier, "notifier cannot be null");
+  }
+
+  /**
+   * Wait-free read of one key.
+   *
+   * @param key config key
+   * @return current value, or {@code null} when unset
+   */
+  public String get(final String key) {
+    return current.get().get(key);
+  }
+
+  /**
+   * Wait-free read with a default.
+   *
+   * @param key config key
+   * @param fallback returned when the key is unset
+   * @return current value or {@code fallback}
+   */
+  public String getOrDefault(final String key, final String fallback) {
+    return current.get().getOrDefault(key, fallback);
+  }
+
+  /**
+   * Returns the current configuration. The map is immutable and never changes afterwards, so
+   * several keys read from it are always consistent with each other.
+   *
+   * @return immutable snapshot
+   */
+  public Map<String, String> snapshot() {
+    return current.get();
+  }
+
+  /**
+   * Sets a key and publishes a new snapshot.
+   *
+   * @param key config key
+   * @param value new value
+   */
+  public void put(final String key, final String value) {
+    Objects.requireNonNull(key, "key cannot be null");
+    Objects.requireNonNull(value, "value cannot be null");
+    update(
+        key,
+        config -> {
+          Map<String, String> copy = new HashMap<>(config);
+          copy.put(key, value);
+          return copy;
+        });
+  }
+
+  /**
+   * Removes a key and publishes a new snapshot.
+   *
+   * @param key config key
+   */
+  public void remove(final String key) {
+    Objects.requireNonNull(key, "key cannot be null");
+    update(
+        key,
+        config -> {
+          Map<String, String> copy = new HashMap<>(config);
+          copy.remove(key);
+          return copy;
+        });
+  }
+
+  /**
+   * Registers a change listener; it is called asynchronously after each write.
+   *
+   * @param listener receives every subsequent {@link Change}
+   */
+  public void addListener(final Consumer<Change> listener) {
+    listeners.add(Objects.requireNonNull(listener, "listener cannot be null"));
+  }
+
+  /**
+   * Unregisters a listener added with {@link #addListener}.
+   *
+   * @param listener listener to drop
+   */
+  public void removeListener(final Consumer<Change> listener) {
+    listeners.remove(listener);
+  }
+
+  private void update(final String key, final UnaryOperator<Map<String, String>> edit) {
+    Map<String, String> before;
+    Map<String, String> after;
+    do {
+      before = current.get();
+      after = Map.copyOf(edit.apply(before));
+    } while (!current.compareAndSet(before, after));
+    String previous = before.get(key);
+    String value = after.get(key);
+    if (!Objects.equals(previous, value) && !listeners.isEmpty()) {
+      Change change = new Change(key, previous, value, after);
+      notifier.execute(() -> deliver(change));
+    }
+  }
+
+  // One failing listener must not keep the change from the others.
+  private void deliver(final Change change) {
+    for (Consumer<Change> listener : listeners) {
+      try {
+        listener.accept(change);
+      } catch (RuntimeException e) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+      }
+    }
+  }
+
+  /** Holder for the default notifier thread, started on first use and shared by every store. */
+  private static final class SharedNotifier {
+    private static final ExecutorService INSTANCE =
+        Executors.newSingleThreadExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "config-store-notifier");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+}
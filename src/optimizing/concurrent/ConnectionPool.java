@@ -0,0 +1,384 @@
+package optimizing.concurrent;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool for expensive, non-thread-safe clients (database connections, Redis clients, ...).
+ *
+ * <p>Acquire tries, in order:
+ *
+ * <ol>
+ *   <li>the connection this thread used last (thread affinity keeps its buffers cache-warm),
+ *   <li>any idle connection in the shared list,
+ *   <li>a brand-new connection if the pool is below {@code maxSize} (lazy warm-up),
+ *   <li>waiting for a hand-off from a releasing thread, up to the acquire timeout.
+ * </ol>
+ *
+ * <p>Claiming a connection is a single compare-and-set on its state, so the first three steps take
+ * no lock. A background housekeeper closes connections idle longer than {@code idleTimeout} and
+ * reports leases held longer than {@code leakThreshold}, with the stack trace of the borrower.
+ *
+ * @param <C> client type
+ */
+public final class ConnectionPool<C> implements AutoCloseable {
+  private static final int IDLE = 0;
+  private static final int IN_USE = 1;
+  private static final int REMOVED = 2;
+  private static final long RESCAN_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private final Supplier<? extends C> factory;
+  private final Consumer<? super C> closer;
+  private final Settings settings;
+  private final Consumer<String> leakReporter;
+  private final List<Entry<C>> entries = new CopyOnWriteArrayList<>();
+  // Weak, so a connection evicted or invalidated meanwhile is not kept alive by every thread that
+  // once used it; pooled entries stay strongly reachable through {@code entries}.
+  private final ThreadLocal<WeakReference<Entry<C>>> lastUsed = new ThreadLocal<>();
+  private final SynchronousQueue<Entry<C>> handoff = new SynchronousQueue<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final AtomicInteger waiters = new AtomicInteger();
+  private final ScheduledExecutorService housekeeper;
+  private volatile boolean closed;
+
+  /**
+   * Pool limits.
+   *
+   * @param maxSize most connections that may exist at once
+   * @param acquireTimeout how long {@link #acquire} waits when all connections are busy
+   * @param idleTimeout idle connections older than this are closed; {@link Duration#ZERO} keeps
+   *     them forever
+   * @param leakThreshold leases held longer than this are reported; {@link Duration#ZERO} turns
+   *     leak detection (and its stack capture) off
+   */
+  public record Settings(
+      int maxSize, Duration acquireTimeout, Duration idleTimeout, Duration leakThreshold) {
+    /** Validates the limits. */
+    public Settings {
+      if (maxSize <= 0) {
+        throw new IllegalArgumentException("maxSize must be positive");
+      }
+      Objects.requireNonNull(acquireTimeout, "acquireTimeout cannot be null");
+      Objects.requireNonNull(idleTimeout, "idleTimeout cannot be null");
+      Objects.requireNonNull(leakThreshold, "leakThreshold cannot be null");
+    }
+
+    /**
+     * Sensible defaults: 30 s acquire timeout, 10 min idle timeout, leak detection off.
+     *
+     * @param maxSize most connections that may exist at once
+     * @return settings
+     */
+    public static Settings of(final int maxSize) {
+      return new Settings(maxSize, Duration.ofSeconds(30), Duration.ofMinutes(10), Duration.ZERO);
+    }
+  }
+
+  /**
+   * Borrowed connection. Close it (ideally with try-with-resources) to give it back.
+   *
+   * @param <C> client type
+   */
+  public static final class Lease<C> implements AutoCloseable {
+    private final ConnectionPool<C> pool;
+    private final Entry<C> entry;
+    private boolean returned;
+
+    private Lease(final ConnectionPool<C> pool, final Entry<C> entry) {
+      this.pool = pool;
+      this.entry = entry;
+    }
+
+    /** Returns the borrowed client; only the borrowing thread should use it. */
+    public C get() {
+      if (returned) {
+        throw new IllegalStateException("Lease already returned");
+      }
+      return entry.client;
+    }
+
+    /** Closes the underlying client instead of returning it, e.g. after a network error. */
+    public void invalidate() {
+      if (!returned) {
+        returned = true;
+        pool.discard(entry);
+      }
+    }
+
+    @Override
+    public void close() {
+      if (!returned) {
+        returned = true;
+        pool.release(entry);
+      }
+    }
+  }
+
+  /**
+   * Creates a pool that reports leaks on {@code System.err}.
+   *
+   * @param factory opens a new client; called lazily, never more than {@code maxSize} at a time
+   * @param closer closes a client on eviction, invalidation or shutdown
+   * @param settings pool limits
+   */
+  public ConnectionPool(
+      final Supplier<? extends C> factory,
+      final Consumer<? super C> closer,
+      final Settings settings) {
+    this(factory, closer, settings, System.err::println);
+  }
+
+  /**
+   * Creates a pool with a custom leak reporter (e.g. a logger).
+   *
+   * @param factory opens a new client; called lazily, never more than {@code maxSize} at a time
+   * @param closer closes a client on eviction, invalidation or shutdown
+   * @param settings pool limits
+   * @param leakReporter receives one message per leaked lease
+   */
+  public ConnectionPool(
+      final Supplier<? extends C> factory,
+      final Consumer<? super C> closer,
+      final Settings settings,
+      final Consumer<String> leakReporter) {
+    this.factory = Objects.requireNonNull(factory, "factory cannot be null");
+    this.closer = Objects.requireNonNull(closer, "closer cannot be null");
+    this.settings = Objects.requireNonNull(settings, "settings cannot be null");
+    this.leakReporter = Objects.requireNonNull(leakReporter, "leakReporter cannot be null");
+    this.housekeeper =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+              thread.setDaemon(true);
+              return thread;
+            });
+    long periodMillis = housekeepingPeriodMillis(settings);
+    housekeeper.scheduleWithFixedDelay(
+        this::housekeep, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Borrows a connection, opening one if the pool has room, otherwise waiting for a release.
+   *
+   * @return lease to close when done
+   * @throws TimeoutException if nothing became available within the acquire timeout
+   * @throws InterruptedException if interrupted while waiting
+   * @throws IllegalStateException if the pool is closed, also while waiting
+   */
+  public Lease<C> acquire() throws TimeoutException, InterruptedException {
+    if (closed) {
+      throw new IllegalStateException("Pool is closed");
+    }
+    Entry<C> entry = tryClaimWithoutWaiting();
+    if (entry == null) {
+      entry = awaitHandoff();
+    }
+    entry.borrowedAtNanos = System.nanoTime();
+    entry.leakReported = false;
+    entry.borrowSite = settings.leakThreshold().isZero() ? null : new Throwable("Borrowed here");
+    WeakReference<Entry<C>> affinity = lastUsed.get();
+    if (affinity == null || affinity.get() != entry) {
+      lastUsed.set(new WeakReference<>(entry));
+    }
+    return new Lease<>(this, entry);
+  }
+
+  /** Returns the number of open connections, idle or in use. */
+  public int size() {
+    return size.get();
+  }
+
+  /** Returns the number of open connections currently lent out. */
+  public int inUse() {
+    int busy = 0;
+    for (Entry<C> entry : entries) {
+      if (entry.state.get() == IN_USE) {
+        busy++;
+      }
+    }
+    return busy;
+  }
+
+  /** Stops housekeeping and closes every idle connection; leased ones close when returned. */
+  @Override
+  public void close() {
+    closed = true;
+    housekeeper.shutdownNow();
+    for (Entry<C> entry : entries) {
+      if (entry.state.compareAndSet(IDLE, REMOVED)) {
+        remove(entry);
+      }
+    }
+  }
+
+  private Entry<C> tryClaimWithoutWaiting() {
+    WeakReference<Entry<C>> affinity = lastUsed.get();
+    Entry<C> affine = affinity == null ? null : affinity.get();
+    if (affine != null && affine.state.compareAndSet(IDLE, IN_USE)) {
+      return affine;
+    }
+    Entry<C> shared = claimAnyIdle();
+    if (shared != null) {
+      return shared;
+    }
+    return openIfRoom();
+  }
+
+  private Entry<C> claimAnyIdle() {
+    for (Entry<C> entry : entries) {
+      if (entry.state.compareAndSet(IDLE, IN_USE)) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  private Entry<C> openIfRoom() {
+    int current = size.get();
+    while (current < settings.maxSize()) {
+      if (size.compareAndSet(current, current + 1)) {
+        boolean opened = false;
+        try {
+          Entry<C> entry = new Entry<>(factory.get());
+          entries.add(entry);
+          opened = true;
+          return entry;
+        } finally {
+          // Give the slot back on any failure, Errors included, or the pool shrinks for good.
+          if (!opened) {
+            size.decrementAndGet();
+          }
+        }
+      }
+      current = size.get();
+    }
+    return null;
+  }
+
+  // Slow path: wait for a releasing thread to hand its connection over, rescanning periodically
+  // in case a release happened before we started listening or a slot opened up.
+  private Entry<C> awaitHandoff() throws TimeoutException, InterruptedException {
+    long deadline = System.nanoTime() + settings.acquireTimeout().toNanos();
+    waiters.incrementAndGet();
+    try {
+      while (true) {
+        if (closed) {
+          throw new IllegalStateException("Pool is closed");
+        }
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          throw new TimeoutException(
+              "No connection available within " + settings.acquireTimeout());
+        }
+        Entry<C> offered = handoff.poll(Math.min(remaining, RESCAN_NANOS), TimeUnit.NANOSECONDS);
+        if (offered != null && offered.state.compareAndSet(IDLE, IN_USE)) {
+          return offered;
+        }
+        Entry<C> entry = tryClaimWithoutWaiting();
+        if (entry != null) {
+          return entry;
+        }
+      }
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  private void release(final Entry<C> entry) {
+    entry.borrowSite = null;
+    entry.lastUsedNanos = System.nanoTime();
+    if (closed) {
+      entry.state.set(REMOVED);
+      remove(entry);
+      return;
+    }
+    entry.state.set(IDLE);
+    if (waiters.get() > 0) {
+      // Best effort; a waiter that misses this picks the entry up on its next rescan.
+      handoff.offer(entry);
+    }
+  }
+
+  private void discard(final Entry<C> entry) {
+    entry.state.set(REMOVED);
+    remove(entry);
+  }
+
+  private void remove(final Entry<C> entry) {
+    if (entries.remove(entry)) {
+      size.decrementAndGet();
+      closer.accept(entry.client);
+    }
+  }
+
+  private void housekeep() {
+    long now = System.nanoTime();
+    long idleNanos = settings.idleTimeout().toNanos();
+    long leakNanos = settings.leakThreshold().toNanos();
+    for (Entry<C> entry : entries) {
+      int state = entry.state.get();
+      if (state == IDLE
+          && idleNanos > 0
+          && now - entry.lastUsedNanos > idleNanos
+          && entry.state.compareAndSet(IDLE, REMOVED)) {
+        remove(entry);
+      } else if (state == IN_USE
+          && leakNanos > 0
+          && !entry.leakReported
+          && now - entry.borrowedAtNanos > leakNanos) {
+        Throwable site = entry.borrowSite;
+        if (site != null) {
+          entry.leakReported = true;
+          leakReporter.accept(describeLeak(now - entry.borrowedAtNanos, site));
+        }
+      }
+    }
+  }
+
+  private static String describeLeak(final long heldNanos, final Throwable site) {
+    StringBuilder message =
+        new StringBuilder("Possible connection leak: lease held for ")
+            .append(TimeUnit.NANOSECONDS.toMillis(heldNanos))
+            .append(" ms, borrowed at");
+    for (StackTraceElement frame : site.getStackTrace()) {
+      message.append(System.lineSeparator()).append("    at ").append(frame);
+    }
+    return message.toString();
+  }
+
+  private static long housekeepingPeriodMillis(final Settings settings) {
+    long period = Long.MAX_VALUE;
+    if (!settings.idleTimeout().isZero()) {
+      period = Math.min(period, settings.idleTimeout().toMillis() / 2);
+    }
+    if (!settings.leakThreshold().isZero()) {
+      period = Math.min(period, settings.leakThreshold().toMillis() / 2);
+    }
+    return Math.max(10, Math.min(period, TimeUnit.SECONDS.toMillis(30)));
+  }
+
+  /** One pooled client plus its bookkeeping; {@code state} is the only field raced on. */
+  private static final class Entry<C> {
+    private final C client;
+    private final AtomicInteger state = new AtomicInteger(IN_USE);
+    private volatile long lastUsedNanos = System.nanoTime();
+    private volatile long borrowedAtNanos;
+    private volatile Throwable borrowSite;
+    private volatile boolean leakReported;
+
+    private Entry(final C client) {
+      this.client = client;
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package optimizing.concurrent;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Absolute point in time by which a whole request must finish, passed along a call chain so every
+ * step works against the remaining budget instead of a fresh timeout of its own.
+ *
+ * <p>Based on {@link System#nanoTime()}, so it is only meaningful within one JVM.
+ *
+ * @param expiresAtNanos {@code System.nanoTime()} value at which the deadline passes
+ */
+public record Deadline(long expiresAtNanos) {
+  /**
+   * Returns a deadline {@code budget} from now.
+   *
+   * @param budget time allowed for the whole request
+   * @return the deadline
+   */
+  public static Deadline after(final Duration budget) {
+    return new Deadline(System.nanoTime() + budget.toNanos());
+  }
+
+  /** Returns the time left, or {@link Duration#ZERO} once expired. */
+  public Duration remaining() {
+    return Duration.ofNanos(Math.max(0, expiresAtNanos - System.nanoTime()));
+  }
+
+  /** Returns whether the deadline has passed. */
+  public boolean isExpired() {
+    return expiresAtNanos - System.nanoTime() <= 0;
+  }
+
+  /**
+   * Wraps a {@code thenApply} step so it refuses to start once the deadline has passed; the
+   * future then completes with a {@link TimeoutException} and later steps are skipped.
+   *
+   * @param step the work of this stage
+   * @param <A> stage input
+   * @param <B> stage output
+   * @return guarded step
+   */
+  public <A, B> Function<A, B> guard(final Function<A, B> step) {
+    return input -> {
+      if (isExpired()) {
+        throw new CompletionException(new TimeoutException("Deadline passed before " + step));
+      }
+      return step.apply(input);
+    };
+  }
+
+  /**
+   * Makes {@code future} complete with a {@link TimeoutException} if it is still pending when the
+   * deadline passes.
+   *
+   * @param future future to bound
+   * @param <T> result type
+   * @return {@code future}, for chaining
+   */
+  public <T> CompletableFuture<T> bound(final CompletableFuture<T> future) {
+    return future.orTimeout(Math.max(0, expiresAtNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+  }
+}
@@ -0,0 +1,237 @@
+package optimizing.concurrent;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Structured fan-out of blocking calls, one virtual thread per call, with "shutdown on failure"
+ * semantics.
+ *
+ * <p>Use it in a try-with-resources block: {@link #fork} the calls, {@link #join} (or {@link
+ * #joinUntil} a deadline), then {@link #results}. The first call that fails or exceeds its
+ * per-call timeout interrupts and cancels all its siblings, so a failed fan-out returns quickly
+ * instead of waiting for calls whose results will be thrown away. Leaving the block cancels
+ * whatever is still running and waits for those threads to finish; no call outlives its scope.
+ *
+ * <p>This mirrors {@code StructuredTaskScope.ShutdownOnFailure}, which is still a preview API on
+ * Java 21 and would need {@code --enable-preview} for every build and run.
+ *
+ * @param <T> result type of the forked calls
+ */
+public final class FanOutScope<T> implements AutoCloseable {
+  // One shared timer thread; it only fires timeouts, the calls run on virtual threads.
+  private static final ScheduledThreadPoolExecutor TIMEOUTS = newTimeoutTimer();
+
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final List<Subtask> subtasks = new ArrayList<>();
+  private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+  /**
+   * Starts a call on a new virtual thread.
+   *
+   * @param call blocking call
+   * @return handle for this call's result
+   */
+  public Future<T> fork(final Callable<? extends T> call) {
+    return fork(call, Duration.ZERO);
+  }
+
+  /**
+   * Starts a call on a new virtual thread with its own timeout. A call that times out fails with
+   * {@link TimeoutException}, which fails the whole scope.
+   *
+   * @param call blocking call
+   * @param timeout per-call limit; {@link Duration#ZERO} means none
+   * @return handle for this call's result
+   */
+  public Future<T> fork(final Callable<? extends T> call, final Duration timeout) {
+    Objects.requireNonNull(call, "call cannot be null");
+    Subtask subtask = new Subtask(call);
+    synchronized (subtasks) {
+      subtasks.add(subtask);
+    }
+    if (firstFailure.get() != null) {
+      subtask.cancel(true);
+      return subtask;
+    }
+    executor.execute(subtask);
+    if (!timeout.isZero()) {
+      subtask.armTimeout(timeout);
+    }
+    return subtask;
+  }
+
+  /**
+   * Waits until every call has finished or the first one has failed.
+   *
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public void join() throws InterruptedException {
+    for (Subtask subtask : snapshot()) {
+      awaitQuietly(subtask, Long.MAX_VALUE);
+    }
+  }
+
+  /**
+   * Like {@link #join}, but gives up at {@code deadline}, cancelling every unfinished call.
+   *
+   * @param deadline overall deadline for the fan-out
+   * @throws InterruptedException if interrupted while waiting
+   * @throws TimeoutException if calls were still running at the deadline
+   */
+  public void joinUntil(final Instant deadline) throws InterruptedException, TimeoutException {
+    for (Subtask subtask : snapshot()) {
+      long remaining = Duration.between(Instant.now(), deadline).toNanos();
+      if (!awaitQuietly(subtask, Math.max(0, remaining))) {
+        TimeoutException timeout = new TimeoutException("Fan-out missed its deadline " + deadline);
+        fail(timeout);
+        throw timeout;
+      }
+    }
+  }
+
+  /**
+   * Rethrows the first failure, if any. Call after {@link #join}.
+   *
+   * @throws ExecutionException wrapping the first call failure or timeout
+   */
+  public void throwIfFailed() throws ExecutionException {
+    Throwable failure = firstFailure.get();
+    if (failure != null) {
+      throw new ExecutionException(failure);
+    }
+  }
+
+  /**
+   * Returns every call's result in fork order. Call after a successful {@link #join}.
+   *
+   * @return results
+   * @throws ExecutionException if any call failed
+   */
+  public List<T> results() throws ExecutionException {
+    throwIfFailed();
+    List<Subtask> done = snapshot();
+    List<T> results = new ArrayList<>(done.size());
+    for (Subtask subtask : done) {
+      if (!subtask.isDone()) {
+        throw new IllegalStateException("results() called before join()");
+      }
+      results.add(subtask.resultNow());
+    }
+    return results;
+  }
+
+  /** Cancels unfinished calls and waits for their threads to exit. */
+  @Override
+  public void close() {
+    for (Subtask subtask : snapshot()) {
+      subtask.cancel(true);
+    }
+    executor.close();
+  }
+
+  private static ScheduledThreadPoolExecutor newTimeoutTimer() {
+    ScheduledThreadPoolExecutor timer =
+        new ScheduledThreadPoolExecutor(
+            1,
+            runnable -> {
+              Thread thread = new Thread(runnable, "fan-out-timeouts");
+              thread.setDaemon(true);
+              return thread;
+            });
+    // Drop cancelled timeouts right away, so finished calls and their results can be collected.
+    timer.setRemoveOnCancelPolicy(true);
+    return timer;
+  }
+
+  private List<Subtask> snapshot() {
+    synchronized (subtasks) {
+      return new ArrayList<>(subtasks);
+    }
+  }
+
+  // Returns false only when the wait timed out; failures are recorded by the subtasks themselves.
+  private static boolean awaitQuietly(final Future<?> future, final long timeoutNanos)
+      throws InterruptedException {
+    try {
+      future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+    } catch (ExecutionException | CancellationException e) {
+      return true;
+    } catch (TimeoutException e) {
+      return false;
+    }
+    return true;
+  }
+
+  private void fail(final Throwable failure) {
+    if (firstFailure.compareAndSet(null, failure)) {
+      for (Subtask subtask : snapshot()) {
+        subtask.cancel(true);
+      }
+    }
+  }
+
+  /** One forked call; reports its own failure to the scope the moment it happens. */
+  private final class Subtask extends FutureTask<T> {
+    private volatile Thread runner;
+    private volatile ScheduledFuture<?> timer;
+
+    private Subtask(final Callable<? extends T> call) {
+      super(call::call);
+    }
+
+    @Override
+    public void run() {
+      runner = Thread.currentThread();
+      try {
+        super.run();
+      } finally {
+        runner = null;
+      }
+    }
+
+    private void armTimeout(final Duration timeout) {
+      timer = TIMEOUTS.schedule(() -> timeOut(timeout), timeout.toNanos(), TimeUnit.NANOSECONDS);
+      // The call may have finished before the timer was stored, so done() could not cancel it.
+      if (isDone()) {
+        timer.cancel(false);
+      }
+    }
+
+    private void timeOut(final Duration timeout) {
+      if (!isDone()) {
+        setException(new TimeoutException("Call exceeded its " + timeout + " timeout"));
+        Thread thread = runner;
+        if (thread != null) {
+          thread.interrupt();
+        }
+      }
+    }
+
+    @Override
+    protected void done() {
+      ScheduledFuture<?> pending = timer;
+      if (pending != null) {
+        pending.cancel(false);
+      }
+      if (!isCancelled() && state() == State.FAILED) {
+        fail(exceptionNow());
+      }
+    }
+  }
+}
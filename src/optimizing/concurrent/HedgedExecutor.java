@@ -0,0 +1,242 @@
+package optimizing.concurrent;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs idempotent remote calls with "hedged requests" to cut tail latency.
+ *
+ * <p>Each call starts on a virtual thread. If it has not answered within the observed latency
+ * percentile (p95 by default), an identical backup attempt is sent. Whichever attempt answers first
+ * wins and the other is cancelled (its thread interrupted). Only the slowest few percent of calls
+ * are sent twice, yet a request that hit a slow replica, a GC pause or a lost packet now costs
+ * roughly p95 plus a typical latency instead of the full tail. If the first attempt fails before
+ * the hedge is due, the backup is sent immediately as a retry.
+ *
+ * <p>The percentile comes from a sliding window of recent primary-attempt latencies and is
+ * refreshed every few dozen samples. When a hedge wins, the primary's latency is only known to
+ * exceed the hedge delay, so that delay is recorded in its place; recording the shortened call
+ * instead would drag the percentile, and with it the delay, down on every refresh. Until the window
+ * has enough samples, a fixed initial delay is used.
+ */
+public final class HedgedExecutor implements AutoCloseable {
+  private static final int MIN_SAMPLES = 20;
+
+  private final long initialDelayNanos;
+  private final LatencyWindow window;
+  private final ExecutorService attempts = Executors.newVirtualThreadPerTaskExecutor();
+  private final ScheduledExecutorService timer;
+  private final LongAdder calls = new LongAdder();
+  private final LongAdder hedges = new LongAdder();
+
+  /**
+   * Creates an executor that hedges at the p95 of the last 1,000 calls.
+   *
+   * @param initialDelay hedge delay used until enough latencies have been observed
+   */
+  public HedgedExecutor(final Duration initialDelay) {
+    this(0.95, 1_000, initialDelay);
+  }
+
+  /**
+   * Creates an executor with an explicit hedging percentile.
+   *
+   * @param percentile latency percentile after which to hedge, in {@code (0, 1)}
+   * @param windowSize number of recent call latencies the percentile is computed over
+   * @param initialDelay hedge delay used until enough latencies have been observed
+   */
+  public HedgedExecutor(
+      final double percentile, final int windowSize, final Duration initialDelay) {
+    if (!(percentile > 0 && percentile < 1)) {
+      throw new IllegalArgumentException("percentile must be in (0, 1)");
+    }
+    if (windowSize < MIN_SAMPLES) {
+      throw new IllegalArgumentException("windowSize must be at least " + MIN_SAMPLES);
+    }
+    this.initialDelayNanos =
+        Objects.requireNonNull(initialDelay, "initialDelay cannot be null").toNanos();
+    this.window = new LatencyWindow(windowSize, percentile);
+    this.timer =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "hedge-timer");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /**
+   * Starts a hedged call. The returned future completes with the first successful answer, or with
+   * the last failure if both attempts fail, or with a {@link java.util.concurrent.TimeoutException}
+   * at the deadline; either way, every attempt still running is then cancelled.
+   *
+   * @param call idempotent call; may run twice concurrently
+   * @param deadline overall deadline for the call
+   * @param <T> result type
+   * @return future result
+   */
+  public <T> CompletableFuture<T> submit(
+      final Callable<? extends T> call, final Deadline deadline) {
+    calls.increment();
+    HedgedCall<T> hedged = new HedgedCall<>(Objects.requireNonNull(call, "call cannot be null"));
+    hedged.start(Objects.requireNonNull(deadline, "deadline cannot be null"));
+    return hedged.result;
+  }
+
+  /** Returns the delay after which the next call would be hedged. */
+  public Duration currentHedgeDelay() {
+    return Duration.ofNanos(hedgeDelayNanos());
+  }
+
+  /** Returns the number of calls submitted. */
+  public long callCount() {
+    return calls.sum();
+  }
+
+  /** Returns the number of backup attempts sent (hedges and immediate retries). */
+  public long hedgeCount() {
+    return hedges.sum();
+  }
+
+  /** Stops the timer and cancels every attempt still running. */
+  @Override
+  public void close() {
+    timer.shutdownNow();
+    attempts.shutdownNow();
+  }
+
+  private long hedgeDelayNanos() {
+    long estimate = window.percentile();
+    return estimate < 0 ? initialDelayNanos : estimate;
+  }
+
+  /** One logical call: a primary attempt, at most one backup, and the shared result. */
+  private final class HedgedCall<T> {
+    private final Callable<? extends T> call;
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private final long startNanos = System.nanoTime();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicBoolean backupLaunched = new AtomicBoolean();
+    private volatile Future<?> primary;
+    private volatile Future<?> backup;
+    private volatile ScheduledFuture<?> hedgeTimer;
+    // Primary's age when the hedge was sent, or -1 if none was sent on timeout.
+    private volatile long hedgedAfterNanos = -1;
+
+    private HedgedCall(final Callable<? extends T> call) {
+      this.call = call;
+    }
+
+    private void start(final Deadline deadline) {
+      primary = attempts.submit(() -> attempt(true));
+      hedgeTimer =
+          timer.schedule(() -> launchBackup(true), hedgeDelayNanos(), TimeUnit.NANOSECONDS);
+      deadline.bound(result);
+      result.whenComplete((value, error) -> cancelAll());
+    }
+
+    private void attempt(final boolean isPrimary) {
+      try {
+        T value = call.call();
+        // One sample per call, of the primary's latency, taken by the winner: a cancelled loser
+        // may return early. A winning hedge stands in the delay it was sent after.
+        if (result.complete(value)) {
+          long hedgedAfter = hedgedAfterNanos;
+          if (isPrimary) {
+            window.record(System.nanoTime() - startNanos);
+          } else if (hedgedAfter >= 0) {
+            window.record(hedgedAfter);
+          }
+        }
+      } catch (Throwable e) {
+        if (e instanceof InterruptedException) {
+          Thread.currentThread().interrupt();
+        }
+        // Errors are not retried, but must still complete the result rather than leave it pending.
+        if (e instanceof Error || failures.incrementAndGet() >= 2) {
+          result.completeExceptionally(e);
+        } else {
+          // First failure: retry now unless the backup is already in flight, then it decides.
+          launchBackup(false);
+        }
+      }
+    }
+
+    // Sends the backup attempt, at most once per call: on timeout as a hedge, or as a retry.
+    private void launchBackup(final boolean hedge) {
+      if (result.isDone() || !backupLaunched.compareAndSet(false, true)) {
+        return;
+      }
+      if (hedge) {
+        hedgedAfterNanos = System.nanoTime() - startNanos;
+      }
+      hedges.increment();
+      backup = attempts.submit(() -> attempt(false));
+      if (result.isDone()) {
+        backup.cancel(true);
+      }
+    }
+
+    private void cancelAll() {
+      ScheduledFuture<?> timerTask = hedgeTimer;
+      if (timerTask != null) {
+        timerTask.cancel(false);
+      }
+      for (Future<?> running : new Future<?>[] {primary, backup}) {
+        if (running != null) {
+          running.cancel(true);
+        }
+      }
+    }
+  }
+
+  /** Ring buffer of recent latencies with a cached percentile, refreshed every few samples. */
+  private static final class LatencyWindow {
+    private final long[] samples;
+    private final double percentile;
+    private final int refreshEvery;
+    private int next;
+    private int size;
+    private int sinceRefresh;
+    private long cached = -1;
+
+    private LatencyWindow(final int capacity, final double percentile) {
+      this.samples = new long[capacity];
+      this.percentile = percentile;
+      this.refreshEvery = Math.max(1, capacity / 32);
+    }
+
+    private synchronized void record(final long nanos) {
+      samples[next] = nanos;
+      next = (next + 1) % samples.length;
+      size = Math.min(size + 1, samples.length);
+      sinceRefresh++;
+    }
+
+    // Returns -1 until there are enough samples.
+    private synchronized long percentile() {
+      if (size < MIN_SAMPLES) {
+        return -1;
+      }
+      if (cached < 0 || sinceRefresh >= refreshEvery) {
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        cached = sorted[Math.min(size - 1, (int) Math.ceil(percentile * size) - 1)];
+        sinceRefresh = 0;
+      }
+      return cached;
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package optimizing.concurrent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe memoizing supplier: computes its value once, on first use, then serves it without
+ * locking.
+ *
+ * <p>The fast path is a single acquire read of the cached value, paired with a release write on
+ * publication, which is all the happens-before a reader needs to see a fully constructed object.
+ * Only callers that arrive before initialization finishes take the monitor (double-checked
+ * locking). A {@code synchronized} getter, by contrast, takes the monitor on every call for the
+ * rest of the program.
+ *
+ * <p>If the initializer throws, nothing is cached and the next caller retries. The initializer is
+ * released after success so anything it captured can be collected. {@code null} results are
+ * rejected because {@code null} marks "not initialized yet".
+ *
+ * @param <T> value type
+ */
+public final class Lazy<T> implements Supplier<T> {
+  private static final VarHandle VALUE;
+
+  static {
+    try {
+      VALUE = MethodHandles.lookup().findVarHandle(Lazy.class, "value", Object.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private Supplier<? extends T> initializer;
+
+  @SuppressWarnings("unused") // accessed through VALUE
+  private Object value;
+
+  private Lazy(final Supplier<? extends T> initializer) {
+    this.initializer = initializer;
+  }
+
+  /**
+   * Wraps an expensive initializer.
+   *
+   * @param initializer runs at most once successfully; must not return {@code null}
+   * @param <T> value type
+   * @return lazy holder
+   */
+  public static <T> Lazy<T> of(final Supplier<? extends T> initializer) {
+    return new Lazy<>(Objects.requireNonNull(initializer, "initializer cannot be null"));
+  }
+
+  /**
+   * Returns the value, computing it on the first call.
+   *
+   * @return the memoized value
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public T get() {
+    Object current = VALUE.getAcquire(this);
+    if (current != null) {
+      return (T) current;
+    }
+    return initialize();
+  }
+
+  /** Returns {@code true} once the value has been computed; never triggers initialization. */
+  public boolean isInitialized() {
+    return VALUE.getAcquire(this) != null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private synchronized T initialize() {
+    Object current = VALUE.getAcquire(this);
+    if (current == null) {
+      current = Objects.requireNonNull(initializer.get(), "initializer returned null");
+      VALUE.setRelease(this, current);
+      initializer = null;
+    }
+    return (T) current;
+  }
+}
@@ -0,0 +1,163 @@
+package optimizing.concurrent;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Parallel {@code for} loop over an index range, run as work-stealing tasks on a {@link
+ * ForkJoinPool}.
+ *
+ * <p>Splitting is adaptive ("lazy binary splitting"): a task only halves its range while other
+ * workers are likely to need work, judged by {@link
+ * java.util.concurrent.ForkJoinTask#getSurplusQueuedTaskCount()}. Otherwise it runs one grain of
+ * iterations and checks again. So a range that turns out to be expensive keeps shedding halves for
+ * idle workers to steal, while cheap uniform ranges are not shredded into thousands of tasks. The
+ * grain is the smallest range ever run as a unit; the default picks about 16 grains per worker.
+ */
+public final class ParallelFor {
+  /** Grain value that asks for an automatic grain based on range size and parallelism. */
+  public static final int AUTO_GRAIN = 0;
+
+  // A worker with more queued tasks than this already has enough for thieves to take.
+  private static final int SURPLUS_LIMIT = 2;
+  private static final int GRAINS_PER_WORKER = 16;
+
+  private final ForkJoinPool pool;
+  private final int grain;
+
+  /** Creates a loop runner on the common pool with an automatic grain. */
+  public ParallelFor() {
+    this(ForkJoinPool.commonPool(), AUTO_GRAIN);
+  }
+
+  /**
+   * Creates a loop runner with an explicit pool and grain.
+   *
+   * @param pool pool that runs the iterations
+   * @param grain smallest number of iterations run as one unit, or {@link #AUTO_GRAIN}
+   */
+  public ParallelFor(final ForkJoinPool pool, final int grain) {
+    if (grain < 0) {
+      throw new IllegalArgumentException("grain must be >= 0");
+    }
+    this.pool = Objects.requireNonNull(pool, "pool cannot be null");
+    this.grain = grain;
+  }
+
+  /**
+   * Runs {@code body} for every index in {@code [from, to)}, in no particular order, and returns
+   * when all iterations are done. An exception thrown by any iteration is rethrown here, but only
+   * once no other iteration is still running; iterations not yet started may be skipped.
+   *
+   * @param from first index (inclusive)
+   * @param to last index (exclusive)
+   * @param body loop body; must be safe to run concurrently for different indices
+   */
+  public void forRange(final int from, final int to, final IntConsumer body) {
+    Objects.requireNonNull(body, "body cannot be null");
+    if (from >= to) {
+      return;
+    }
+    pool.invoke(new RangeTask(from, to, grainFor(to - from), body, null));
+  }
+
+  /**
+   * Runs {@code body} for every element of a random-access list.
+   *
+   * @param items elements to visit; must not be structurally modified meanwhile
+   * @param body loop body; must be safe to run concurrently for different elements
+   * @param <T> element type
+   */
+  public <T> void forEach(final List<T> items, final Consumer<? super T> body) {
+    if (!(items instanceof RandomAccess)) {
+      throw new IllegalArgumentException("items must support random access");
+    }
+    forRange(0, items.size(), index -> body.accept(items.get(index)));
+  }
+
+  /** Returns the grain that {@link #forRange} would use for a range of {@code size} indices. */
+  public int grainFor(final int size) {
+    if (grain != AUTO_GRAIN) {
+      return grain;
+    }
+    return Math.max(1, size / (pool.getParallelism() * GRAINS_PER_WORKER));
+  }
+
+  /** One index range; forked halves are chained through {@code nextForked} to be joined later. */
+  private static final class RangeTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int from;
+    private final int to;
+    private final int grain;
+    private final transient IntConsumer body;
+    private final RangeTask nextForked;
+
+    private RangeTask(
+        final int from,
+        final int to,
+        final int grain,
+        final IntConsumer body,
+        final RangeTask nextForked) {
+      this.from = from;
+      this.to = to;
+      this.grain = grain;
+      this.body = body;
+      this.nextForked = nextForked;
+    }
+
+    @Override
+    protected void compute() {
+      int lo = from;
+      int hi = to;
+      RangeTask forked = null;
+      Throwable failure = null;
+      try {
+        while (hi - lo > grain) {
+          if (getSurplusQueuedTaskCount() > SURPLUS_LIMIT) {
+            // Plenty queued already: make progress, then see whether someone has gone idle.
+            run(lo, lo + grain);
+            lo += grain;
+          } else {
+            int mid = (lo + hi) >>> 1;
+            forked = new RangeTask(mid, hi, grain, body, forked);
+            forked.fork();
+            hi = mid;
+          }
+        }
+        run(lo, hi);
+      } catch (RuntimeException | Error e) {
+        failure = e;
+      }
+      // Join every forked half even after a failure, so none is still writing when we return.
+      for (RangeTask task = forked; task != null; task = task.nextForked) {
+        try {
+          task.join();
+        } catch (RuntimeException | Error e) {
+          if (failure == null) {
+            failure = e;
+          } else if (failure != e) {
+            failure.addSuppressed(e);
+          }
+        }
+      }
+      if (failure instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+      if (failure instanceof Error error) {
+        throw error;
+      }
+    }
+
+    private void run(final int lo, final int hi) {
+      for (int i = lo; i < hi; i++) {
+        body.accept(i);
+      }
+    }
+  }
+}
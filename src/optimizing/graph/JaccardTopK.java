@@ -0,0 +1,339 @@
+package optimizing.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import optimizing.concurrent.ParallelFor;
+
+/**
+ * For every user, the {@code k} other users whose sets (e.g. connections) have the highest Jaccard
+ * similarity {@code |A ∩ B| / |A ∪ B|}, computed over all pairs.
+ *
+ * <p>Users are cut into blocks, and the pair matrix is processed one tile, a row block × a column
+ * block, at a time. Each column block has a small inverted index: for every item, the users in the
+ * block that hold it. A row user's intersections with the whole column block are then counted by
+ * walking its items' postings into a block-sized counter array, which stays in cache. So a tile
+ * touches only pairs that share at least one item, and the other pairs, which score zero, cost
+ * nothing. Row blocks run in parallel on the fork-join common pool.
+ *
+ * <p>Each user keeps its best {@code k} in a bounded min-heap, whose root is the weakest neighbour
+ * kept, so most candidates are rejected with one comparison. A row block owns the heaps of its
+ * users. Each pair is therefore scored twice, once from each side. That costs less than sharing
+ * heaps between threads.
+ */
+public final class JaccardTopK {
+  /** Users per block; 2,048 keeps a tile's counters (8 KB) and postings close to the core. */
+  public static final int DEFAULT_BLOCK_SIZE = 2_048;
+
+  private static final ParallelFor BLOCKS = new ParallelFor(ForkJoinPool.commonPool(), 1);
+
+  private final int k;
+  private final int[] neighborIds;
+  private final float[] neighborScores;
+  private final int[] neighborCounts;
+
+  /**
+   * A similar user and how similar it is.
+   *
+   * @param user index of the other user
+   * @param similarity Jaccard similarity in {@code (0, 1]}
+   */
+  public record Neighbor(int user, float similarity) {}
+
+  private JaccardTopK(final int users, final int k) {
+    this.k = k;
+    this.neighborIds = new int[users * k];
+    this.neighborScores = new float[users * k];
+    this.neighborCounts = new int[users];
+  }
+
+  /**
+   * Computes the top {@code k} neighbours of every user with {@link #DEFAULT_BLOCK_SIZE}.
+   *
+   * @param sets each user's items as ids of any size; duplicates are ignored
+   * @param k neighbours to keep per user
+   * @return the neighbours
+   */
+  public static JaccardTopK compute(final int[][] sets, final int k) {
+    return compute(sets, k, DEFAULT_BLOCK_SIZE);
+  }
+
+  /**
+   * Computes the top {@code k} neighbours of every user.
+   *
+   * @param sets each user's items as ids of any size; duplicates are ignored
+   * @param k neighbours to keep per user
+   * @param blockSize users per tile side
+   * @return the neighbours
+   */
+  public static JaccardTopK compute(final int[][] sets, final int k, final int blockSize) {
+    Objects.requireNonNull(sets, "sets cannot be null");
+    if (k <= 0) {
+      throw new IllegalArgumentException("k must be > 0");
+    }
+    if (blockSize <= 0) {
+      throw new IllegalArgumentException("blockSize must be > 0");
+    }
+    if ((long) sets.length * k > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("too many users for k = " + k);
+    }
+    Csr users = Csr.of(sets);
+    Postings[] columns = new Postings[(users.size() + blockSize - 1) / blockSize];
+    for (int b = 0; b < columns.length; b++) {
+      columns[b] = Postings.of(users, b * blockSize, Math.min(users.size(), (b + 1) * blockSize));
+    }
+    JaccardTopK result = new JaccardTopK(users.size(), k);
+    BLOCKS.forRange(
+        0,
+        columns.length,
+        rowBlock -> {
+          int from = rowBlock * blockSize;
+          int to = Math.min(users.size(), from + blockSize);
+          result.scoreRowBlock(users, columns, blockSize, from, to);
+        });
+    for (int user = 0; user < users.size(); user++) {
+      result.sortNeighbors(user);
+    }
+    return result;
+  }
+
+  /** Returns the number of users. */
+  public int userCount() {
+    return neighborCounts.length;
+  }
+
+  /**
+   * Returns a user's most similar other users, best first; ties go to the lower user index. Users
+   * sharing no item are never listed.
+   *
+   * @param user user index
+   * @return up to {@code k} neighbours
+   */
+  public List<Neighbor> neighbors(final int user) {
+    Objects.checkIndex(user, neighborCounts.length);
+    List<Neighbor> neighbors = new ArrayList<>(neighborCounts[user]);
+    for (int i = user * k, end = i + neighborCounts[user]; i < end; i++) {
+      neighbors.add(new Neighbor(neighborIds[i], neighborScores[i]));
+    }
+    return neighbors;
+  }
+
+  /** Scores rows {@code [from, to)} against every column block, tile by tile. */
+  private void scoreRowBlock(
+      final Csr users,
+      final Postings[] columns,
+      final int blockSize,
+      final int from,
+      final int to) {
+    // Shared-item count per user of the current column block, and which of them are non-zero.
+    int[] counts = new int[blockSize];
+    int[] touched = new int[blockSize];
+    for (Postings column : columns) {
+      for (int user = from; user < to; user++) {
+        int touchedCount = 0;
+        for (int i = users.start(user), end = users.start(user + 1); i < end; i++) {
+          int item = users.items[i];
+          if (item >= column.itemCount()) {
+            // Items are sorted, so no later one has postings in this block either.
+            break;
+          }
+          for (int p = column.starts[item], stop = column.starts[item + 1]; p < stop; p++) {
+            int local = column.users[p];
+            if (counts[local]++ == 0) {
+              touched[touchedCount++] = local;
+            }
+          }
+        }
+        int size = users.size(user);
+        for (int t = 0; t < touchedCount; t++) {
+          int local = touched[t];
+          int other = column.firstUser + local;
+          int shared = counts[local];
+          counts[local] = 0;
+          if (other != user) {
+            offer(user, other, (float) shared / (size + users.size(other) - shared));
+          }
+        }
+      }
+    }
+  }
+
+  // Heap order: the root is the weakest kept neighbour (lowest score, then highest index).
+  private boolean weaker(final int a, final int b) {
+    float scoreA = neighborScores[a];
+    float scoreB = neighborScores[b];
+    return scoreA < scoreB || scoreA == scoreB && neighborIds[a] > neighborIds[b];
+  }
+
+  private void offer(final int user, final int other, final float score) {
+    int base = user * k;
+    int count = neighborCounts[user];
+    if (count < k) {
+      int slot = base + count;
+      neighborIds[slot] = other;
+      neighborScores[slot] = score;
+      neighborCounts[user] = count + 1;
+      while (slot > base) {
+        int parent = base + (slot - base - 1) / 2;
+        if (!weaker(slot, parent)) {
+          break;
+        }
+        swap(slot, parent);
+        slot = parent;
+      }
+      return;
+    }
+    float rootScore = neighborScores[base];
+    if (score < rootScore || score == rootScore && other > neighborIds[base]) {
+      return;
+    }
+    neighborIds[base] = other;
+    neighborScores[base] = score;
+    siftDown(base, base + k);
+  }
+
+  private void siftDown(final int base, final int end) {
+    int slot = base;
+    while (true) {
+      int left = base + 2 * (slot - base) + 1;
+      if (left >= end) {
+        return;
+      }
+      int child = left + 1 < end && weaker(left + 1, left) ? left + 1 : left;
+      if (!weaker(child, slot)) {
+        return;
+      }
+      swap(slot, child);
+      slot = child;
+    }
+  }
+
+  /** Turns a user's heap into a best-first list, by repeatedly moving the root to the end. */
+  private void sortNeighbors(final int user) {
+    int base = user * k;
+    for (int end = base + neighborCounts[user] - 1; end > base; end--) {
+      swap(base, end);
+      siftDown(base, end);
+    }
+  }
+
+  private void swap(final int a, final int b) {
+    int id = neighborIds[a];
+    neighborIds[a] = neighborIds[b];
+    neighborIds[b] = id;
+    float score = neighborScores[a];
+    neighborScores[a] = neighborScores[b];
+    neighborScores[b] = score;
+  }
+
+  /**
+   * All users' sorted, deduplicated items in one array, with per-user offsets. Item ids are
+   * renumbered densely, so a block's postings index is sized by the distinct items, not by the
+   * largest id; hashed ids near {@code 1e9} would otherwise cost gigabytes per block.
+   */
+  private static final class Csr {
+    private final int[] offsets;
+    private final int[] items;
+
+    private Csr(final int[] offsets, final int[] items) {
+      this.offsets = offsets;
+      this.items = items;
+    }
+
+    private static Csr of(final int[][] sets) {
+      int[] offsets = new int[sets.length + 1];
+      long total = 0;
+      for (int u = 0; u < sets.length; u++) {
+        total += Objects.requireNonNull(sets[u], "sets cannot contain null").length;
+      }
+      if (total > Integer.MAX_VALUE - 8) {
+        throw new IllegalArgumentException("too many items in total");
+      }
+      int[] items = new int[(int) total];
+      int size = 0;
+      for (int u = 0; u < sets.length; u++) {
+        int start = size;
+        System.arraycopy(sets[u], 0, items, start, sets[u].length);
+        Arrays.sort(items, start, start + sets[u].length);
+        for (int i = start; i < start + sets[u].length; i++) {
+          if (size == start || items[size - 1] != items[i]) {
+            items[size++] = items[i];
+          }
+        }
+        offsets[u + 1] = size;
+      }
+      renumber(items, size);
+      return new Csr(offsets, items);
+    }
+
+    // Maps each id to its rank among the distinct ids. The map is monotonic, so every user's items
+    // stay sorted.
+    private static void renumber(final int[] items, final int size) {
+      int[] distinct = Arrays.copyOf(items, size);
+      Arrays.parallelSort(distinct);
+      int unique = 0;
+      for (int i = 0; i < size; i++) {
+        if (unique == 0 || distinct[unique - 1] != distinct[i]) {
+          distinct[unique++] = distinct[i];
+        }
+      }
+      for (int i = 0; i < size; i++) {
+        items[i] = Arrays.binarySearch(distinct, 0, unique, items[i]);
+      }
+    }
+
+    private int size() {
+      return offsets.length - 1;
+    }
+
+    private int start(final int user) {
+      return offsets[user];
+    }
+
+    private int size(final int user) {
+      return offsets[user + 1] - offsets[user];
+    }
+  }
+
+  /** Inverted index of one column block: item to the block-local indices of users holding it. */
+  private static final class Postings {
+    private final int firstUser;
+    private final int[] starts;
+    private final int[] users;
+
+    private Postings(final int firstUser, final int[] starts, final int[] users) {
+      this.firstUser = firstUser;
+      this.starts = starts;
+      this.users = users;
+    }
+
+    private static Postings of(final Csr csr, final int from, final int to) {
+      int maxItem = -1;
+      for (int i = csr.start(from); i < csr.start(to); i++) {
+        maxItem = Math.max(maxItem, csr.items[i]);
+      }
+      int[] starts = new int[maxItem + 2];
+      for (int i = csr.start(from); i < csr.start(to); i++) {
+        starts[csr.items[i] + 1]++;
+      }
+      for (int item = 0; item <= maxItem; item++) {
+        starts[item + 1] += starts[item];
+      }
+      int[] next = Arrays.copyOf(starts, starts.length);
+      int[] users = new int[csr.start(to) - csr.start(from)];
+      for (int user = from; user < to; user++) {
+        for (int i = csr.start(user); i < csr.start(user + 1); i++) {
+          users[next[csr.items[i]]++] = user - from;
+        }
+      }
+      return new Postings(from, starts, users);
+    }
+
+    // Items above the block's largest one have no postings here.
+    private int itemCount() {
+      return starts.length - 1;
+    }
+  }
+}
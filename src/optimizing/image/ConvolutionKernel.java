@@ -0,0 +1,104 @@
+package optimizing.image;
+
+import java.util.Arrays;
+
+/**
+ * Square integer convolution kernel for 8-bit grayscale planes.
+ *
+ * <p>Output pixels are {@code clamp((sum(weight * pixel) * reciprocal + 32768) >> 16, 0, 255)},
+ * where {@code reciprocal = round(65536 / divisor)}. Dividing by a fixed-point multiply instead of
+ * {@code /} keeps the inner loop free of integer division, which the JIT cannot vectorize, and
+ * every implementation in this package rounds exactly the same way.
+ */
+public final class ConvolutionKernel {
+  /** 3x3 box blur. */
+  public static final ConvolutionKernel BOX_BLUR_3 =
+      new ConvolutionKernel(3, new int[] {1, 1, 1, 1, 1, 1, 1, 1, 1}, 9);
+
+  /** 3x3 four-neighbour sharpen ({@code 5c - n - s - e - w}). */
+  public static final ConvolutionKernel SHARPEN_3 =
+      new ConvolutionKernel(3, new int[] {0, -1, 0, -1, 5, -1, 0, -1, 0}, 1);
+
+  /** 5x5 binomial approximation of a Gaussian blur. */
+  public static final ConvolutionKernel GAUSSIAN_5 =
+      new ConvolutionKernel(
+          5,
+          new int[] {
+            1, 4, 6, 4, 1, 4, 16, 24, 16, 4, 6, 24, 36, 24, 6, 4, 16, 24, 16, 4, 1, 4, 6, 4, 1
+          },
+          256);
+
+  private final int size;
+  private final int[] weights;
+  private final int reciprocal;
+
+  /**
+   * Creates a kernel.
+   *
+   * @param size odd side length
+   * @param weights {@code size * size} weights, row by row
+   * @param divisor the weighted sum is divided by this (rounded to 16-bit fixed point)
+   */
+  public ConvolutionKernel(final int size, final int[] weights, final int divisor) {
+    if (size <= 0 || size % 2 == 0) {
+      throw new IllegalArgumentException("size must be a positive odd number");
+    }
+    if (weights.length != size * size) {
+      throw new IllegalArgumentException("Expected " + size * size + " weights");
+    }
+    if (divisor <= 0) {
+      throw new IllegalArgumentException("divisor must be positive");
+    }
+    long maxMagnitude = 0;
+    for (int weight : weights) {
+      maxMagnitude += Math.abs((long) weight) * 255;
+    }
+    long reciprocalLong = Math.round(65_536.0 / divisor);
+    if (maxMagnitude * reciprocalLong > Integer.MAX_VALUE / 2) {
+      throw new IllegalArgumentException("Weights too large for 32-bit accumulation");
+    }
+    this.size = size;
+    this.weights = weights.clone();
+    this.reciprocal = (int) reciprocalLong;
+  }
+
+  /** Returns the side length. */
+  public int size() {
+    return size;
+  }
+
+  /** Returns how many pixels the kernel reaches beyond the centre on each side. */
+  public int radius() {
+    return size / 2;
+  }
+
+  /**
+   * Returns one weight.
+   *
+   * @param row kernel row, 0 at the top
+   * @param column kernel column, 0 at the left
+   * @return the weight
+   */
+  public int weight(final int row, final int column) {
+    return weights[row * size + column];
+  }
+
+  /**
+   * Turns a weighted sum into an output pixel.
+   *
+   * @param sum weighted sum of the neighbourhood
+   * @return pixel value in {@code 0..255}
+   */
+  public int normalize(final int sum) {
+    return Math.min(255, Math.max(0, (sum * reciprocal + 32_768) >> 16));
+  }
+
+  int reciprocal() {
+    return reciprocal;
+  }
+
+  @Override
+  public String toString() {
+    return size + "x" + size + Arrays.toString(weights);
+  }
+}
@@ -0,0 +1,231 @@
+package optimizing.image;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import optimizing.concurrent.ParallelFor;
+
+/**
+ * Cache-blocked, auto-vectorizable 2D convolution over 8-bit grayscale planes stored one pixel per
+ * {@code int}, row-major.
+ *
+ * <p>The output is cut into tiles (512x64 pixels by default) which run as fork/join tasks. The
+ * source rows a tile reads, about {@code (tileHeight + 2r) * tileWidth * 4} bytes, stay in L2
+ * while the tile is computed. Inside a tile, each output row is built one kernel row at a time:
+ * {@code acc[x] += w0 * src[x] + w1 * src[x + 1] + ...} over a contiguous run of columns
+ * (unrolled for 3- and 5-wide kernels), followed by a fixed-point normalize-and-clamp pass. Both
+ * loops are branch-free straight-line array code that HotSpot's superword optimizer compiles to
+ * SIMD instructions; only the {@code r} border columns on each side fall back to a per-pixel loop
+ * that clamps coordinates to the edge.
+ *
+ * <p>{@link #convolveScalar} is the naive per-pixel reference. Both produce identical output.
+ */
+public final class TiledConvolver {
+  /** Default tile width in pixels (2 KB per source row). */
+  public static final int DEFAULT_TILE_WIDTH = 512;
+
+  /** Default tile height in rows. */
+  public static final int DEFAULT_TILE_HEIGHT = 64;
+
+  private final ParallelFor parallelFor;
+  private final int tileWidth;
+  private final int tileHeight;
+
+  /** Creates a convolver on the common pool with default tiles. */
+  public TiledConvolver() {
+    this(ForkJoinPool.commonPool(), DEFAULT_TILE_WIDTH, DEFAULT_TILE_HEIGHT);
+  }
+
+  /**
+   * Creates a convolver with explicit pool and tile size.
+   *
+   * @param pool pool that runs the tiles
+   * @param tileWidth tile width in pixels
+   * @param tileHeight tile height in rows
+   */
+  public TiledConvolver(final ForkJoinPool pool, final int tileWidth, final int tileHeight) {
+    if (tileWidth <= 0 || tileHeight <= 0) {
+      throw new IllegalArgumentException("Tile dimensions must be positive");
+    }
+    // Tiles are already coarse, so every tile may be stolen on its own.
+    this.parallelFor = new ParallelFor(Objects.requireNonNull(pool, "pool cannot be null"), 1);
+    this.tileWidth = tileWidth;
+    this.tileHeight = tileHeight;
+  }
+
+  /**
+   * Convolves {@code src} into {@code dst}; pixels outside the image repeat the nearest edge pixel.
+   *
+   * @param src source plane, values {@code 0..255}; never modified
+   * @param dst destination plane; must not be {@code src}
+   * @param width image width
+   * @param height image height
+   * @param kernel kernel to apply
+   */
+  public void convolve(
+      final int[] src,
+      final int[] dst,
+      final int width,
+      final int height,
+      final ConvolutionKernel kernel) {
+    checkPlanes(src, dst, width, height);
+    int tilesAcross = (width + tileWidth - 1) / tileWidth;
+    int tilesDown = (height + tileHeight - 1) / tileHeight;
+    parallelFor.forRange(
+        0,
+        tilesAcross * tilesDown,
+        tile -> {
+          int x0 = (tile % tilesAcross) * tileWidth;
+          int y0 = (tile / tilesAcross) * tileHeight;
+          convolveTile(
+              src,
+              dst,
+              width,
+              height,
+              kernel,
+              x0,
+              Math.min(width, x0 + tileWidth),
+              y0,
+              Math.min(height, y0 + tileHeight));
+        });
+  }
+
+  /**
+   * Naive single-threaded reference: for every pixel, for every tap, clamp the coordinates and
+   * accumulate.
+   *
+   * @param src source plane, values {@code 0..255}; never modified
+   * @param dst destination plane; must not be {@code src}
+   * @param width image width
+   * @param height image height
+   * @param kernel kernel to apply
+   */
+  public static void convolveScalar(
+      final int[] src,
+      final int[] dst,
+      final int width,
+      final int height,
+      final ConvolutionKernel kernel) {
+    checkPlanes(src, dst, width, height);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        dst[y * width + x] = clampedPixel(src, width, height, kernel, x, y);
+      }
+    }
+  }
+
+  private static void convolveTile(
+      final int[] src,
+      final int[] dst,
+      final int width,
+      final int height,
+      final ConvolutionKernel kernel,
+      final int x0,
+      final int x1,
+      final int y0,
+      final int y1) {
+    int r = kernel.radius();
+    int size = kernel.size();
+    int reciprocal = kernel.reciprocal();
+    // Interior columns of this tile: every tap stays inside the row.
+    int fastFrom = Math.max(x0, r);
+    int fastTo = Math.min(x1, width - r);
+    int[] acc = new int[Math.max(0, fastTo - fastFrom)];
+    for (int y = y0; y < y1; y++) {
+      int out = y * width;
+      for (int x = x0; x < Math.min(fastFrom, x1); x++) {
+        dst[out + x] = clampedPixel(src, width, height, kernel, x, y);
+      }
+      if (fastFrom < fastTo) {
+        Arrays.fill(acc, 0);
+        int n = fastTo - fastFrom;
+        for (int ky = 0; ky < size; ky++) {
+          int row = Math.min(height - 1, Math.max(0, y + ky - r)) * width;
+          accumulateRow(acc, src, row + fastFrom - r, n, kernel, ky);
+        }
+        int base = out + fastFrom;
+        for (int i = 0; i < n; i++) {
+          dst[base + i] = Math.min(255, Math.max(0, (acc[i] * reciprocal + 32_768) >> 16));
+        }
+      }
+      for (int x = Math.max(fastTo, x0); x < x1; x++) {
+        dst[out + x] = clampedPixel(src, width, height, kernel, x, y);
+      }
+    }
+  }
+
+  // acc[i] += sum over kx of weight(ky, kx) * src[base + i + kx]. The common 3- and 5-wide rows
+  // are unrolled into one pass so acc is loaded and stored once per kernel row, not once per tap.
+  private static void accumulateRow(
+      final int[] acc,
+      final int[] src,
+      final int base,
+      final int n,
+      final ConvolutionKernel kernel,
+      final int ky) {
+    if (kernel.size() == 3) {
+      int w0 = kernel.weight(ky, 0);
+      int w1 = kernel.weight(ky, 1);
+      int w2 = kernel.weight(ky, 2);
+      for (int i = 0; i < n; i++) {
+        acc[i] += w0 * src[base + i] + w1 * src[base + i + 1] + w2 * src[base + i + 2];
+      }
+    } else if (kernel.size() == 5) {
+      int w0 = kernel.weight(ky, 0);
+      int w1 = kernel.weight(ky, 1);
+      int w2 = kernel.weight(ky, 2);
+      int w3 = kernel.weight(ky, 3);
+      int w4 = kernel.weight(ky, 4);
+      for (int i = 0; i < n; i++) {
+        acc[i] +=
+            w0 * src[base + i]
+                + w1 * src[base + i + 1]
+                + w2 * src[base + i + 2]
+                + w3 * src[base + i + 3]
+                + w4 * src[base + i + 4];
+      }
+    } else {
+      for (int kx = 0; kx < kernel.size(); kx++) {
+        int w = kernel.weight(ky, kx);
+        int from = base + kx;
+        for (int i = 0; i < n; i++) {
+          acc[i] += w * src[from + i];
+        }
+      }
+    }
+  }
+
+  private static int clampedPixel(
+      final int[] src,
+      final int width,
+      final int height,
+      final ConvolutionKernel kernel,
+      final int x,
+      final int y) {
+    int r = kernel.radius();
+    int sum = 0;
+    for (int ky = 0; ky < kernel.size(); ky++) {
+      int row = Math.min(height - 1, Math.max(0, y + ky - r)) * width;
+      for (int kx = 0; kx < kernel.size(); kx++) {
+        int column = Math.min(width - 1, Math.max(0, x + kx - r));
+        sum += kernel.weight(ky, kx) * src[row + column];
+      }
+    }
+    return kernel.normalize(sum);
+  }
+
+  @SuppressWarnings("PMD.CompareObjectsWithEquals")
+  private static void checkPlanes(
+      final int[] src, final int[] dst, final int width, final int height) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Image dimensions must be positive");
+    }
+    long pixels = (long) width * height;
+    if (src.length < pixels || dst.length < pixels) {
+      throw new IllegalArgumentException("Planes must hold width * height pixels");
+    }
+    if (src == dst) {
+      throw new IllegalArgumentException("Convolution cannot run in place");
+    }
+  }
+}
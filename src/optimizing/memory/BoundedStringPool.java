@@ -0,0 +1,75 @@
+package optimizing.memory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU-bounded {@link StringPool} split into lock-striped segments.
+ *
+ * <p>Each segment is an access-ordered {@link LinkedHashMap} guarded by its own monitor, so
+ * loader threads only contend when two values hash to the same stripe. The capacity is divided
+ * evenly between segments, which makes eviction approximately, not strictly, least recently used.
+ */
+final class BoundedStringPool implements StringPool {
+  private static final int SEGMENTS = 16;
+
+  private final Segment[] segments = new Segment[SEGMENTS];
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  BoundedStringPool(final int maxEntries) {
+    if (maxEntries < SEGMENTS) {
+      throw new IllegalArgumentException("maxEntries must be at least " + SEGMENTS);
+    }
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment(maxEntries / SEGMENTS);
+    }
+  }
+
+  @Override
+  public String intern(final String value) {
+    if (value == null) {
+      return null;
+    }
+    int h = value.hashCode();
+    Segment segment = segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    String canonical;
+    synchronized (segment) {
+      canonical = segment.putIfAbsent(value, value);
+    }
+    if (canonical == null) {
+      misses.increment();
+      return value;
+    }
+    hits.increment();
+    return canonical;
+  }
+
+  @Override
+  public long hits() {
+    return hits.sum();
+  }
+
+  @Override
+  public long misses() {
+    return misses.sum();
+  }
+
+  /** One stripe: an access-ordered map that drops its eldest entry past the stripe capacity. */
+  private static final class Segment extends LinkedHashMap<String, String> {
+    private static final long serialVersionUID = 1L;
+
+    private final int capacity;
+
+    private Segment(final int capacity) {
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+      return size() > capacity;
+    }
+  }
+}
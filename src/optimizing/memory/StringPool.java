@@ -0,0 +1,47 @@
+package optimizing.memory;
+
+/**
+ * Deduplicates equal strings so bulk loaders keep one instance per distinct value.
+ *
+ * <p>CSV columns such as category or payment method hold a handful of distinct values repeated
+ * millions of times; each parsed row would otherwise pin its own copy. Unlike {@link
+ * String#intern()}, these pools are bounded or weakly held, so they can't leak. Implementations
+ * are safe to share between loader threads.
+ */
+public interface StringPool {
+
+  /**
+   * Returns the canonical instance equal to {@code value}, adding {@code value} if it is new.
+   *
+   * @param value string to deduplicate; {@code null} is returned unchanged
+   * @return a shared instance equal to {@code value}
+   */
+  String intern(String value);
+
+  /** Returns how many {@link #intern} calls were answered with an existing instance. */
+  long hits();
+
+  /** Returns how many {@link #intern} calls added a new instance. */
+  long misses();
+
+  /**
+   * Pool that keeps at most {@code maxEntries} strings and evicts the least recently used. Good
+   * for columns with a known, modest cardinality.
+   *
+   * @param maxEntries upper bound on pooled strings
+   * @return new bounded pool
+   */
+  static StringPool bounded(final int maxEntries) {
+    return new BoundedStringPool(maxEntries);
+  }
+
+  /**
+   * Pool whose entries disappear once no loaded record refers to them any more. Good when the
+   * cardinality is unknown.
+   *
+   * @return new weak pool
+   */
+  static StringPool weak() {
+    return new WeakStringPool();
+  }
+}
@@ -0,0 +1,59 @@
+package optimizing.memory;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link StringPool} whose entries are only weakly reachable: once no loaded record uses a value,
+ * the GC may clear it and the pool entry goes with it.
+ *
+ * <p>Lock-striped like {@link BoundedStringPool}; each stripe is a {@link WeakHashMap} whose value
+ * is a weak reference back to the key, so the pool itself never keeps a string alive.
+ */
+final class WeakStringPool implements StringPool {
+  private static final int SEGMENTS = 16;
+
+  private final Segment[] segments = new Segment[SEGMENTS];
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  WeakStringPool() {
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment();
+    }
+  }
+
+  @Override
+  public String intern(final String value) {
+    if (value == null) {
+      return null;
+    }
+    int h = value.hashCode();
+    Segment segment = segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    synchronized (segment) {
+      WeakReference<String> reference = segment.get(value);
+      String canonical = reference == null ? null : reference.get();
+      if (canonical != null) {
+        hits.increment();
+        return canonical;
+      }
+      segment.put(value, new WeakReference<>(value));
+    }
+    misses.increment();
+    return value;
+  }
+
+  @Override
+  public long hits() {
+    return hits.sum();
+  }
+
+  @Override
+  public long misses() {
+    return misses.sum();
+  }
+
+  /** One stripe; the value points back at the key weakly so the entry never pins it. */
+  private static final class Segment extends WeakHashMap<String, WeakReference<String>> {}
+}
@@ -0,0 +1,92 @@
+package optimizing.profiling;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Summary of one benchmark's measurement rounds, all in nanoseconds per operation.
+ *
+ * @param name what was measured
+ * @param rounds number of recorded rounds
+ * @param mean mean over the rounds
+ * @param confidence half-width of the 95% confidence interval around the mean (Student's t), or
+ *     NaN for a single round
+ * @param p50 median round
+ * @param p90 90th percentile round
+ * @param p99 99th percentile round (the slowest round unless there are 100 or more)
+ * @param min fastest round
+ * @param max slowest round
+ */
+public record BenchmarkResult(
+    String name,
+    int rounds,
+    double mean,
+    double confidence,
+    double p50,
+    double p90,
+    double p99,
+    double min,
+    double max) {
+  // Two-sided 95% Student's t quantiles for 1..30 degrees of freedom.
+  private static final double[] T_95 = {
+    12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228, 2.201, 2.179, 2.160,
+    2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086, 2.080, 2.074, 2.069, 2.064, 2.060, 2.056,
+    2.052, 2.048, 2.045, 2.042
+  };
+
+  /** Validates the name. */
+  public BenchmarkResult {
+    Objects.requireNonNull(name, "name cannot be null");
+  }
+
+  /**
+   * Summarizes per-round samples.
+   *
+   * @param name what was measured
+   * @param nanosPerOp one sample per recorded round; not modified
+   * @return the summary
+   */
+  public static BenchmarkResult of(final String name, final double[] nanosPerOp) {
+    if (nanosPerOp.length == 0) {
+      throw new IllegalArgumentException("at least one sample is required");
+    }
+    double[] sorted = nanosPerOp.clone();
+    Arrays.sort(sorted);
+    int n = sorted.length;
+    double sum = 0;
+    for (double sample : sorted) {
+      sum += sample;
+    }
+    double mean = sum / n;
+    double confidence = Double.NaN;
+    if (n > 1) {
+      double squares = 0;
+      for (double sample : sorted) {
+        squares += (sample - mean) * (sample - mean);
+      }
+      double t = n - 1 <= T_95.length ? T_95[n - 2] : 1.960;
+      confidence = t * Math.sqrt(squares / (n - 1)) / Math.sqrt(n);
+    }
+    return new BenchmarkResult(
+        name,
+        n,
+        mean,
+        confidence,
+        percentile(sorted, 0.50),
+        percentile(sorted, 0.90),
+        percentile(sorted, 0.99),
+        sorted[0],
+        sorted[n - 1]);
+  }
+
+  /** Returns operations per second at the mean. */
+  public double opsPerSecond() {
+    return 1e9 / mean;
+  }
+
+  // Nearest-rank percentile of sorted samples.
+  private static double percentile(final double[] sorted, final double fraction) {
+    int rank = (int) Math.ceil(fraction * sorted.length);
+    return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+  }
+}
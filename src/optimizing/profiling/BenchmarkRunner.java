@@ -0,0 +1,343 @@
+package optimizing.profiling;
+
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Small in-process micro-benchmark runner for the lessons, where a forked JMH run is too heavy.
+ *
+ * <p>Each benchmark first runs unrecorded warm-up rounds, each calling it for the minimum round
+ * time, so the JIT has compiled it before anything is recorded; with the defaults that is 200 ms,
+ * and C2 often needs more than the first 50. The last warm-up round also sets the batch, the
+ * number of calls that fill one round, so short work is timed over many calls and timer
+ * resolution stays negligible. Each recorded round then times one batch. The result is reported
+ * per operation, as a mean with a 95% confidence interval and as percentiles over the rounds.
+ * Results pass through a {@link Blackhole}, so dead-code elimination cannot remove the work.
+ *
+ * <p>What it cannot do, unlike JMH: run each benchmark in a fresh JVM, so profile pollution from
+ * earlier benchmarks is possible. Use the {@code jmh} Gradle task for numbers to publish.
+ *
+ * <pre>{@code
+ * BenchmarkRunner runner = new BenchmarkRunner();
+ * runner.runAll(PerfDemo.class);              // every @MicroBenchmark method
+ * runner.run("sort copy", n, () -> sorted(data));
+ * runner.print(System.out);
+ * }</pre>
+ */
+public final class BenchmarkRunner {
+  private static final int MAX_BATCH = 1 << 30;
+
+  private final int warmups;
+  private final int rounds;
+  private final long minRoundNanos;
+  private final Blackhole blackhole = new Blackhole();
+  private final List<BenchmarkResult> results = new ArrayList<>();
+
+  /** Creates a runner with 10 warm-up and 10 recorded rounds of at least 20 ms each. */
+  public BenchmarkRunner() {
+    this(10, 10, Duration.ofMillis(20));
+  }
+
+  /**
+   * Creates a runner with explicit round counts.
+   *
+   * @param warmups unrecorded rounds per benchmark; they also calibrate the batch size
+   * @param rounds recorded rounds per benchmark
+   * @param minRoundTime shortest round worth timing; faster work is repeated in a batch
+   */
+  public BenchmarkRunner(final int warmups, final int rounds, final Duration minRoundTime) {
+    if (warmups < 0) {
+      throw new IllegalArgumentException("warmups cannot be negative");
+    }
+    if (rounds <= 0) {
+      throw new IllegalArgumentException("rounds must be positive");
+    }
+    this.warmups = warmups;
+    this.rounds = rounds;
+    this.minRoundNanos =
+        Objects.requireNonNull(minRoundTime, "minRoundTime cannot be null").toNanos();
+  }
+
+  /**
+   * Benchmarks a piece of work that returns its result.
+   *
+   * @param name row label
+   * @param operations operations one call performs, used for the per-op figures
+   * @param work the code to measure; its result is consumed, and an exception it throws ends the
+   *     run wrapped in an {@link IllegalStateException}
+   * @return the summary, also kept for {@link #print}
+   */
+  public BenchmarkResult run(final String name, final long operations, final Callable<?> work) {
+    Objects.requireNonNull(work, "work cannot be null");
+    return measure(name, operations, warmups, rounds, hole -> hole.consume(work.call()));
+  }
+
+  /**
+   * Benchmarks work that needs fresh input for every call, such as an in-place sort. {@code setup}
+   * runs before each call, outside the timed region, so calls are timed one at a time and never
+   * batched; keep such work well above a microsecond.
+   *
+   * @param name row label
+   * @param operations operations one call performs
+   * @param setup builds the input of one call
+   * @param work the code to measure; its result is consumed
+   * @param <T> input type
+   * @return the summary, also kept for {@link #print}
+   */
+  public <T> BenchmarkResult run(
+      final String name,
+      final long operations,
+      final Supplier<? extends T> setup,
+      final Function<? super T, ?> work) {
+    Objects.requireNonNull(setup, "setup cannot be null");
+    Objects.requireNonNull(work, "work cannot be null");
+    checkArguments(name, operations);
+    for (int i = 0; i < warmups; i++) {
+      blackhole.consume(work.apply(setup.get()));
+    }
+    double[] samples = new double[rounds];
+    for (int round = 0; round < rounds; round++) {
+      T input = setup.get();
+      long start = System.nanoTime();
+      Object result = work.apply(input);
+      long elapsed = System.nanoTime() - start;
+      blackhole.consume(result);
+      samples[round] = (double) elapsed / operations;
+    }
+    return record(name, samples);
+  }
+
+  /**
+   * Benchmarks every {@link MicroBenchmark} method of {@code demo}, in name order.
+   *
+   * @param demo class declaring static benchmark methods
+   * @return their summaries
+   */
+  public List<BenchmarkResult> runAll(final Class<?> demo) {
+    Objects.requireNonNull(demo, "demo cannot be null");
+    Method[] methods = demo.getDeclaredMethods();
+    Arrays.sort(methods, Comparator.comparing(Method::getName));
+    List<BenchmarkResult> found = new ArrayList<>();
+    for (Method method : methods) {
+      MicroBenchmark annotation = method.getAnnotation(MicroBenchmark.class);
+      if (annotation == null) {
+        continue;
+      }
+      String name = annotation.value().isEmpty() ? method.getName() : annotation.value();
+      found.add(
+          measure(
+              name,
+              annotation.operations(),
+              annotation.warmups() < 0 ? warmups : annotation.warmups(),
+              annotation.rounds() < 0 ? rounds : annotation.rounds(),
+              bind(method)));
+    }
+    if (found.isEmpty()) {
+      throw new IllegalArgumentException(demo.getName() + " has no @MicroBenchmark methods");
+    }
+    return found;
+  }
+
+  /**
+   * Returns the result recorded under {@code name}.
+   *
+   * @param name row label
+   * @return the most recent result with that name
+   */
+  public BenchmarkResult result(final String name) {
+    for (int i = results.size() - 1; i >= 0; i--) {
+      if (results.get(i).name().equals(name)) {
+        return results.get(i);
+      }
+    }
+    throw new IllegalArgumentException("no benchmark named " + name);
+  }
+
+  /** Returns every result recorded so far, in run order. */
+  public List<BenchmarkResult> results() {
+    return List.copyOf(results);
+  }
+
+  /** Prints the results as a table. */
+  public void print(final PrintStream out) {
+    out.print(format());
+  }
+
+  /** Returns the results as a table, one row per benchmark. */
+  public String format() {
+    int nameWidth = "benchmark".length();
+    for (BenchmarkResult row : results) {
+      nameWidth = Math.max(nameWidth, row.name().length());
+    }
+    String layout = "%-" + nameWidth + "s %6s %21s %10s %10s %10s%n";
+    StringBuilder table = new StringBuilder(80 * (results.size() + 1));
+    table.append(
+        String.format(
+            Locale.ROOT, layout, "benchmark", "rounds", "mean +/- 95% CI", "p50", "p90", "p99"));
+    for (BenchmarkResult row : results) {
+      String mean = ProfileReport.formatNanos(row.mean());
+      String interval =
+          Double.isNaN(row.confidence())
+              ? mean
+              : mean + " +/- " + ProfileReport.formatNanos(row.confidence());
+      table.append(
+          String.format(
+              Locale.ROOT,
+              layout,
+              row.name(),
+              row.rounds(),
+              interval,
+              ProfileReport.formatNanos(row.p50()),
+              ProfileReport.formatNanos(row.p90()),
+              ProfileReport.formatNanos(row.p99())));
+    }
+    return table.toString();
+  }
+
+  private BenchmarkResult measure(
+      final String name,
+      final long operations,
+      final int warmupRounds,
+      final int recordedRounds,
+      final Workload work) {
+    checkArguments(name, operations);
+    if (warmupRounds < 0 || recordedRounds <= 0) {
+      throw new IllegalArgumentException("invalid round counts for " + name);
+    }
+    int batch = 1;
+    for (int i = 0; i < warmupRounds; i++) {
+      batch = warmUp(work);
+    }
+    double[] samples = new double[recordedRounds];
+    for (int round = 0; round < recordedRounds; round++) {
+      samples[round] = (double) timeBatch(work, batch) / ((double) batch * operations);
+    }
+    return record(name, samples);
+  }
+
+  /**
+   * Calls {@code work} repeatedly for one minimum round time and returns how many calls fit in
+   * it, which becomes the batch size of the recorded rounds.
+   */
+  private int warmUp(final Workload work) {
+    try {
+      long start = System.nanoTime();
+      long calls = 0;
+      long elapsed;
+      do {
+        work.run(blackhole);
+        calls++;
+        elapsed = System.nanoTime() - start;
+      } while (elapsed < minRoundNanos && calls < MAX_BATCH);
+      return (int) Math.max(1, Math.min(MAX_BATCH, calls * minRoundNanos / Math.max(1, elapsed)));
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw failure(t);
+    }
+  }
+
+  private long timeBatch(final Workload work, final int batch) {
+    try {
+      long start = System.nanoTime();
+      for (int i = 0; i < batch; i++) {
+        work.run(blackhole);
+      }
+      return System.nanoTime() - start;
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw failure(t);
+    }
+  }
+
+  private static IllegalStateException failure(final Throwable cause) {
+    if (cause instanceof InterruptedException) {
+      Thread.currentThread().interrupt();
+    }
+    return new IllegalStateException("benchmark failed", cause);
+  }
+
+  private BenchmarkResult record(final String name, final double[] samples) {
+    BenchmarkResult result = BenchmarkResult.of(name, samples);
+    results.add(result);
+    return result;
+  }
+
+  private static void checkArguments(final String name, final long operations) {
+    Objects.requireNonNull(name, "name cannot be null");
+    if (operations <= 0) {
+      throw new IllegalArgumentException("operations must be positive");
+    }
+  }
+
+  // Turns an annotated method into a workload through a method handle, cheaper than reflection.
+  private static Workload bind(final Method method) {
+    if (!Modifier.isStatic(method.getModifiers())) {
+      throw new IllegalArgumentException(method + " must be static");
+    }
+    Class<?>[] parameters = method.getParameterTypes();
+    boolean takesBlackhole = parameters.length == 1 && parameters[0] == Blackhole.class;
+    if (parameters.length > 1 || parameters.length == 1 && !takesBlackhole) {
+      throw new IllegalArgumentException(method + " must take no parameters or a Blackhole");
+    }
+    MethodHandle handle;
+    try {
+      method.setAccessible(true);
+      handle = MethodHandles.lookup().unreflect(method);
+    } catch (IllegalAccessException | RuntimeException e) {
+      throw new IllegalArgumentException("cannot access " + method, e);
+    }
+    // Every workload takes the blackhole, and primitive results go to the matching consume
+    // overload: adapting them to Object would time a boxing allocation along with the method.
+    MethodHandle call =
+        takesBlackhole ? handle : MethodHandles.dropArguments(handle, 0, Blackhole.class);
+    Class<?> returns = method.getReturnType();
+    if (returns == void.class) {
+      MethodHandle run = call.asType(MethodType.methodType(void.class, Blackhole.class));
+      // A block body, so the call's polymorphic signature returns void rather than Object.
+      return hole -> {
+        run.invokeExact(hole);
+      };
+    }
+    if (returns == boolean.class) {
+      MethodHandle run = call.asType(MethodType.methodType(boolean.class, Blackhole.class));
+      return hole -> hole.consume((boolean) run.invokeExact(hole));
+    }
+    if (returns == long.class) {
+      MethodHandle run = call.asType(MethodType.methodType(long.class, Blackhole.class));
+      return hole -> hole.consume((long) run.invokeExact(hole));
+    }
+    if (returns == float.class || returns == double.class) {
+      MethodHandle run = call.asType(MethodType.methodType(double.class, Blackhole.class));
+      return hole -> hole.consume((double) run.invokeExact(hole));
+    }
+    if (returns.isPrimitive()) {
+      // byte, short, char and int all widen to int.
+      MethodHandle run = call.asType(MethodType.methodType(int.class, Blackhole.class));
+      return hole -> hole.consume((int) run.invokeExact(hole));
+    }
+    MethodHandle run = call.asType(MethodType.methodType(Object.class, Blackhole.class));
+    return hole -> hole.consume((Object) run.invokeExact(hole));
+  }
+
+  /** One call of a benchmark. */
+  @FunctionalInterface
+  private interface Workload {
+    void run(Blackhole blackhole) throws Throwable;
+  }
+}
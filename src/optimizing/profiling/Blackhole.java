@@ -0,0 +1,77 @@
+package optimizing.profiling;
+
+/**
+ * Sink for benchmark results, so the JIT cannot prove them unused and skip computing them.
+ *
+ * <p>Each {@code consume} compares its argument with volatile fields, which the JIT must re-read
+ * on every call. A value that is never stored is still needed for the comparison, so it has to be
+ * computed. The comparison never succeeds, and it costs about a nanosecond, far less than the
+ * cache misses a shared {@code volatile} write would cause.
+ */
+public final class Blackhole {
+  private volatile Object trap = new Object();
+  private volatile int intTrap1 = 1;
+  private volatile int intTrap2 = 2;
+  private volatile long longTrap1 = 1;
+  private volatile long longTrap2 = 2;
+  private volatile double doubleTrap1 = 1;
+  private volatile double doubleTrap2 = 2;
+  private volatile boolean booleanTrap1;
+  private volatile boolean booleanTrap2 = true;
+
+  /** Consumes a reference. */
+  public void consume(final Object value) {
+    if (value == trap) {
+      throw new IllegalStateException("unreachable");
+    }
+  }
+
+  /** Consumes an {@code int}. */
+  public void consume(final int value) {
+    if (value == intTrap1 & value == intTrap2) {
+      throw new IllegalStateException("unreachable");
+    }
+  }
+
+  /** Consumes a {@code long}. */
+  public void consume(final long value) {
+    if (value == longTrap1 & value == longTrap2) {
+      throw new IllegalStateException("unreachable");
+    }
+  }
+
+  /** Consumes a {@code double}. */
+  public void consume(final double value) {
+    if (value == doubleTrap1 & value == doubleTrap2) {
+      throw new IllegalStateException("unreachable");
+    }
+  }
+
+  /** Consumes a {@code boolean}. */
+  public void consume(final boolean value) {
+    if (value == booleanTrap1 & value == booleanTrap2) {
+      throw new IllegalStateException("unreachable");
+    }
+  }
+
+  /**
+   * Burns CPU in proportion to {@code tokens}, without sleeping or touching memory: a fixed,
+   * deterministic stand-in for per-item overhead such as parsing or a syscall. Unlike {@code
+   * Thread.sleep}, its cost does not depend on timer slack or the scheduler.
+   *
+   * @param tokens units of work, about 2 ns each on a current x86 core
+   */
+  public static void consumeCpu(final long tokens) {
+    long state = tokens;
+    for (long i = tokens; i > 0; i--) {
+      // A xorshift step: each depends on the last, so the loop cannot be folded or vectorized.
+      state ^= state << 13;
+      state ^= state >>> 7;
+      state ^= state << 17;
+    }
+    if (state == 42) {
+      // Keeps the result live; reached only by a one-in-2^64 chance.
+      Thread.onSpinWait();
+    }
+  }
+}
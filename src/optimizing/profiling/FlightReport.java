@@ -0,0 +1,238 @@
+package optimizing.profiling;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Text summary of a {@code .jfr} file: hottest methods, allocation sites, lock contention and
+ * application events. Reads the file event by event, so large recordings are fine.
+ */
+public final class FlightReport {
+  private static final String APPLICATION_CATEGORY = "Application";
+
+  private final Map<String, Tally> hotMethods = new HashMap<>();
+  private final Map<String, Tally> allocations = new HashMap<>();
+  private final Map<String, Tally> locks = new HashMap<>();
+  private final Map<String, Tally> applicationEvents = new HashMap<>();
+  private final Set<Long> sampledThreads = new HashSet<>();
+  private long executionSamples;
+  private long allocatedBytes;
+  private Instant first = Instant.MAX;
+  private Instant last = Instant.MIN;
+
+  private FlightReport() {}
+
+  /**
+   * Summarizes a recording.
+   *
+   * @param recording {@code .jfr} file
+   * @param limit rows per section
+   * @return the text report
+   * @throws IOException if the file cannot be read
+   */
+  public static String summarize(final Path recording, final int limit) throws IOException {
+    Objects.requireNonNull(recording, "recording cannot be null");
+    if (limit <= 0) {
+      throw new IllegalArgumentException("limit must be positive");
+    }
+    FlightReport report = new FlightReport();
+    try (RecordingFile file = new RecordingFile(recording)) {
+      while (file.hasMoreEvents()) {
+        report.accept(file.readEvent());
+      }
+    }
+    return report.format(limit);
+  }
+
+  private void accept(final RecordedEvent event) {
+    if (event.getStartTime().isBefore(first)) {
+      first = event.getStartTime();
+    }
+    if (event.getEndTime().isAfter(last)) {
+      last = event.getEndTime();
+    }
+    switch (event.getEventType().getName()) {
+      case "jdk.ExecutionSample" -> {
+        executionSamples++;
+        tally(hotMethods, method(event.getStackTrace()), 1, Duration.ZERO);
+      }
+      case "jdk.ObjectAllocationSample" -> {
+        // A sample's weight is everything its thread allocated since the previous sample, so a
+        // thread's first one also counts what it allocated before the recording started.
+        if (sampledThreads.add(event.getThread("eventThread").getId())) {
+          return;
+        }
+        long weight = event.getLong("weight");
+        allocatedBytes += weight;
+        String site =
+            className(event.getClass("objectClass")) + " at " + frame(event.getStackTrace());
+        tally(allocations, site, weight, Duration.ZERO);
+      }
+      case "jdk.JavaMonitorEnter" -> lock(event, "monitorClass", "synchronized");
+      case "jdk.ThreadPark" -> lock(event, "parkedClass", "park");
+      default -> {
+        if (event.getEventType().getCategoryNames().contains(APPLICATION_CATEGORY)) {
+          tally(applicationEvents, event.getEventType().getLabel(), 1, event.getDuration());
+        }
+      }
+    }
+  }
+
+  private void lock(final RecordedEvent event, final String classField, final String kind) {
+    RecordedClass lockClass = event.hasField(classField) ? event.getClass(classField) : null;
+    String site = kind + " " + className(lockClass) + " at " + frame(event.getStackTrace());
+    tally(locks, site, 1, event.getDuration());
+  }
+
+  private static void tally(
+      final Map<String, Tally> tallies, final String key, final long amount, final Duration time) {
+    tallies.computeIfAbsent(key, k -> new Tally()).add(amount, time);
+  }
+
+  // The sampled method itself, whatever line it was on.
+  private static String method(final RecordedStackTrace stack) {
+    if (stack == null || stack.getFrames().isEmpty()) {
+      return "<no stack>";
+    }
+    RecordedFrame top = stack.getFrames().get(0);
+    return top.getMethod().getType().getName() + "." + top.getMethod().getName();
+  }
+
+  // The first frame outside the JDK, which is usually the code to fix, with its line.
+  private static String frame(final RecordedStackTrace stack) {
+    if (stack == null || stack.getFrames().isEmpty()) {
+      return "<no stack>";
+    }
+    RecordedFrame chosen = stack.getFrames().get(0);
+    for (RecordedFrame frame : stack.getFrames()) {
+      if (frame.isJavaFrame() && !isJdk(frame.getMethod().getType().getName())) {
+        chosen = frame;
+        break;
+      }
+    }
+    String type = chosen.getMethod().getType().getName();
+    String location = chosen.getLineNumber() > 0 ? ":" + chosen.getLineNumber() : "";
+    return type + "." + chosen.getMethod().getName() + location;
+  }
+
+  private static boolean isJdk(final String className) {
+    return className.startsWith("java.")
+        || className.startsWith("jdk.")
+        || className.startsWith("sun.");
+  }
+
+  private static String className(final RecordedClass recordedClass) {
+    return recordedClass == null ? "<unknown>" : recordedClass.getName();
+  }
+
+  private String format(final int limit) {
+    Duration span = first.isAfter(last) ? Duration.ZERO : Duration.between(first, last);
+    StringBuilder out = new StringBuilder(4096);
+    line(out, "== Flight recording summary (%.1f s) ==", span.toMillis() / 1000.0);
+
+    line(out, "Hot methods (%,d execution samples, self time):", executionSamples);
+    for (Map.Entry<String, Tally> row : top(hotMethods, limit)) {
+      line(
+          out,
+          "  %5.1f%% %,8d  %s",
+          percent(row.getValue().amount, executionSamples),
+          row.getValue().amount,
+          row.getKey());
+    }
+
+    line(out, "Allocation sites (%,d sampled bytes):", allocatedBytes);
+    for (Map.Entry<String, Tally> row : top(allocations, limit)) {
+      line(
+          out,
+          "  %5.1f%% %,14d B  %s",
+          percent(row.getValue().amount, allocatedBytes),
+          row.getValue().amount,
+          row.getKey());
+    }
+
+    line(out, "Lock contention (waits over 1 ms):");
+    for (Map.Entry<String, Tally> row : topByTime(locks, limit)) {
+      line(
+          out,
+          "  %,6d waits %,9.1f ms  %s",
+          row.getValue().amount,
+          millis(row.getValue().totalNanos),
+          row.getKey());
+    }
+
+    line(out, "Application events:");
+    for (Map.Entry<String, Tally> row : topByTime(applicationEvents, limit)) {
+      Tally tally = row.getValue();
+      line(
+          out,
+          "  %-20s %,9d events  total %,9.1f ms  avg %,8.1f us  max %,8.1f us",
+          row.getKey(),
+          tally.amount,
+          millis(tally.totalNanos),
+          tally.totalNanos / 1_000.0 / tally.amount,
+          tally.maxNanos / 1_000.0);
+    }
+    return out.toString();
+  }
+
+  private static List<Map.Entry<String, Tally>> top(
+      final Map<String, Tally> tallies, final int limit) {
+    return sorted(tallies, Comparator.comparingLong(row -> row.getValue().amount), limit);
+  }
+
+  private static List<Map.Entry<String, Tally>> topByTime(
+      final Map<String, Tally> tallies, final int limit) {
+    return sorted(tallies, Comparator.comparingLong(row -> row.getValue().totalNanos), limit);
+  }
+
+  private static List<Map.Entry<String, Tally>> sorted(
+      final Map<String, Tally> tallies,
+      final Comparator<Map.Entry<String, Tally>> order,
+      final int limit) {
+    List<Map.Entry<String, Tally>> rows = new ArrayList<>(tallies.entrySet());
+    rows.sort(order.reversed());
+    return rows.subList(0, Math.min(limit, rows.size()));
+  }
+
+  private static double percent(final long part, final long whole) {
+    return whole == 0 ? 0 : 100.0 * part / whole;
+  }
+
+  private static double millis(final long nanos) {
+    return nanos / 1_000_000.0;
+  }
+
+  private static void line(final StringBuilder out, final String format, final Object... args) {
+    out.append(String.format(Locale.ROOT, format, args)).append(System.lineSeparator());
+  }
+
+  /** Running count (samples, bytes or events) plus durations for one row. */
+  private static final class Tally {
+    private long amount;
+    private long totalNanos;
+    private long maxNanos;
+
+    private void add(final long amount, final Duration time) {
+      this.amount += amount;
+      long nanos = time.toNanos();
+      totalNanos += nanos;
+      maxNanos = Math.max(maxNanos, nanos);
+    }
+  }
+}
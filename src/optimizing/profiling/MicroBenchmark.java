@@ -0,0 +1,36 @@
+package optimizing.profiling;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Registers a static method with {@link BenchmarkRunner#runAll(Class)}.
+ *
+ * <p>The method takes no parameters or a single {@link Blackhole}, and whatever it returns is
+ * consumed, primitives without boxing, so the JIT cannot drop the work that produced it. Inputs
+ * belong in static fields, built before the run, so that building them is not timed.
+ *
+ * <pre>{@code
+ * @MicroBenchmark(value = "StringBuilder, 10k appends", operations = 10_000)
+ * private static String appendWithBuilder() { ... }
+ * }</pre>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface MicroBenchmark {
+  /** Row label; the method name if empty. */
+  String value() default "";
+
+  /** Operations one call performs, used for the per-op figures. */
+  long operations() default 1;
+
+  /** Unrecorded calibration rounds, or -1 for the runner's default. */
+  int warmups() default -1;
+
+  /** Recorded rounds, or -1 for the runner's default. */
+  int rounds() default -1;
+}
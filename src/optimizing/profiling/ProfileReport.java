@@ -0,0 +1,151 @@
+package optimizing.profiling;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Consolidated allocation, CPU and GC report for a set of measured pieces of work.
+ *
+ * <p>Unlike diffing {@code Runtime.totalMemory() - freeMemory()}, which jumps whenever a collection
+ * runs, allocated bytes come straight from the thread's allocation counter: a collection in the
+ * middle of the work changes the GC columns, not the byte count. Measurements run on the calling
+ * thread and count only that thread's allocations and CPU time.
+ *
+ * <pre>{@code
+ * ProfileReport report = new ProfileReport("Report builders");
+ * report.measure("presized builder", data.length, () -> buildReport(data));
+ * report.print(System.out);
+ * }</pre>
+ */
+public final class ProfileReport {
+  private final String title;
+  private final List<ResourceUsage> rows = new ArrayList<>();
+  // Every result is written here so the JIT cannot drop the work that produced it.
+  private volatile Object sink;
+
+  /**
+   * Creates an empty report.
+   *
+   * @param title heading printed above the table
+   */
+  public ProfileReport(final String title) {
+    this.title = Objects.requireNonNull(title, "title cannot be null");
+  }
+
+  /**
+   * Runs {@code work} once and records what it consumed.
+   *
+   * @param name row label
+   * @param operations operations {@code work} performs, used for the per-op columns
+   * @param work the code to measure; its result is kept alive until it completes
+   * @return the recorded usage
+   */
+  public ResourceUsage measure(final String name, final long operations, final Supplier<?> work) {
+    return measure(name, 0, operations, work);
+  }
+
+  /**
+   * Runs {@code work} {@code warmups} times unrecorded, so the JIT has compiled it, then once more
+   * while recording.
+   *
+   * @param name row label
+   * @param warmups unrecorded runs before the measured one
+   * @param operations operations one run performs, used for the per-op columns
+   * @param work the code to measure
+   * @return the recorded usage
+   */
+  public ResourceUsage measure(
+      final String name, final int warmups, final long operations, final Supplier<?> work) {
+    Objects.requireNonNull(work, "work cannot be null");
+    if (warmups < 0) {
+      throw new IllegalArgumentException("warmups cannot be negative");
+    }
+    for (int i = 0; i < warmups; i++) {
+      sink = work.get();
+    }
+    ResourceSnapshot start = ResourceSnapshot.ofCurrentThread();
+    sink = work.get();
+    ResourceSnapshot end = ResourceSnapshot.ofCurrentThread();
+    sink = null;
+    ResourceUsage usage = ResourceUsage.between(name, operations, start, end);
+    add(usage);
+    return usage;
+  }
+
+  /**
+   * Adds a usage measured elsewhere, e.g. with {@link ResourceSnapshot#ofProcess()} around
+   * multi-threaded work.
+   *
+   * @param usage row to add
+   * @return this report
+   */
+  public ProfileReport add(final ResourceUsage usage) {
+    rows.add(Objects.requireNonNull(usage, "usage cannot be null"));
+    return this;
+  }
+
+  /** Returns the recorded rows in insertion order. */
+  public List<ResourceUsage> rows() {
+    return List.copyOf(rows);
+  }
+
+  /** Prints the report as a table. */
+  public void print(final PrintStream out) {
+    out.print(format());
+  }
+
+  /** Returns the report as a table, one row per measurement. */
+  public String format() {
+    int nameWidth = "work".length();
+    for (ResourceUsage row : rows) {
+      nameWidth = Math.max(nameWidth, row.name().length());
+    }
+    String layout = "%-" + nameWidth + "s %12s %12s %11s %11s %5s %7s%n";
+    StringBuilder table = new StringBuilder(64 * (rows.size() + 2));
+    table.append("== ").append(title).append(" ==").append(System.lineSeparator());
+    table.append(
+        String.format(
+            Locale.ROOT, layout, "work", "ops", "bytes/op", "cpu/op", "wall/op", "GCs", "GC ms"));
+    for (ResourceUsage row : rows) {
+      table.append(
+          String.format(
+              Locale.ROOT,
+              layout,
+              row.name(),
+              String.format(Locale.ROOT, "%,d", row.operations()),
+              formatBytes(row.bytesPerOp()),
+              formatNanos(row.cpuNanosPerOp()),
+              formatNanos(row.wallNanosPerOp()),
+              row.gcCount(),
+              row.gcMillis()));
+    }
+    return table.toString();
+  }
+
+  private static String formatBytes(final double bytes) {
+    if (Double.isNaN(bytes)) {
+      return "n/a";
+    }
+    if (bytes < 100) {
+      return String.format(Locale.ROOT, "%.1f B", bytes);
+    }
+    return String.format(Locale.ROOT, "%,.0f B", bytes);
+  }
+
+  static String formatNanos(final double nanos) {
+    if (Double.isNaN(nanos)) {
+      return "n/a";
+    }
+    if (nanos < 1_000) {
+      return String.format(Locale.ROOT, "%.1f ns", nanos);
+    }
+    if (nanos < 1_000_000) {
+      return String.format(Locale.ROOT, "%.1f us", nanos / 1_000);
+    }
+    return String.format(Locale.ROOT, "%.1f ms", nanos / 1_000_000);
+  }
+}
@@ -0,0 +1,75 @@
+package optimizing.profiling;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Point-in-time reading of the JVM counters a profile is computed from: bytes allocated, CPU time
+ * and garbage collections. Two snapshots bracket a piece of work; {@link ResourceUsage#between}
+ * turns them into per-operation figures.
+ *
+ * <p>{@link #ofCurrentThread()} counts only the calling thread's allocations and CPU time, which
+ * is exact for single-threaded code and unaffected by anything else the JVM is doing. {@link
+ * #ofProcess()} counts every thread, for work spread over a pool or observed from another thread
+ * (as a JMH profiler is). GC counters are JVM-wide in both.
+ *
+ * @param allocatedBytes bytes allocated so far, or -1 if the JVM cannot report it
+ * @param cpuNanos CPU time used so far, or -1 if the JVM cannot report it
+ * @param gcCount collections so far, summed over all collectors
+ * @param gcMillis accumulated collection time so far, summed over all collectors
+ * @param wallNanos {@link System#nanoTime()} when the snapshot was taken
+ */
+public record ResourceSnapshot(
+    long allocatedBytes, long cpuNanos, long gcCount, long gcMillis, long wallNanos) {
+  private static final java.lang.management.ThreadMXBean THREADS =
+      ManagementFactory.getThreadMXBean();
+  private static final List<GarbageCollectorMXBean> COLLECTORS =
+      ManagementFactory.getGarbageCollectorMXBeans();
+
+  static {
+    if (THREADS.isThreadCpuTimeSupported() && !THREADS.isThreadCpuTimeEnabled()) {
+      THREADS.setThreadCpuTimeEnabled(true);
+    }
+    if (THREADS instanceof com.sun.management.ThreadMXBean hotspot
+        && hotspot.isThreadAllocatedMemorySupported()
+        && !hotspot.isThreadAllocatedMemoryEnabled()) {
+      hotspot.setThreadAllocatedMemoryEnabled(true);
+    }
+  }
+
+  /** Reads the calling thread's allocation and CPU counters. */
+  public static ResourceSnapshot ofCurrentThread() {
+    long allocated =
+        THREADS instanceof com.sun.management.ThreadMXBean hotspot
+            ? hotspot.getCurrentThreadAllocatedBytes()
+            : -1;
+    long cpu = THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+    return withGc(allocated, cpu);
+  }
+
+  /** Reads allocation and CPU counters summed over every thread in the JVM. */
+  public static ResourceSnapshot ofProcess() {
+    long allocated =
+        THREADS instanceof com.sun.management.ThreadMXBean hotspot
+            ? hotspot.getTotalThreadAllocatedBytes()
+            : -1;
+    long cpu =
+        ManagementFactory.getOperatingSystemMXBean()
+                instanceof com.sun.management.OperatingSystemMXBean os
+            ? os.getProcessCpuTime()
+            : -1;
+    return withGc(allocated, cpu);
+  }
+
+  private static ResourceSnapshot withGc(final long allocatedBytes, final long cpuNanos) {
+    long count = 0;
+    long millis = 0;
+    for (GarbageCollectorMXBean collector : COLLECTORS) {
+      // Both are -1 for collectors that do not track them.
+      count += Math.max(0, collector.getCollectionCount());
+      millis += Math.max(0, collector.getCollectionTime());
+    }
+    return new ResourceSnapshot(allocatedBytes, cpuNanos, count, millis, System.nanoTime());
+  }
+}
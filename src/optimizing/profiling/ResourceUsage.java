@@ -0,0 +1,78 @@
+package optimizing.profiling;
+
+import java.util.Objects;
+
+/**
+ * Resources one piece of work consumed, as totals and per operation.
+ *
+ * @param name what was measured
+ * @param operations operations the work performed, used to normalize the totals
+ * @param allocatedBytes bytes allocated, or -1 if unknown
+ * @param cpuNanos CPU time, or -1 if unknown
+ * @param wallNanos elapsed wall-clock time
+ * @param gcCount collections that ran meanwhile, in any thread
+ * @param gcMillis time those collections took
+ */
+public record ResourceUsage(
+    String name,
+    long operations,
+    long allocatedBytes,
+    long cpuNanos,
+    long wallNanos,
+    long gcCount,
+    long gcMillis) {
+  /** Validates the name and operation count. */
+  public ResourceUsage {
+    Objects.requireNonNull(name, "name cannot be null");
+    if (operations <= 0) {
+      throw new IllegalArgumentException("operations must be positive");
+    }
+  }
+
+  /**
+   * Computes the usage between two snapshots of the same kind.
+   *
+   * @param name what was measured
+   * @param operations operations performed between the snapshots
+   * @param start snapshot taken before the work
+   * @param end snapshot taken after the work
+   * @return the difference
+   */
+  public static ResourceUsage between(
+      final String name,
+      final long operations,
+      final ResourceSnapshot start,
+      final ResourceSnapshot end) {
+    return new ResourceUsage(
+        name,
+        operations,
+        delta(start.allocatedBytes(), end.allocatedBytes()),
+        delta(start.cpuNanos(), end.cpuNanos()),
+        end.wallNanos() - start.wallNanos(),
+        end.gcCount() - start.gcCount(),
+        end.gcMillis() - start.gcMillis());
+  }
+
+  /** Returns bytes allocated per operation, or NaN if unknown. */
+  public double bytesPerOp() {
+    return perOp(allocatedBytes);
+  }
+
+  /** Returns CPU nanoseconds per operation, or NaN if unknown. */
+  public double cpuNanosPerOp() {
+    return perOp(cpuNanos);
+  }
+
+  /** Returns wall-clock nanoseconds per operation. */
+  public double wallNanosPerOp() {
+    return perOp(wallNanos);
+  }
+
+  private double perOp(final long total) {
+    return total < 0 ? Double.NaN : (double) total / operations;
+  }
+
+  private static long delta(final long start, final long end) {
+    return start < 0 || end < 0 ? -1 : end - start;
+  }
+}
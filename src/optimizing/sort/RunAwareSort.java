@@ -0,0 +1,454 @@
+package optimizing.sort;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import optimizing.concurrent.ParallelFor;
+
+/**
+ * Sort for primitive arrays that takes advantage of order already present in the input.
+ *
+ * <p>Like TimSort, it first scans for runs: maximal stretches that are already ascending, or
+ * descending and then reversed in place. If the whole array is covered by a few long runs, they
+ * are merged pairwise. Before each merge, a binary search finds the parts of both runs that are
+ * already in place, so an almost sorted array with a few stragglers at the end costs one scan plus
+ * a few logarithmic searches and short copies. The scan gives up as soon as it has seen more than
+ * {@value #MAX_RUNS} runs, so data without useful runs costs only a short prefix scan.
+ *
+ * <p>Without useful runs, small arrays go to {@link Arrays#sort(int[])}. Large ones get a parallel
+ * least-significant-digit radix sort, 8 bits per pass. Each pass counts digits per chunk in
+ * parallel, turns the counts into per-chunk write offsets, and scatters the chunks in parallel.
+ * Passes whose digit is the same for every element are skipped. This costs a buffer as large as
+ * the input.
+ */
+public final class RunAwareSort {
+  /** How a {@code sort} call ordered its input. */
+  public enum Strategy {
+    /** The input was a single run: already in order, or in reverse order and flipped. */
+    SINGLE_RUN,
+    /** The input consisted of a few runs, which were merged. */
+    MERGED_RUNS,
+    /** Parallel radix sort. */
+    RADIX,
+    /** {@link Arrays#sort}, for small arrays without useful runs. */
+    COMPARISON
+  }
+
+  /** Beyond this many runs, merging them stops paying off. */
+  static final int MAX_RUNS = 64;
+
+  /** Arrays at least this long, with too many runs, are radix sorted. */
+  static final int RADIX_THRESHOLD = 1 << 16;
+
+  private static final int RADIX = 256;
+  private static final int MIN_CHUNK = 1 << 14;
+  private static final ParallelFor CHUNKS = new ParallelFor(ForkJoinPool.commonPool(), 1);
+
+  private RunAwareSort() {}
+
+  /**
+   * Sorts {@code values} into ascending order.
+   *
+   * @param values array to sort in place
+   * @return the strategy that was used
+   */
+  public static Strategy sort(final int[] values) {
+    Objects.requireNonNull(values, "values cannot be null");
+    int[] runEnds = new int[MAX_RUNS];
+    int runs = findRuns(values, runEnds);
+    if (runs == 1) {
+      return Strategy.SINGLE_RUN;
+    }
+    if (runs > 1) {
+      mergeRuns(values, runEnds, runs);
+      return Strategy.MERGED_RUNS;
+    }
+    if (values.length < RADIX_THRESHOLD) {
+      Arrays.sort(values);
+      return Strategy.COMPARISON;
+    }
+    radixSort(values);
+    return Strategy.RADIX;
+  }
+
+  /**
+   * Sorts {@code values} into ascending order.
+   *
+   * @param values array to sort in place
+   * @return the strategy that was used
+   */
+  public static Strategy sort(final long[] values) {
+    Objects.requireNonNull(values, "values cannot be null");
+    int[] runEnds = new int[MAX_RUNS];
+    int runs = findRuns(values, runEnds);
+    if (runs == 1) {
+      return Strategy.SINGLE_RUN;
+    }
+    if (runs > 1) {
+      mergeRuns(values, runEnds, runs);
+      return Strategy.MERGED_RUNS;
+    }
+    if (values.length < RADIX_THRESHOLD) {
+      Arrays.sort(values);
+      return Strategy.COMPARISON;
+    }
+    radixSort(values);
+    return Strategy.RADIX;
+  }
+
+  // ---------------------------------------------------------------- runs
+
+  /**
+   * Records the end of each run in {@code runEnds}, reversing descending runs on the way. Returns
+   * the number of runs, 1 for an empty array, or -1 once there are more runs than fit.
+   */
+  private static int findRuns(final int[] values, final int[] runEnds) {
+    int n = values.length;
+    int runs = 0;
+    int i = 0;
+    do {
+      int start = i++;
+      if (i < n && values[i] < values[i - 1]) {
+        while (i < n && values[i] <= values[i - 1]) {
+          i++;
+        }
+        reverse(values, start, i);
+      } else {
+        while (i < n && values[i] >= values[i - 1]) {
+          i++;
+        }
+      }
+      if (runs == runEnds.length) {
+        return -1;
+      }
+      runEnds[runs++] = Math.min(i, n);
+    } while (i < n);
+    return runs;
+  }
+
+  private static int findRuns(final long[] values, final int[] runEnds) {
+    int n = values.length;
+    int runs = 0;
+    int i = 0;
+    do {
+      int start = i++;
+      if (i < n && values[i] < values[i - 1]) {
+        while (i < n && values[i] <= values[i - 1]) {
+          i++;
+        }
+        reverse(values, start, i);
+      } else {
+        while (i < n && values[i] >= values[i - 1]) {
+          i++;
+        }
+      }
+      if (runs == runEnds.length) {
+        return -1;
+      }
+      runEnds[runs++] = Math.min(i, n);
+    } while (i < n);
+    return runs;
+  }
+
+  /** Merges neighbouring runs pairwise, level by level, until one run is left. */
+  private static void mergeRuns(final int[] values, final int[] runEnds, final int runCount) {
+    int[] buffer = new int[0];
+    int runs = runCount;
+    while (runs > 1) {
+      int merged = 0;
+      for (int r = 0; r < runs; r += 2) {
+        int from = r == 0 ? 0 : runEnds[r - 1];
+        if (r + 1 < runs) {
+          buffer = merge(values, from, runEnds[r], runEnds[r + 1], buffer);
+          runEnds[merged++] = runEnds[r + 1];
+        } else {
+          runEnds[merged++] = runEnds[r];
+        }
+      }
+      runs = merged;
+    }
+  }
+
+  private static void mergeRuns(final long[] values, final int[] runEnds, final int runCount) {
+    long[] buffer = new long[0];
+    int runs = runCount;
+    while (runs > 1) {
+      int merged = 0;
+      for (int r = 0; r < runs; r += 2) {
+        int from = r == 0 ? 0 : runEnds[r - 1];
+        if (r + 1 < runs) {
+          buffer = merge(values, from, runEnds[r], runEnds[r + 1], buffer);
+          runEnds[merged++] = runEnds[r + 1];
+        } else {
+          runEnds[merged++] = runEnds[r];
+        }
+      }
+      runs = merged;
+    }
+  }
+
+  /**
+   * Merges the sorted ranges {@code [from, mid)} and {@code [mid, to)}. Only the overlapping
+   * middle is moved, and only the shorter side of it is copied out. Returns the buffer, grown if
+   * needed, for the next merge.
+   */
+  private static int[] merge(
+      final int[] values, final int from, final int mid, final int to, final int[] buffer) {
+    // Left elements not above the right's minimum, and right elements not below the left's
+    // maximum, are already where they belong.
+    int lo = upperBound(values, from, mid, values[mid]);
+    int hi = lowerBound(values, mid, to, values[mid - 1]);
+    int leftLength = mid - lo;
+    int rightLength = hi - mid;
+    int[] scratch =
+        buffer.length >= Math.min(leftLength, rightLength)
+            ? buffer
+            : new int[Math.min(leftLength, rightLength)];
+    if (leftLength <= rightLength) {
+      System.arraycopy(values, lo, scratch, 0, leftLength);
+      int i = 0;
+      int j = mid;
+      int k = lo;
+      while (i < leftLength && j < hi) {
+        values[k++] = scratch[i] <= values[j] ? scratch[i++] : values[j++];
+      }
+      System.arraycopy(scratch, i, values, k, leftLength - i);
+    } else {
+      System.arraycopy(values, mid, scratch, 0, rightLength);
+      int i = mid - 1;
+      int j = rightLength - 1;
+      int k = hi - 1;
+      while (i >= lo && j >= 0) {
+        values[k--] = values[i] > scratch[j] ? values[i--] : scratch[j--];
+      }
+      System.arraycopy(scratch, 0, values, lo, j + 1);
+    }
+    return scratch;
+  }
+
+  private static long[] merge(
+      final long[] values, final int from, final int mid, final int to, final long[] buffer) {
+    int lo = upperBound(values, from, mid, values[mid]);
+    int hi = lowerBound(values, mid, to, values[mid - 1]);
+    int leftLength = mid - lo;
+    int rightLength = hi - mid;
+    long[] scratch =
+        buffer.length >= Math.min(leftLength, rightLength)
+            ? buffer
+            : new long[Math.min(leftLength, rightLength)];
+    if (leftLength <= rightLength) {
+      System.arraycopy(values, lo, scratch, 0, leftLength);
+      int i = 0;
+      int j = mid;
+      int k = lo;
+      while (i < leftLength && j < hi) {
+        values[k++] = scratch[i] <= values[j] ? scratch[i++] : values[j++];
+      }
+      System.arraycopy(scratch, i, values, k, leftLength - i);
+    } else {
+      System.arraycopy(values, mid, scratch, 0, rightLength);
+      int i = mid - 1;
+      int j = rightLength - 1;
+      int k = hi - 1;
+      while (i >= lo && j >= 0) {
+        values[k--] = values[i] > scratch[j] ? values[i--] : scratch[j--];
+      }
+      System.arraycopy(scratch, 0, values, lo, j + 1);
+    }
+    return scratch;
+  }
+
+  // First index in [from, to) whose value is greater than key.
+  private static int upperBound(final int[] values, final int from, final int to, final int key) {
+    int lo = from;
+    int hi = to;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (values[mid] <= key) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private static int upperBound(
+      final long[] values, final int from, final int to, final long key) {
+    int lo = from;
+    int hi = to;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (values[mid] <= key) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  // First index in [from, to) whose value is not less than key.
+  private static int lowerBound(final int[] values, final int from, final int to, final int key) {
+    int lo = from;
+    int hi = to;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (values[mid] < key) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private static int lowerBound(
+      final long[] values, final int from, final int to, final long key) {
+    int lo = from;
+    int hi = to;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (values[mid] < key) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private static void reverse(final int[] values, final int from, final int to) {
+    for (int i = from, j = to - 1; i < j; i++, j--) {
+      int swap = values[i];
+      values[i] = values[j];
+      values[j] = swap;
+    }
+  }
+
+  private static void reverse(final long[] values, final int from, final int to) {
+    for (int i = from, j = to - 1; i < j; i++, j--) {
+      long swap = values[i];
+      values[i] = values[j];
+      values[j] = swap;
+    }
+  }
+
+  // ---------------------------------------------------------------- radix
+
+  private static int chunkCount(final int length) {
+    int parallelism = ForkJoinPool.commonPool().getParallelism();
+    return Math.max(1, Math.min(parallelism * 4, length / MIN_CHUNK));
+  }
+
+  private static void radixSort(final int[] values) {
+    int n = values.length;
+    int chunks = chunkCount(n);
+    int chunkSize = (n + chunks - 1) / chunks;
+    int[][] offsets = new int[chunks][RADIX];
+    int[] source = values;
+    int[] target = new int[n];
+    for (int shift = 0; shift < Integer.SIZE; shift += 8) {
+      // Flipping the top bit of the last digit puts negative numbers first.
+      int digitShift = shift;
+      int flip = shift == Integer.SIZE - 8 ? 0x80 : 0;
+      int[] from = source;
+      int[] to = target;
+      CHUNKS.forRange(
+          0,
+          chunks,
+          c -> {
+            int[] counts = offsets[c];
+            Arrays.fill(counts, 0);
+            for (int i = c * chunkSize, end = Math.min(n, i + chunkSize); i < end; i++) {
+              counts[((from[i] >>> digitShift) & 0xFF) ^ flip]++;
+            }
+          });
+      if (!toOffsets(offsets, n)) {
+        continue;
+      }
+      CHUNKS.forRange(
+          0,
+          chunks,
+          c -> {
+            int[] next = offsets[c];
+            for (int i = c * chunkSize, end = Math.min(n, i + chunkSize); i < end; i++) {
+              int value = from[i];
+              to[next[((value >>> digitShift) & 0xFF) ^ flip]++] = value;
+            }
+          });
+      source = to;
+      target = from;
+    }
+    if (source != values) {
+      System.arraycopy(source, 0, values, 0, n);
+    }
+  }
+
+  private static void radixSort(final long[] values) {
+    int n = values.length;
+    int chunks = chunkCount(n);
+    int chunkSize = (n + chunks - 1) / chunks;
+    int[][] offsets = new int[chunks][RADIX];
+    long[] source = values;
+    long[] target = new long[n];
+    for (int shift = 0; shift < Long.SIZE; shift += 8) {
+      int digitShift = shift;
+      int flip = shift == Long.SIZE - 8 ? 0x80 : 0;
+      long[] from = source;
+      long[] to = target;
+      CHUNKS.forRange(
+          0,
+          chunks,
+          c -> {
+            int[] counts = offsets[c];
+            Arrays.fill(counts, 0);
+            for (int i = c * chunkSize, end = Math.min(n, i + chunkSize); i < end; i++) {
+              counts[(int) ((from[i] >>> digitShift) & 0xFF) ^ flip]++;
+            }
+          });
+      if (!toOffsets(offsets, n)) {
+        continue;
+      }
+      CHUNKS.forRange(
+          0,
+          chunks,
+          c -> {
+            int[] next = offsets[c];
+            for (int i = c * chunkSize, end = Math.min(n, i + chunkSize); i < end; i++) {
+              long value = from[i];
+              to[next[(int) ((value >>> digitShift) & 0xFF) ^ flip]++] = value;
+            }
+          });
+      source = to;
+      target = from;
+    }
+    if (source != values) {
+      System.arraycopy(source, 0, values, 0, n);
+    }
+  }
+
+  /**
+   * Turns per-chunk digit counts into per-chunk write positions: digit by digit, and within a
+   * digit chunk by chunk, so the scatter keeps each chunk's elements in their current order.
+   * Returns {@code false} if every element has the same digit, making the pass a no-op.
+   */
+  private static boolean toOffsets(final int[][] counts, final int length) {
+    int position = 0;
+    for (int digit = 0; digit < RADIX; digit++) {
+      int total = 0;
+      for (int[] chunk : counts) {
+        total += chunk[digit];
+      }
+      if (total == length) {
+        return false;
+      }
+      for (int[] chunk : counts) {
+        int count = chunk[digit];
+        chunk[digit] = position;
+        position += count;
+      }
+    }
+    return true;
+  }
+}
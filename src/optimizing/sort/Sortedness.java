@@ -0,0 +1,121 @@
+package optimizing.sort;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntBinaryOperator;
+import optimizing.concurrent.ParallelFor;
+
+/**
+ * Sortedness checks over primitive arrays, without the unboxing a {@code List<Integer>} costs on
+ * every comparison.
+ *
+ * <p>Large arrays are cut into fixed-size chunks that are checked in parallel on the common pool.
+ * Each chunk compares every element with its left neighbour, including the first one, whose
+ * neighbour sits in the previous chunk, so no inversion can hide at a chunk boundary. Once an
+ * inversion is found, chunks that can no longer change the answer are skipped.
+ */
+public final class Sortedness {
+  /** Arrays shorter than this are checked on the calling thread. */
+  static final int PARALLEL_THRESHOLD = 1 << 16;
+
+  private static final int CHUNK = 1 << 14;
+  private static final int NONE = Integer.MAX_VALUE;
+  private static final ParallelFor CHUNKS = new ParallelFor(ForkJoinPool.commonPool(), 1);
+
+  private Sortedness() {}
+
+  /**
+   * Checks whether {@code values} is in non-decreasing order.
+   *
+   * @param values array to check
+   * @return {@code true} if no element is smaller than its predecessor
+   */
+  public static boolean isSorted(final int[] values) {
+    Objects.requireNonNull(values, "values cannot be null");
+    return scan(values.length, false, inversions(values)) < 0;
+  }
+
+  /**
+   * Checks whether {@code values} is in non-decreasing order.
+   *
+   * @param values array to check
+   * @return {@code true} if no element is smaller than its predecessor
+   */
+  public static boolean isSorted(final long[] values) {
+    Objects.requireNonNull(values, "values cannot be null");
+    return scan(values.length, false, inversions(values)) < 0;
+  }
+
+  /**
+   * Finds the first element that is smaller than its predecessor.
+   *
+   * @param values array to check
+   * @return the smallest such index, or {@code -1} if the array is sorted
+   */
+  public static int firstInversion(final int[] values) {
+    Objects.requireNonNull(values, "values cannot be null");
+    return scan(values.length, true, inversions(values));
+  }
+
+  /**
+   * Finds the first element that is smaller than its predecessor.
+   *
+   * @param values array to check
+   * @return the smallest such index, or {@code -1} if the array is sorted
+   */
+  public static int firstInversion(final long[] values) {
+    Objects.requireNonNull(values, "values cannot be null");
+    return scan(values.length, true, inversions(values));
+  }
+
+  // Returns the first index i in [from, to) with values[i - 1] > values[i], or -1.
+  private static IntBinaryOperator inversions(final int[] values) {
+    return (from, to) -> {
+      for (int i = from; i < to; i++) {
+        if (values[i - 1] > values[i]) {
+          return i;
+        }
+      }
+      return -1;
+    };
+  }
+
+  private static IntBinaryOperator inversions(final long[] values) {
+    return (from, to) -> {
+      for (int i = from; i < to; i++) {
+        if (values[i - 1] > values[i]) {
+          return i;
+        }
+      }
+      return -1;
+    };
+  }
+
+  /**
+   * Runs {@code check} over every neighbour pair. With {@code first} set, a chunk is skipped only
+   * when an inversion was already found before it; otherwise any inversion stops all chunks.
+   */
+  private static int scan(final int length, final boolean first, final IntBinaryOperator check) {
+    if (length < PARALLEL_THRESHOLD) {
+      return check.applyAsInt(1, length);
+    }
+    AtomicInteger found = new AtomicInteger(NONE);
+    CHUNKS.forRange(
+        0,
+        (length + CHUNK - 1) / CHUNK,
+        chunk -> {
+          int from = Math.max(1, chunk * CHUNK);
+          int best = found.get();
+          if (first ? best < from : best != NONE) {
+            return;
+          }
+          int hit = check.applyAsInt(from, Math.min(length, chunk * CHUNK + CHUNK));
+          if (hit >= 0) {
+            found.accumulateAndGet(hit, Math::min);
+          }
+        });
+    int result = found.get();
+    return result == NONE ? -1 : result;
+  }
+}
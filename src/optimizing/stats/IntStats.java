@@ -0,0 +1,136 @@
+package optimizing.stats;
+
+import java.nio.IntBuffer;
+import java.util.IntSummaryStatistics;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import optimizing.concurrent.ParallelFor;
+
+/**
+ * Count, min, max and sum of large {@code int} data in one pass, on or off the heap.
+ *
+ * <p>The inner loop has no data-dependent branch: {@link Math#max} and {@link Math#min} compile to
+ * conditional moves, and C2 turns the fused loop into SIMD max/min/add lanes, so it runs at about
+ * memory speed however the data is ordered. Large inputs are cut into 64k-element chunks (256 KB,
+ * about an L2 cache) that run in parallel on the common pool and are then combined in order.
+ *
+ * <p>Off-heap data, such as a direct buffer mapped over a telemetry file, is copied a block at a
+ * time into a small on-heap array with a bulk {@code get}, which is a plain memory copy, and then
+ * reduced by the same loop. Element-wise {@code get(i)} calls on the buffer run at about half
+ * that speed.
+ */
+public final class IntStats {
+  /** Inputs shorter than this are reduced on the calling thread. */
+  static final int PARALLEL_THRESHOLD = 1 << 18;
+
+  private static final int CHUNK = 1 << 16;
+  private static final int BLOCK = 1 << 12;
+  private static final ParallelFor CHUNKS = new ParallelFor(ForkJoinPool.commonPool(), 1);
+
+  private IntStats() {}
+
+  /**
+   * Summarizes a whole array.
+   *
+   * @param values data to reduce
+   * @return count, min, max and sum; min and max keep their {@link IntSummaryStatistics} defaults
+   *     for an empty array
+   */
+  public static IntSummaryStatistics summarize(final int[] values) {
+    Objects.requireNonNull(values, "values cannot be null");
+    return summarize(values, 0, values.length);
+  }
+
+  /**
+   * Summarizes {@code values[from, to)}.
+   *
+   * @param values data to reduce
+   * @param from first index (inclusive)
+   * @param to last index (exclusive)
+   * @return count, min, max and sum of the range
+   */
+  public static IntSummaryStatistics summarize(final int[] values, final int from, final int to) {
+    Objects.requireNonNull(values, "values cannot be null");
+    Objects.checkFromToIndex(from, to, values.length);
+    if (to - from < PARALLEL_THRESHOLD) {
+      return reduce(values, from, to);
+    }
+    return inChunks(from, to, (lo, hi) -> reduce(values, lo, hi));
+  }
+
+  /**
+   * Summarizes the remaining elements of a buffer, typically a direct one holding off-heap data.
+   * The buffer's position is left unchanged, and it must not be written meanwhile.
+   *
+   * @param buffer data between position and limit is reduced
+   * @return count, min, max and sum of the remaining elements
+   */
+  public static IntSummaryStatistics summarize(final IntBuffer buffer) {
+    Objects.requireNonNull(buffer, "buffer cannot be null");
+    int from = buffer.position();
+    int to = buffer.limit();
+    if (buffer.hasArray()) {
+      int offset = buffer.arrayOffset();
+      return summarize(buffer.array(), offset + from, offset + to);
+    }
+    if (to - from < PARALLEL_THRESHOLD) {
+      return reduce(buffer, from, to);
+    }
+    return inChunks(from, to, (lo, hi) -> reduce(buffer, lo, hi));
+  }
+
+  private static IntSummaryStatistics inChunks(
+      final int from, final int to, final RangeReducer reducer) {
+    int chunks = (int) ((to - (long) from + CHUNK - 1) / CHUNK);
+    IntSummaryStatistics[] partials = new IntSummaryStatistics[chunks];
+    CHUNKS.forRange(
+        0,
+        chunks,
+        chunk -> {
+          int lo = from + chunk * CHUNK;
+          partials[chunk] = reducer.reduce(lo, (int) Math.min(to, (long) lo + CHUNK));
+        });
+    IntSummaryStatistics total = new IntSummaryStatistics();
+    for (IntSummaryStatistics partial : partials) {
+      total.combine(partial);
+    }
+    return total;
+  }
+
+  private static IntSummaryStatistics reduce(final int[] values, final int from, final int to) {
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    long sum = 0;
+    for (int i = from; i < to; i++) {
+      int value = values[i];
+      min = Math.min(min, value);
+      max = Math.max(max, value);
+      sum += value;
+    }
+    return new IntSummaryStatistics(to - from, min, max, sum);
+  }
+
+  private static IntSummaryStatistics reduce(final IntBuffer buffer, final int from, final int to) {
+    int[] block = new int[Math.min(BLOCK, to - from)];
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    long sum = 0;
+    for (int start = from; start < to; start += block.length) {
+      int length = Math.min(block.length, to - start);
+      buffer.get(start, block, 0, length);
+      for (int i = 0; i < length; i++) {
+        int value = block[i];
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        sum += value;
+      }
+    }
+    return new IntSummaryStatistics(to - from, min, max, sum);
+  }
+
+  /** Reduces one index range; lets array and buffer inputs share the chunking. */
+  @FunctionalInterface
+  private interface RangeReducer {
+    IntSummaryStatistics reduce(int from, int to);
+  }
+}
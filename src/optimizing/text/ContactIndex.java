@@ -0,0 +1,469 @@
+package optimizing.text;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Read-only search index over contact names, for prefix queries and typo-tolerant lookups that
+ * answer in microseconds instead of scanning every contact.
+ *
+ * <p>Names are stored once, as UTF-8 bytes back to back in case-insensitive sorted order, with an
+ * {@code int} offset per name; a contact's id is its position in that order. Every name starting
+ * with a prefix is then one contiguous id range, found by two binary searches.
+ *
+ * <p>For fuzzy search every name is split into its distinct trigrams (with two padding bytes at
+ * each end), and each trigram keeps the ascending ids of the names containing it, delta-encoded as
+ * variable-length integers, mostly one byte per entry. A name within edit distance {@code k} of
+ * the query still contains all but at most {@code 3k} of the query's trigrams, so it must contain
+ * at least one of the query's {@code 3k + 1} rarest trigrams, two of the {@code 3k + 2} rarest,
+ * and so on. Only those few posting lists are read, counting hits per contact in a scratch array
+ * (one byte per contact for each querying thread), and each candidate is confirmed with a bounded
+ * Levenshtein distance. Queries too short for that filter (one character at distance 1, four at
+ * distance 2) fall back to a scan.
+ *
+ * <p>Matching ignores ASCII case; distances are counted in UTF-8 bytes, so a non-ASCII letter typed
+ * wrong costs up to two edits.
+ */
+public final class ContactIndex {
+  private static final int GRAM = 3;
+  // Padding byte around each name; names never contain NUL.
+  private static final int PAD = 0;
+  private static final int ARRAY_HEADER_BYTES = 16;
+
+  private final byte[] names;
+  private final int[] offsets;
+  private final int[] gramKeys;
+  private final int[] gramCounts;
+  private final int[] postingStarts;
+  private final byte[] postings;
+  // One hit counter per contact, per querying thread, reset after every query.
+  private final ThreadLocal<byte[]> hitCounters;
+
+  /**
+   * A fuzzy-search hit.
+   *
+   * @param name the contact name as indexed
+   * @param distance edit distance from the query, ignoring ASCII case
+   */
+  public record Match(String name, int distance) {}
+
+  private ContactIndex(
+      final byte[] names,
+      final int[] offsets,
+      final int[] gramKeys,
+      final int[] gramCounts,
+      final int[] postingStarts,
+      final byte[] postings) {
+    this.names = names;
+    this.offsets = offsets;
+    this.gramKeys = gramKeys;
+    this.gramCounts = gramCounts;
+    this.postingStarts = postingStarts;
+    this.postings = postings;
+    this.hitCounters = ThreadLocal.withInitial(() -> new byte[offsets.length - 1]);
+  }
+
+  /**
+   * Builds the index. Duplicate names are kept, one entry per contact.
+   *
+   * @param contactNames names to index
+   * @return the index
+   */
+  public static ContactIndex build(final Collection<String> contactNames) {
+    Objects.requireNonNull(contactNames, "contactNames cannot be null");
+    byte[][] encoded = new byte[contactNames.size()][];
+    int count = 0;
+    long totalBytes = 0;
+    int maxLength = 0;
+    for (String name : contactNames) {
+      Objects.requireNonNull(name, "names cannot be null");
+      byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+      encoded[count++] = bytes;
+      totalBytes += bytes.length;
+      maxLength = Math.max(maxLength, bytes.length);
+    }
+    if (totalBytes > Integer.MAX_VALUE - ARRAY_HEADER_BYTES) {
+      throw new IllegalArgumentException("Names exceed 2 GiB; split the directory");
+    }
+    Arrays.sort(encoded, ContactIndex::compareFolded);
+
+    byte[] names = new byte[(int) totalBytes];
+    int[] offsets = new int[count + 1];
+    int position = 0;
+    for (int id = 0; id < count; id++) {
+      offsets[id] = position;
+      System.arraycopy(encoded[id], 0, names, position, encoded[id].length);
+      position += encoded[id].length;
+      encoded[id] = null;
+    }
+    offsets[count] = position;
+    return buildGrams(names, offsets, maxLength);
+  }
+
+  // Three passes over the names: count trigrams, size each posting list, then write them.
+  private static ContactIndex buildGrams(
+      final byte[] names, final int[] offsets, final int maxLength) {
+    int count = offsets.length - 1;
+    int[] scratch = new int[maxLength + GRAM - 1];
+    // Indexed by the 24-bit trigram; first holds counts, then each trigram's slot.
+    int[] bySlot = new int[1 << 24];
+    int distinctGrams = 0;
+    for (int id = 0; id < count; id++) {
+      int grams = grams(names, offsets[id], offsets[id + 1], scratch);
+      for (int g = 0; g < grams; g++) {
+        if (bySlot[scratch[g]]++ == 0) {
+          distinctGrams++;
+        }
+      }
+    }
+
+    int[] gramKeys = new int[distinctGrams];
+    int[] gramCounts = new int[distinctGrams];
+    int slot = 0;
+    for (int key = 0; key < bySlot.length; key++) {
+      if (bySlot[key] > 0) {
+        gramKeys[slot] = key;
+        gramCounts[slot] = bySlot[key];
+        bySlot[key] = slot++;
+      }
+    }
+
+    int[] lastId = new int[distinctGrams];
+    Arrays.fill(lastId, -1);
+    long[] sizes = new long[distinctGrams];
+    for (int id = 0; id < count; id++) {
+      int grams = grams(names, offsets[id], offsets[id + 1], scratch);
+      for (int g = 0; g < grams; g++) {
+        int s = bySlot[scratch[g]];
+        sizes[s] += varIntLength(id - lastId[s]);
+        lastId[s] = id;
+      }
+    }
+    int[] postingStarts = new int[distinctGrams + 1];
+    long total = 0;
+    for (int s = 0; s < distinctGrams; s++) {
+      postingStarts[s] = (int) total;
+      total += sizes[s];
+      if (total > Integer.MAX_VALUE - ARRAY_HEADER_BYTES) {
+        throw new IllegalArgumentException("Trigram postings exceed 2 GiB; split the directory");
+      }
+    }
+    postingStarts[distinctGrams] = (int) total;
+
+    byte[] postings = new byte[(int) total];
+    int[] writeAt = Arrays.copyOf(postingStarts, distinctGrams);
+    Arrays.fill(lastId, -1);
+    for (int id = 0; id < count; id++) {
+      int grams = grams(names, offsets[id], offsets[id + 1], scratch);
+      for (int g = 0; g < grams; g++) {
+        int s = bySlot[scratch[g]];
+        writeAt[s] = writeVarInt(postings, writeAt[s], id - lastId[s]);
+        lastId[s] = id;
+      }
+    }
+    return new ContactIndex(names, offsets, gramKeys, gramCounts, postingStarts, postings);
+  }
+
+  /** Returns the number of contacts. */
+  public int size() {
+    return offsets.length - 1;
+  }
+
+  /**
+   * Counts contacts whose name starts with {@code prefix}, ignoring ASCII case.
+   *
+   * @param prefix the typed prefix
+   * @return number of matches; O(log n)
+   */
+  public int countWithPrefix(final String prefix) {
+    byte[] folded = fold(prefix);
+    return upperBound(folded) - lowerBound(folded);
+  }
+
+  /**
+   * Returns up to {@code limit} contacts whose name starts with {@code prefix}, in sorted order.
+   *
+   * @param prefix the typed prefix
+   * @param limit maximum results
+   * @return matching names
+   */
+  public List<String> withPrefix(final String prefix, final int limit) {
+    if (limit < 0) {
+      throw new IllegalArgumentException("limit cannot be negative");
+    }
+    byte[] folded = fold(prefix);
+    int from = lowerBound(folded);
+    int to = Math.min(upperBound(folded), from + limit);
+    List<String> matches = new ArrayList<>(to - from);
+    for (int id = from; id < to; id++) {
+      matches.add(name(id));
+    }
+    return matches;
+  }
+
+  /**
+   * Returns up to {@code limit} contacts within {@code maxDistance} edits (insertions, deletions or
+   * substitutions) of {@code query}, closest first.
+   *
+   * @param query the possibly misspelled name
+   * @param maxDistance largest edit distance accepted
+   * @param limit maximum results
+   * @return matches ordered by distance, then name
+   */
+  public List<Match> similarTo(final String query, final int maxDistance, final int limit) {
+    if (maxDistance < 0 || limit < 0) {
+      throw new IllegalArgumentException("maxDistance and limit cannot be negative");
+    }
+    byte[] folded = fold(query);
+    int[] queryGrams = new int[folded.length + GRAM - 1];
+    int distinct = grams(folded, 0, folded.length, queryGrams);
+    int required = distinct - GRAM * maxDistance;
+    int[] candidates = required > 0 ? candidates(queryGrams, distinct, required) : null;
+
+    int[] previousRow = new int[folded.length + 1];
+    int[] currentRow = new int[folded.length + 1];
+    List<Match> matches = new ArrayList<>();
+    int candidateCount = candidates == null ? size() : candidates.length;
+    for (int i = 0; i < candidateCount; i++) {
+      int id = candidates == null ? i : candidates[i];
+      int length = offsets[id + 1] - offsets[id];
+      if (Math.abs(length - folded.length) > maxDistance) {
+        continue;
+      }
+      int distance = boundedDistance(id, folded, maxDistance, previousRow, currentRow);
+      if (distance <= maxDistance) {
+        matches.add(new Match(name(id), distance));
+      }
+    }
+    // Candidates are in id order, which is name order, and the sort is stable.
+    matches.sort(Comparator.comparingInt(Match::distance));
+    return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+  }
+
+  /** Returns the bytes held by the index's arrays, including array headers. */
+  public long memoryBytes() {
+    return arrayBytes(names.length, 1)
+        + arrayBytes(offsets.length, Integer.BYTES)
+        + arrayBytes(gramKeys.length, Integer.BYTES)
+        + arrayBytes(gramCounts.length, Integer.BYTES)
+        + arrayBytes(postingStarts.length, Integer.BYTES)
+        + arrayBytes(postings.length, 1);
+  }
+
+  /** Returns {@link #memoryBytes()} divided by the number of contacts. */
+  public double bytesPerContact() {
+    return size() == 0 ? 0 : (double) memoryBytes() / size();
+  }
+
+  private String name(final int id) {
+    return new String(names, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+  }
+
+  // Ids found in enough of the query's rarest posting lists, in ascending order. A match shares at
+  // least `required` trigrams with the query, so of any `probes` query trigrams it contains at
+  // least probes - (distinct - required). Reading up to two lists beyond the minimum and demanding
+  // that many hits costs little and removes most false candidates.
+  private int[] candidates(final int[] queryGrams, final int distinct, final int required) {
+    long[] bySize = new long[distinct];
+    for (int g = 0; g < distinct; g++) {
+      int slot = Arrays.binarySearch(gramKeys, queryGrams[g]);
+      // An unknown trigram has an empty posting list, which makes it the best probe of all.
+      long size = slot < 0 ? 0 : gramCounts[slot];
+      bySize[g] = size << 32 | (slot < 0 ? 0xFFFF_FFFFL : slot);
+    }
+    Arrays.sort(bySize);
+    int minHits = Math.min(required, 3);
+    int probes = distinct - required + minHits;
+
+    byte[] hits = hitCounters.get();
+    int[] ids = new int[16];
+    int count = 0;
+    for (int p = 0; p < probes; p++) {
+      int slot = (int) bySize[p];
+      int position = slot == -1 ? 0 : postingStarts[slot];
+      int end = slot == -1 ? 0 : postingStarts[slot + 1];
+      for (int id = -1; position < end; ) {
+        int b = postings[position++];
+        int delta = b & 0x7F;
+        for (int shift = 7; b < 0; shift += 7) {
+          b = postings[position++];
+          delta |= (b & 0x7F) << shift;
+        }
+        id += delta;
+        if (hits[id] < minHits && ++hits[id] == minHits) {
+          if (count == ids.length) {
+            ids = Arrays.copyOf(ids, count * 2);
+          }
+          ids[count++] = id;
+        }
+      }
+    }
+    // Reset only the counters this query touched.
+    for (int p = 0; p < probes; p++) {
+      int slot = (int) bySize[p];
+      int position = slot == -1 ? 0 : postingStarts[slot];
+      int end = slot == -1 ? 0 : postingStarts[slot + 1];
+      for (int id = -1; position < end; ) {
+        int b = postings[position++];
+        int delta = b & 0x7F;
+        for (int shift = 7; b < 0; shift += 7) {
+          b = postings[position++];
+          delta |= (b & 0x7F) << shift;
+        }
+        id += delta;
+        hits[id] = 0;
+      }
+    }
+    Arrays.sort(ids, 0, count);
+    return Arrays.copyOf(ids, count);
+  }
+
+  // Levenshtein distance between name id and the folded query, or maxDistance + 1 once it is
+  // certain to exceed maxDistance.
+  private int boundedDistance(
+      final int id,
+      final byte[] query,
+      final int maxDistance,
+      final int[] previousRow,
+      final int[] currentRow) {
+    int[] previous = previousRow;
+    int[] current = currentRow;
+    for (int j = 0; j <= query.length; j++) {
+      previous[j] = j;
+    }
+    int from = offsets[id];
+    int length = offsets[id + 1] - from;
+    for (int i = 1; i <= length; i++) {
+      int c = fold(names[from + i - 1]);
+      current[0] = i;
+      int rowMin = i;
+      for (int j = 1; j <= query.length; j++) {
+        int substitution = previous[j - 1] + (c == query[j - 1] ? 0 : 1);
+        int cost = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+        current[j] = cost;
+        rowMin = Math.min(rowMin, cost);
+      }
+      if (rowMin > maxDistance) {
+        return maxDistance + 1;
+      }
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return Math.min(previous[query.length], maxDistance + 1);
+  }
+
+  private int lowerBound(final byte[] prefix) {
+    int low = 0;
+    int high = size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (comparePrefix(mid, prefix) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private int upperBound(final byte[] prefix) {
+    int low = 0;
+    int high = size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (comparePrefix(mid, prefix) <= 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  // 0 if name id starts with prefix, otherwise the sign of name id versus prefix.
+  private int comparePrefix(final int id, final byte[] prefix) {
+    int from = offsets[id];
+    int length = offsets[id + 1] - from;
+    int common = Math.min(length, prefix.length);
+    for (int i = 0; i < common; i++) {
+      int difference = fold(names[from + i]) - (prefix[i] & 0xFF);
+      if (difference != 0) {
+        return difference;
+      }
+    }
+    return length < prefix.length ? -1 : 0;
+  }
+
+  private static int compareFolded(final byte[] left, final byte[] right) {
+    int common = Math.min(left.length, right.length);
+    for (int i = 0; i < common; i++) {
+      int difference = fold(left[i]) - fold(right[i]);
+      if (difference != 0) {
+        return difference;
+      }
+    }
+    return Integer.compare(left.length, right.length);
+  }
+
+  // Writes the distinct padded trigrams of bytes [from, to) to out and returns how many there are.
+  private static int grams(final byte[] bytes, final int from, final int to, final int[] out) {
+    int distinct = 0;
+    int window = PAD << 8 | PAD;
+    for (int i = from; i < to + GRAM - 1; i++) {
+      int next = i < to ? fold(bytes[i]) : PAD;
+      window = (window << 8 | next) & 0xFF_FFFF;
+      boolean seen = false;
+      for (int g = 0; g < distinct && !seen; g++) {
+        seen = out[g] == window;
+      }
+      if (!seen) {
+        out[distinct++] = window;
+      }
+    }
+    return distinct;
+  }
+
+  private static byte[] fold(final String text) {
+    Objects.requireNonNull(text, "text cannot be null");
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) fold(bytes[i]);
+    }
+    return bytes;
+  }
+
+  // ASCII lower-casing on an unsigned byte; other bytes are unchanged.
+  private static int fold(final byte b) {
+    int value = b & 0xFF;
+    return value >= 'A' && value <= 'Z' ? value + ('a' - 'A') : value;
+  }
+
+  private static int varIntLength(final int value) {
+    int length = 1;
+    for (int rest = value >>> 7; rest != 0; rest >>>= 7) {
+      length++;
+    }
+    return length;
+  }
+
+  private static int writeVarInt(final byte[] out, final int position, final int value) {
+    int at = position;
+    int rest = value;
+    while ((rest & ~0x7F) != 0) {
+      out[at++] = (byte) (rest & 0x7F | 0x80);
+      rest >>>= 7;
+    }
+    out[at++] = (byte) rest;
+    return at;
+  }
+
+  private static long arrayBytes(final int length, final int elementBytes) {
+    return ARRAY_HEADER_BYTES + (long) length * elementBytes;
+  }
+}
@@ -0,0 +1,219 @@
+package optimizing.text;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import optimizing.collections.TokenCountMap;
+
+/**
+ * Fork/join word-frequency counter for large UTF-8 corpora.
+ *
+ * <p>The input is split in half recursively, with every split point nudged forward to the next
+ * whitespace byte so no token straddles two tasks. Leaves count into the {@link TokenCountMap}
+ * owned by the worker thread running them (no sharing, no locks, no boxing), so there is one map
+ * per thread rather than per leaf, and only those few maps are merged at the end.
+ *
+ * <p>Tokens are maximal runs of non-whitespace bytes, the same words a {@code split("\\s+")} would
+ * produce, and are lower-cased with {@link java.util.Locale#ROOT} semantics.
+ */
+public final class ParallelWordCounter {
+  /** Leaf size that keeps a task's working set cache-friendly while amortizing fork overhead. */
+  public static final int DEFAULT_GRAIN_BYTES = 1 << 20;
+
+  /** Files are streamed in chunks of this size, so corpora larger than 2 GB work too. */
+  private static final int FILE_CHUNK_BYTES = 256 << 20;
+
+  private final ForkJoinPool pool;
+  private final int grainBytes;
+
+  /** Creates a counter on the common pool with the default grain. */
+  public ParallelWordCounter() {
+    this(ForkJoinPool.commonPool(), DEFAULT_GRAIN_BYTES);
+  }
+
+  /**
+   * Creates a counter with an explicit pool and leaf size.
+   *
+   * @param pool pool that runs the counting tasks
+   * @param grainBytes inputs at or below this size are counted sequentially
+   */
+  public ParallelWordCounter(final ForkJoinPool pool, final int grainBytes) {
+    if (grainBytes <= 0) {
+      throw new IllegalArgumentException("grainBytes must be positive");
+    }
+    this.pool = Objects.requireNonNull(pool, "pool cannot be null");
+    this.grainBytes = grainBytes;
+  }
+
+  /**
+   * Counts every word in {@code corpus}.
+   *
+   * @param corpus UTF-8 text; never modified
+   * @return merged counts
+   */
+  public TokenCountMap count(final byte[] corpus) {
+    return count(corpus, 0, corpus.length);
+  }
+
+  /**
+   * Counts every word in {@code corpus[from, to)}. The range must start and end on token
+   * boundaries.
+   *
+   * @param corpus UTF-8 text; never modified
+   * @param from first byte (inclusive)
+   * @param to last byte (exclusive)
+   * @return merged counts
+   */
+  public TokenCountMap count(final byte[] corpus, final int from, final int to) {
+    Map<Thread, TokenCountMap> perThread = new ConcurrentHashMap<>();
+    pool.invoke(new CountTask(corpus, from, to, grainBytes, perThread));
+    TokenCountMap merged = null;
+    for (TokenCountMap counts : perThread.values()) {
+      if (merged == null || counts.size() > merged.size()) {
+        if (merged != null) {
+          counts.mergeFrom(merged);
+        }
+        merged = counts;
+      } else {
+        merged.mergeFrom(counts);
+      }
+    }
+    return merged == null ? new TokenCountMap() : merged;
+  }
+
+  /**
+   * Streams a file through the counter chunk by chunk. Each chunk is counted in parallel; a token
+   * cut off at the end of a chunk is carried over to the next one.
+   *
+   * @param file UTF-8 text file of any size
+   * @return merged counts
+   * @throws IOException if the file cannot be read
+   */
+  public TokenCountMap count(final Path file) throws IOException {
+    TokenCountMap result = new TokenCountMap();
+    int carried = 0;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      byte[] chunk = new byte[(int) Math.min(FILE_CHUNK_BYTES, channel.size() + 1)];
+      while (true) {
+        ByteBuffer target = ByteBuffer.wrap(chunk, carried, chunk.length - carried);
+        int read = channel.read(target);
+        boolean eof = read < 0;
+        int filled = carried + Math.max(read, 0);
+        int cut = eof ? filled : lastBoundary(chunk, filled);
+        if (cut == 0 && !eof && filled == chunk.length) {
+          throw new IOException("Token longer than " + chunk.length + " bytes");
+        }
+        result.mergeFrom(count(chunk, 0, cut));
+        carried = filled - cut;
+        System.arraycopy(chunk, cut, chunk, 0, carried);
+        if (eof) {
+          return result;
+        }
+      }
+    }
+  }
+
+  /**
+   * Sequential kernel shared by the leaves: scan once, hand each token range to the map.
+   *
+   * @param corpus UTF-8 text
+   * @param from first byte (inclusive)
+   * @param to last byte (exclusive)
+   * @param counts map to update
+   */
+  static void countRange(
+      final byte[] corpus, final int from, final int to, final TokenCountMap counts) {
+    int tokenStart = -1;
+    for (int i = from; i < to; i++) {
+      if (isWhitespace(corpus[i])) {
+        if (tokenStart >= 0) {
+          counts.increment(corpus, tokenStart, i);
+          tokenStart = -1;
+        }
+      } else if (tokenStart < 0) {
+        tokenStart = i;
+      }
+    }
+    if (tokenStart >= 0) {
+      counts.increment(corpus, tokenStart, to);
+    }
+  }
+
+  static boolean isWhitespace(final byte b) {
+    return b == ' ' || b == '\n' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+  }
+
+  // Position just after the last whitespace byte, or 0 if the buffer holds a single token.
+  private static int lastBoundary(final byte[] buffer, final int length) {
+    for (int i = length - 1; i >= 0; i--) {
+      if (isWhitespace(buffer[i])) {
+        return i + 1;
+      }
+    }
+    return 0;
+  }
+
+  /** Recursive split; leaves look up their worker's private map, so nothing is shared. */
+  private static final class CountTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final transient byte[] corpus;
+    private final int from;
+    private final int to;
+    private final int grainBytes;
+    private final transient Map<Thread, TokenCountMap> perThread;
+
+    private CountTask(
+        final byte[] corpus,
+        final int from,
+        final int to,
+        final int grainBytes,
+        final Map<Thread, TokenCountMap> perThread) {
+      this.corpus = corpus;
+      this.from = from;
+      this.to = to;
+      this.grainBytes = grainBytes;
+      this.perThread = perThread;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= grainBytes) {
+        countRange(corpus, from, to, counts());
+        return;
+      }
+      int half = from + (to - from) / 2;
+      int mid = half;
+      while (mid < to && !isWhitespace(corpus[mid])) {
+        mid++;
+      }
+      if (mid == to) {
+        // No whitespace after the midpoint: look before it, keeping both halves non-empty.
+        mid = half;
+        while (mid > from && !isWhitespace(corpus[mid])) {
+          mid--;
+        }
+      }
+      if (mid == from) {
+        // One token spans the whole range, so there is nothing to split.
+        countRange(corpus, from, to, counts());
+        return;
+      }
+      invokeAll(
+          new CountTask(corpus, from, mid, grainBytes, perThread),
+          new CountTask(corpus, mid, to, grainBytes, perThread));
+    }
+
+    // Only the owning thread ever touches its map, so the map itself needs no locking.
+    private TokenCountMap counts() {
+      return perThread.computeIfAbsent(Thread.currentThread(), thread -> new TokenCountMap());
+    }
+  }
+}